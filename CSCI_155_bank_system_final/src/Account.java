@@ -1,25 +1,67 @@
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongUnaryOperator;
 
 /**
  * Abstract base class for all bank account types.
  * Encapsulates common fields and behavior for checking, gold, and regular accounts.
  *
+ * Balances are kept as a whole number of cents, so amounts never pick up
+ * floating-point rounding error. All balance changes are lock-free
+ * compare-and-set updates, so accounts can be used from many threads at once.
+ *
  * @author Red Team
  * @version 1.0
  * @since 2025-08-07
  */
-public abstract class Account implements Serializable {
+public abstract class Account implements AccountView, Serializable {
     private static final long serialVersionUID = 1L; // Fixed capital "L"
 
     /** Unique account number (immutable once created). */
     protected final String accountNumber;
   
-    /** Current balance in the account. */
-    protected double balance;
+    /** Current balance in the account, in cents. Updated only through {@link #BALANCE}. */
+    private volatile long balanceCents;
+
+    /** Where transaction receipts are sent; shared by all accounts. */
+    private static volatile ReceiptSink receiptSink = ReceiptSink.CONSOLE;
+
+    /** Atomic access to {@link #balanceCents}. */
+    private static final VarHandle BALANCE;
+
+    /** Atomic access to {@link #lock}. */
+    private static final VarHandle LOCK;
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Account.class, "balanceCents", long.class);
+            LOCK = MethodHandles.lookup().findVarHandle(Account.class, "lock", ReentrantLock.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /** Customer who owns the account. */
     protected final Customer customer;
 
+    /** Statistics of the bank holding this account, told about every balance change; null if none. */
+    private transient volatile BankStatistics statistics;
+
+    /** Epoch of the last checkpoint that has captured this account; guarded by {@link #getLock()}. */
+    private transient long checkpointEpoch;
+
+    /**
+     * Held by the bank while it changes this account and records the change, and
+     * by checkpoints reading it; created on first use. A lock rather than this
+     * account's monitor, so a virtual thread that blocks while holding it (on the
+     * journal, or a slow receipt sink) does not pin its carrier thread.
+     */
+    private transient volatile ReentrantLock lock;
+
+    /** Record of recent balance changes, kept while the bank has a journal; null if not recorded. */
+    private transient volatile AccountHistory history;
+
     /**
      * Constructs an Account with the specified account number and customer.
      *
@@ -36,7 +78,7 @@ public abstract class Account implements Serializable {
         }
         this.accountNumber = accountNumber.trim();
         this.customer = customer;
-        this.balance = 0.0;
+        this.balanceCents = 0;
     }
     
     /** @return the account number */
@@ -46,7 +88,12 @@ public abstract class Account implements Serializable {
 
     /** @return the current account balance */
     public double getBalance() {
-        return balance;
+        return balanceCents / 100.0;
+    }
+
+    /** @return the current account balance in cents */
+    public long getBalanceCents() {
+        return balanceCents;
     }
 
     /** @return the customer associated with this account */
@@ -54,22 +101,217 @@ public abstract class Account implements Serializable {
         return customer;
     }
 
+    /** @return the kind of account */
+    public abstract AccountType getType();
+
+    /** @return transactions counted toward this month's fees; 0 here, for accounts without them */
+    public int getTransactionCount() {
+        return 0;
+    }
+
+    void setStatistics(BankStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    AccountHistory getHistory() {
+        return history;
+    }
+
+    /** Starts recording balance changes, from the current balance onwards. */
+    void startHistory(AccountHistory.Policy policy) {
+        this.history = new AccountHistory(policy, policy.now(), balanceCents);
+    }
+
+    /** Records balance changes in the given history from now on, or stops recording if null. */
+    void setHistory(AccountHistory history) {
+        this.history = history;
+    }
+
+    /** @return the lock that guards changes to this account together with their journal records */
+    ReentrantLock getLock() {
+        ReentrantLock existing = lock;
+        if (existing != null) {
+            return existing;
+        }
+        ReentrantLock created = new ReentrantLock();
+        existing = (ReentrantLock) LOCK.compareAndExchange(this, null, created);
+        return existing != null ? existing : created;
+    }
+
+    long getCheckpointEpoch() {
+        return checkpointEpoch;
+    }
+
+    void setCheckpointEpoch(long checkpointEpoch) {
+        this.checkpointEpoch = checkpointEpoch;
+    }
+
+    /** Reports a completed atomic balance change to the bank statistics and history, if any. */
+    private void balanceChanged(long oldCents, long newCents) {
+        if (oldCents == newCents) {
+            return;
+        }
+        BankStatistics stats = statistics;
+        if (stats != null) {
+            stats.balanceChanged(this, oldCents, newCents);
+        }
+        AccountHistory events = history;
+        if (events != null) {
+            events.record(newCents - oldCents);
+        }
+    }
+
+    /**
+     * Restores a previously saved balance without printing a receipt.
+     * Used only when loading a snapshot.
+     *
+     * @param balanceCents the saved balance in cents
+     */
+    void restoreBalanceCents(long balanceCents) {
+        this.balanceCents = balanceCents;
+    }
+
+    /** @return the sink that receives transaction receipts */
+    public static ReceiptSink getReceiptSink() {
+        return receiptSink;
+    }
+
+    /**
+     * Sets where transaction receipts are sent for all accounts.
+     * Use {@link ReceiptSink#NONE} to skip building receipts entirely.
+     *
+     * @param sink the receipt sink; must not be null
+     * @throws IllegalArgumentException if sink is null
+     */
+    public static void setReceiptSink(ReceiptSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("Receipt sink cannot be null.");
+        }
+        receiptSink = sink;
+    }
+
+    // -------- Atomic balance updates for subclasses --------
+
+    /**
+     * Converts a dollar amount to whole cents, rounding to the nearest cent.
+     *
+     * @param amount dollar amount
+     * @return the amount in cents
+     */
+    protected static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Atomically adds to the balance.
+     *
+     * @param deltaCents cents to add (negative to subtract)
+     * @return the new balance in cents
+     */
+    protected long addCents(long deltaCents) {
+        long oldCents = (long) BALANCE.getAndAdd(this, deltaCents);
+        balanceChanged(oldCents, oldCents + deltaCents);
+        return oldCents + deltaCents;
+    }
+
+    /**
+     * Atomically withdraws up to the requested amount, never taking the balance
+     * below zero through a withdrawal.
+     *
+     * @param requestedCents cents requested
+     * @return the balance in cents just before the withdrawal; the amount taken is
+     *         {@code max(0, min(requestedCents, returned balance))}
+     */
+    protected long withdrawUpToBalance(long requestedCents) {
+        while (true) {
+            long current = balanceCents;
+            long taken = cappedWithdrawal(requestedCents, current);
+            if (taken == 0) {
+                return current;
+            }
+            if (BALANCE.compareAndSet(this, current, current - taken)) {
+                balanceChanged(current, current - taken);
+                return current;
+            }
+        }
+    }
+
+    /**
+     * @param requestedCents cents requested
+     * @param balanceCents   balance before the withdrawal
+     * @return the cents a no-overdraft withdrawal takes from that balance
+     */
+    protected static long cappedWithdrawal(long requestedCents, long balanceCents) {
+        return Math.max(0, Math.min(requestedCents, balanceCents));
+    }
+
+    /**
+     * Atomically replaces the balance with a function of its current value.
+     * The function may be called more than once and must have no side effects.
+     *
+     * @param update computes the new balance in cents from the current one
+     * @return the new balance in cents
+     */
+    protected long updateBalance(LongUnaryOperator update) {
+        while (true) {
+            long current = balanceCents;
+            long next = update.applyAsLong(current);
+            if (BALANCE.compareAndSet(this, current, next)) {
+                balanceChanged(current, next);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Sets the balance back to a value saved earlier, such as when a failed
+     * month-end is undone. Reported to statistics and history like any change.
+     *
+     * @param cents the saved balance in cents
+     */
+    void revertBalanceCents(long cents) {
+        updateBalance(current -> cents);
+    }
+
+    /**
+     * Converts a deposit or withdrawal amount to cents, rejecting amounts that
+     * are not positive or round to zero cents.
+     *
+     * @param amount  requested dollar amount
+     * @param message error message if the amount is invalid
+     * @return the amount in cents
+     * @throws IllegalArgumentException if the amount is invalid
+     */
+    protected static long requirePositiveCents(double amount, String message) {
+        long cents = amount > 0 ? toCents(amount) : 0;
+        if (cents <= 0) {
+            throw new IllegalArgumentException(message);
+        }
+        return cents;
+    }
+
+    /** @return the given number of cents formatted as dollars, e.g. "$12.34" */
+    protected static String formatCents(long cents) {
+        return String.format("$%.2f", cents / 100.0);
+    }
+
     /**
      * Deposits the specified amount into the account.
      *
-     * @param amount amount to deposit; must be positive
+     * @param amount amount to deposit; must be at least one cent
      * @throws IllegalArgumentException if amount is non-positive
      */
     public void deposit(double amount) {
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Deposit amount must be positive.");
-        }
-        balance += amount;
+        long cents = requirePositiveCents(amount, "Deposit amount must be positive.");
+        long newBalance = addCents(cents);
         
-     // Transaction receipt
-	System.out.println("\nTransaction completed:\n" + 
-			"---> " + String.format("$%.2f", amount) + " deposited" +
-			"\n---> " + String.format("$%.2f", balance) + " balance");
+        // Transaction receipt, only built if someone consumes it
+        ReceiptSink sink = receiptSink;
+        if (sink.isEnabled()) {
+            sink.accept("\nTransaction completed:\n" + 
+                    "---> " + formatCents(cents) + " deposited" +
+                    "\n---> " + formatCents(newBalance) + " balance");
+        }
     }
 
     /**
@@ -80,6 +322,46 @@ public abstract class Account implements Serializable {
      */
     public abstract void withdraw(double amount);
 
+    /**
+     * Deposits a validated amount without printing a receipt. Used for bulk processing.
+     *
+     * @param cents amount to deposit in cents; must be positive
+     * @return the new balance in cents
+     */
+    long depositCents(long cents) {
+        return addCents(cents);
+    }
+
+    /**
+     * Withdraws a validated amount without printing a receipt, applying the same
+     * account-specific rules as {@link #withdraw(double)}. Used for bulk processing.
+     *
+     * @param cents requested amount in cents; must be positive
+     * @return the cents actually withdrawn
+     */
+    abstract long withdrawCents(long cents);
+
+    /**
+     * Withdraws the full amount for a transfer, or nothing if the account rules
+     * do not allow it. This base version never takes the balance below zero;
+     * accounts that allow overdrafts override it.
+     *
+     * @param cents amount in cents; must be positive
+     * @return true if the amount was withdrawn, false if funds were insufficient
+     */
+    boolean transferOutCents(long cents) {
+        while (true) {
+            long current = balanceCents;
+            if (current < cents) {
+                return false;
+            }
+            if (BALANCE.compareAndSet(this, current, current - cents)) {
+                balanceChanged(current, current - cents);
+                return true;
+            }
+        }
+    }
+
     /**
      * Applies account-specific monthly interest or fees.
      */
@@ -99,6 +381,6 @@ public abstract class Account implements Serializable {
     public String toString() {
         return "Account: " + accountNumber +
         		"\nAccount Owner: " + customer.toString() +
-               "\nBalance: $" + String.format("%.2f", balance);
+               "\nBalance: " + formatCents(balanceCents);
     }
 }
@@ -0,0 +1,198 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures balance updates under contention: the compare-and-set updates
+ * {@link Account} uses, next to the same account guarded by a synchronized
+ * monitor as balances were before.
+ *
+ * Threads make random deposits and no-overdraft withdrawals, either all on one
+ * account or spread over many. Each thread adds up what it deposited and what
+ * was actually withdrawn, and afterwards every balance must equal the sum; the
+ * run reports a mismatch if it does not.
+ *
+ * Usage: {@code java AccountContentionBenchmark [accounts] [operationsPerThread] [threadCounts]}
+ * where threadCounts is a comma-separated list, by default 1,2,4,... up to four
+ * times the number of processors. Each thread count is run on one shared
+ * account and then on the given number of accounts.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class AccountContentionBenchmark {
+
+	/** Runs made of each case; the best one is reported. */
+	private static final int RUNS = 5;
+
+	private AccountContentionBenchmark() {
+	}
+
+	/** The balance operations being compared, on account {@code n}. */
+	private interface Accounts {
+		void deposit(int n, long cents);
+
+		/** @return the cents actually withdrawn */
+		long withdraw(int n, long cents);
+
+		long balance(int n);
+	}
+
+	/** Real accounts, updated with compare-and-set. */
+	private static Accounts casAccounts(int count) {
+		RegularAccount[] accounts = new RegularAccount[count];
+		Customer owner = new Customer("C1", "Benchmark");
+		for (int i = 0; i < count; i++) {
+			accounts[i] = new RegularAccount("A" + i, owner);
+		}
+		return new Accounts() {
+			@Override
+			public void deposit(int n, long cents) {
+				accounts[n].depositCents(cents);
+			}
+
+			@Override
+			public long withdraw(int n, long cents) {
+				return accounts[n].withdrawCents(cents);
+			}
+
+			@Override
+			public long balance(int n) {
+				return accounts[n].getBalanceCents();
+			}
+		};
+	}
+
+	/** The same rules with every update holding the account's monitor. */
+	private static Accounts synchronizedAccounts(int count) {
+		LockedBalance[] accounts = new LockedBalance[count];
+		for (int i = 0; i < count; i++) {
+			accounts[i] = new LockedBalance();
+		}
+		return new Accounts() {
+			@Override
+			public void deposit(int n, long cents) {
+				accounts[n].deposit(cents);
+			}
+
+			@Override
+			public long withdraw(int n, long cents) {
+				return accounts[n].withdraw(cents);
+			}
+
+			@Override
+			public long balance(int n) {
+				return accounts[n].balance();
+			}
+		};
+	}
+
+	/** A balance guarded by its monitor, as Account kept it before compare-and-set. */
+	private static final class LockedBalance {
+		private long balanceCents;
+
+		synchronized void deposit(long cents) {
+			balanceCents += cents;
+		}
+
+		synchronized long withdraw(long cents) {
+			long taken = Account.cappedWithdrawal(cents, balanceCents);
+			balanceCents -= taken;
+			return taken;
+		}
+
+		synchronized long balance() {
+			return balanceCents;
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+		int processors = Runtime.getRuntime().availableProcessors();
+		List<Integer> threadCounts = new ArrayList<>();
+		if (args.length > 2) {
+			for (String count : args[2].split(",")) {
+				threadCounts.add(Integer.parseInt(count));
+			}
+		} else {
+			for (int count = 1; count <= processors * 4; count *= 2) {
+				threadCounts.add(count);
+			}
+		}
+		Account.setReceiptSink(ReceiptSink.NONE);
+
+		System.out.printf("%d operations per thread, %d processors, best of %d runs%n", operations, processors, RUNS);
+		System.out.printf("%-8s %-9s %14s %14s %8s%n", "threads", "accounts", "CAS ops/s", "sync ops/s", "CAS/sync");
+		boolean ok = true;
+		for (int threads : threadCounts) {
+			for (int count : new int[] { 1, accounts }) {
+				double cas = 0;
+				double locked = 0;
+				for (int run = 0; run < RUNS; run++) {
+					cas = Math.max(cas, run(casAccounts(count), count, threads, operations));
+					locked = Math.max(locked, run(synchronizedAccounts(count), count, threads, operations));
+				}
+				ok &= cas > 0 && locked > 0;
+				System.out.printf("%-8d %-9d %14.0f %14.0f %8.2f%n", threads, count, cas, locked, cas / locked);
+			}
+		}
+		if (!ok) {
+			System.out.println("BALANCES DID NOT MATCH.");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs one case.
+	 *
+	 * @return operations per second, or 0 if a balance did not match what the threads did
+	 */
+	private static double run(Accounts accounts, int count, int threads, int operations) throws InterruptedException {
+		long[][] net = new long[threads][count];
+		CountDownLatch startSignal = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>(threads);
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			workers.add(Thread.ofPlatform().name("contention-" + t).start(() -> {
+				SplittableRandom random = new SplittableRandom(thread);
+				long[] mine = net[thread];
+				try {
+					startSignal.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < operations; i++) {
+					int n = count == 1 ? 0 : random.nextInt(count);
+					long cents = 1 + random.nextInt(10_000);
+					if (random.nextBoolean()) {
+						accounts.deposit(n, cents);
+						mine[n] += cents;
+					} else {
+						mine[n] -= accounts.withdraw(n, cents);
+					}
+				}
+			}));
+		}
+		long start = System.nanoTime();
+		startSignal.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		for (int n = 0; n < count; n++) {
+			long expected = 0;
+			for (long[] mine : net) {
+				expected += mine[n];
+			}
+			if (accounts.balance(n) != expected) {
+				System.err.printf("Account %d holds %d cents, expected %d%n", n, accounts.balance(n), expected);
+				return 0;
+			}
+		}
+		return (double) threads * operations * 1e9 / elapsed;
+	}
+}
@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Writes accounts to a CSV file in parallel, keeping their order.
+ *
+ * Output is UTF-8 with a header row and one row per account:
+ * <pre>
+ *   account_number,type,balance,customer_name,customer_id
+ *   A001,Checking,1250.00,Jane Doe,C042
+ * </pre>
+ * Fields containing a comma, quote or line break are quoted as in RFC 4180.
+ *
+ * The calling thread takes accounts from the iterator in batches of
+ * {@link #BATCH_SIZE} and hands each batch to a worker, which formats it into
+ * a byte array and copies the rows to the batch's own direct buffer. Batches are written to a FileChannel in the
+ * order they were taken, each once its worker is done, and their buffers are
+ * then reused. A fixed ring of batches is in use at a time, so memory does not
+ * grow with the number of accounts.
+ *
+ * The file is written to a temporary file and moved into place when complete.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+final class AccountCsvExport {
+
+	/** The first line of every export. */
+	static final String HEADER = "account_number,type,balance,customer_name,customer_id\n";
+
+	/** Accounts formatted by one worker task and written with one channel write. */
+	private static final int BATCH_SIZE = 8192;
+
+	/** Starting size of a batch's buffers; enough for typical rows, grown if a batch needs more. */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/** Display name of each account type, as UTF-8 bytes. */
+	private static final byte[][] TYPE_NAMES;
+
+	static {
+		AccountType[] types = AccountType.values();
+		TYPE_NAMES = new byte[types.length][];
+		for (AccountType type : types) {
+			TYPE_NAMES[type.ordinal()] = type.getDisplayName().getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	private AccountCsvExport() {
+	}
+
+	/**
+	 * Writes the accounts, in iteration order, to a CSV file.
+	 *
+	 * @param accounts the accounts to write
+	 * @param filename the file to write; an existing file is replaced
+	 * @param parallelism number of formatting threads; must be positive
+	 * @return the number of accounts written
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalArgumentException if parallelism is not positive
+	 */
+	static long write(Iterable<Account> accounts, String filename, int parallelism) throws IOException {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive.");
+		}
+		Path target = Path.of(filename);
+		Path temp = Path.of(filename + ".tmp");
+		// Two more batches than workers: one being filled and one being written
+		Batch[] ring = new Batch[parallelism + 2];
+		for (int i = 0; i < ring.length; i++) {
+			ring[i] = new Batch();
+		}
+		long rows = 0;
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.UTF_8)));
+			Iterator<Account> it = accounts.iterator();
+			long next = 0;
+			while (it.hasNext()) {
+				Batch batch = ring[(int) (next % ring.length)];
+				rows += batch.writeTo(channel); // the batch taken one ring ago
+				while (batch.count < BATCH_SIZE && it.hasNext()) {
+					batch.accounts[batch.count++] = it.next();
+				}
+				batch.task = pool.submit(batch::format);
+				next++;
+			}
+			for (long seq = Math.max(0, next - ring.length); seq < next; seq++) {
+				rows += ring[(int) (seq % ring.length)].writeTo(channel);
+			}
+			channel.force(false);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		} finally {
+			pool.shutdownNow();
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return rows;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/** A run of accounts and the buffer their rows are formatted into. */
+	private static final class Batch {
+		final Account[] accounts = new Account[BATCH_SIZE];
+		int count;
+		ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		ForkJoinTask<?> task;
+
+		/** Rows as they are formatted; one bulk copy to the direct buffer beats putting each byte. */
+		private byte[] rows = new byte[BUFFER_SIZE];
+		private int length;
+
+		/**
+		 * Waits for the batch to be formatted, writes it and empties it.
+		 *
+		 * @return the number of rows written; 0 if the batch was empty
+		 */
+		int writeTo(FileChannel channel) throws IOException {
+			if (task == null) {
+				return 0;
+			}
+			task.join();
+			task = null;
+			writeFully(channel, out);
+			int written = count;
+			Arrays.fill(accounts, 0, count, null);
+			count = 0;
+			return written;
+		}
+
+		/** Formats every account in the batch into the buffer, ready to write. */
+		void format() {
+			length = 0;
+			for (int i = 0; i < count; i++) {
+				Account a = accounts[i];
+				Customer customer = a.getCustomer();
+				String number = a.getAccountNumber();
+				String name = customer.getName();
+				String id = customer.getCustomerId();
+				ensureRemaining(3 * (number.length() + name.length() + id.length()) + 64);
+				putField(number);
+				rows[length++] = ',';
+				byte[] type = TYPE_NAMES[a.getType().ordinal()];
+				System.arraycopy(type, 0, rows, length, type.length);
+				length += type.length;
+				rows[length++] = ',';
+				putCents(a.getBalanceCents());
+				rows[length++] = ',';
+				putField(name);
+				rows[length++] = ',';
+				putField(id);
+				rows[length++] = '\n';
+			}
+			if (out.capacity() < length) {
+				out = ByteBuffer.allocateDirect(length);
+			}
+			out.clear();
+			out.put(rows, 0, length).flip();
+		}
+
+		/** Grows the row array if fewer than the given number of bytes remain. */
+		private void ensureRemaining(int bytes) {
+			if (rows.length - length < bytes) {
+				rows = Arrays.copyOf(rows, Math.max(rows.length * 2, length + bytes));
+			}
+		}
+
+		/** Writes a balance in cents as dollars with two decimals, e.g. -12.05. */
+		private void putCents(long cents) {
+			if (cents < 0) {
+				rows[length++] = '-';
+			}
+			long dollars = Math.abs(cents / 100);
+			int fraction = (int) Math.abs(cents % 100);
+			int digits = 1;
+			for (long d = dollars; d >= 10; d /= 10) {
+				digits++;
+			}
+			length += digits;
+			for (int i = length - 1; i >= length - digits; i--) {
+				rows[i] = (byte) ('0' + dollars % 10);
+				dollars /= 10;
+			}
+			rows[length++] = '.';
+			rows[length++] = (byte) ('0' + fraction / 10);
+			rows[length++] = (byte) ('0' + fraction % 10);
+		}
+
+		/**
+		 * Writes a field as UTF-8, quoted if it holds a comma, quote or line
+		 * break. Takes at most three bytes per char, plus two for quotes.
+		 */
+		private void putField(String value) {
+			boolean quote = false;
+			for (int i = 0; i < value.length() && !quote; i++) {
+				char c = value.charAt(i);
+				quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+			}
+			byte[] rows = this.rows;
+			int n = length;
+			if (quote) {
+				rows[n++] = '"';
+			}
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c < 0x80) {
+					if (c == '"') {
+						rows[n++] = '"';
+					}
+					rows[n++] = (byte) c;
+				} else if (c < 0x800) {
+					rows[n++] = (byte) (0xC0 | c >> 6);
+					rows[n++] = (byte) (0x80 | c & 0x3F);
+				} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					int cp = Character.toCodePoint(c, value.charAt(++i));
+					rows[n++] = (byte) (0xF0 | cp >> 18);
+					rows[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+					rows[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+					rows[n++] = (byte) (0x80 | cp & 0x3F);
+				} else if (Character.isSurrogate(c)) {
+					rows[n++] = '?'; // unpaired surrogate, as String.getBytes writes it
+				} else {
+					rows[n++] = (byte) (0xE0 | c >> 12);
+					rows[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+					rows[n++] = (byte) (0x80 | c & 0x3F);
+				}
+			}
+			if (quote) {
+				rows[n++] = '"';
+			}
+			length = n;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * The balance history of one account, kept as a log of compact events with
+ * periodic snapshots, so the balance at any past time can be found quickly.
+ *
+ * Each event is two longs: the time of the change in epoch milliseconds and the
+ * change in cents. Events are stored in chunks of {@link #SNAPSHOT_INTERVAL},
+ * and the balance before each chunk is kept as that chunk's snapshot. A query
+ * binary-searches the chunks by time and replays at most one chunk from its
+ * snapshot, so it takes the same bounded time however long the history grows.
+ * Appending never copies more than one chunk.
+ *
+ * Whole chunks are dropped from the start once they are older than the
+ * {@link Policy}'s retention, or once the history holds more than
+ * {@link #MAX_EVENTS} events; the history then starts at the last dropped
+ * event. Event times never go backwards, even if the system clock does.
+ *
+ * Not thread-safe: Bank records and reads a history only while it holds the
+ * account's lock. A full chunk is never written again, so {@link #copy()}
+ * shares full chunks with the live history.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+final class AccountHistory {
+
+	/** Number of events between snapshots, and so the most a query replays. */
+	static final int SNAPSHOT_INTERVAL = 64;
+
+	/** Most events kept per account, whatever their age; 256 KB of events. */
+	static final int MAX_EVENTS = 256 * SNAPSHOT_INTERVAL;
+
+	/** Longs per event: time and change. */
+	private static final int EVENT_LONGS = 2;
+
+	/** Capacity, in longs, of a new chunk; doubled up to a full chunk as it fills. */
+	private static final int INITIAL_CHUNK_LONGS = 4 * EVENT_LONGS;
+
+	private static final long[][] NO_CHUNKS = new long[0][];
+	private static final long[] NO_SNAPSHOTS = new long[0];
+
+	/**
+	 * How long the histories of a bank's accounts are kept, and the clock their
+	 * changes are timed by. While a journal is replayed the clock reads the time
+	 * the journal noted for each operation instead of the current time.
+	 */
+	static final class Policy {
+		private final long retentionMillis;
+		private volatile long replayMillis;
+
+		/**
+		 * @param retentionMillis how long events are kept, in milliseconds; must be positive
+		 * @throws IllegalArgumentException if the retention is not positive
+		 */
+		Policy(long retentionMillis) {
+			if (retentionMillis <= 0) {
+				throw new IllegalArgumentException("History retention must be positive.");
+			}
+			this.retentionMillis = retentionMillis;
+		}
+
+		/** @return the time changes are recorded at, in epoch milliseconds. */
+		long now() {
+			long replay = replayMillis;
+			return replay != 0 ? replay : System.currentTimeMillis();
+		}
+
+		/** Times changes at the given time from now on, or at the current time again if 0. */
+		void setReplayMillis(long epochMillis) {
+			this.replayMillis = epochMillis;
+		}
+
+		/** @return the time before which events are dropped, given the current time. */
+		long cutoff(long now) {
+			return retentionMillis >= now ? Long.MIN_VALUE : now - retentionMillis;
+		}
+	}
+
+	private Policy policy;
+	private long startMillis;
+	private long openingCents;
+
+	/** Events; chunk k holds events k * SNAPSHOT_INTERVAL onwards. */
+	private long[][] chunks = NO_CHUNKS;
+
+	/** Balance before the first event of each chunk. */
+	private long[] snapshots = NO_SNAPSHOTS;
+
+	private int size;
+	private long balanceCents;
+	private long lastMillis;
+
+	/**
+	 * Starts a history.
+	 *
+	 * @param policy retention and clock; null for a history read from a file and
+	 *        not recording yet
+	 * @param startMillis when the history starts, in epoch milliseconds
+	 * @param openingCents the balance at that time
+	 */
+	AccountHistory(Policy policy, long startMillis, long openingCents) {
+		this.policy = policy;
+		this.startMillis = startMillis;
+		this.openingCents = openingCents;
+		this.balanceCents = openingCents;
+		this.lastMillis = startMillis;
+	}
+
+	/**
+	 * Records a balance change made now.
+	 *
+	 * @param deltaCents the change in cents
+	 */
+	void record(long deltaCents) {
+		append(policy.now(), deltaCents);
+	}
+
+	/** Adds an event, dropping expired chunks first whenever a new chunk starts. */
+	private void append(long millis, long deltaCents) {
+		long now = Math.max(millis, lastMillis);
+		int offset = (size % SNAPSHOT_INTERVAL) * EVENT_LONGS;
+		if (offset == 0 && policy != null) {
+			retire(now, MAX_EVENTS - 1);
+		}
+		int chunk = size / SNAPSHOT_INTERVAL;
+		if (offset == 0) {
+			if (chunk == chunks.length) {
+				int capacity = Math.max(4, chunks.length * 2);
+				chunks = Arrays.copyOf(chunks, capacity);
+				snapshots = Arrays.copyOf(snapshots, capacity);
+			}
+			chunks[chunk] = new long[INITIAL_CHUNK_LONGS];
+			snapshots[chunk] = balanceCents;
+		} else if (offset == chunks[chunk].length) {
+			chunks[chunk] = Arrays.copyOf(chunks[chunk], offset * 2);
+		}
+		chunks[chunk][offset] = now;
+		chunks[chunk][offset + 1] = deltaCents;
+		size++;
+		balanceCents += deltaCents;
+		lastMillis = now;
+	}
+
+	/**
+	 * Drops the leading full chunks whose last event is older than the retention,
+	 * or that leave more than the given number of events.
+	 */
+	private void retire(long now, int keepEvents) {
+		long cutoff = policy.cutoff(now);
+		int full = size / SNAPSHOT_INTERVAL;
+		int drop = 0;
+		while (drop < full && (lastEventMillis(drop) < cutoff || size - drop * SNAPSHOT_INTERVAL > keepEvents)) {
+			drop++;
+		}
+		if (drop == 0) {
+			return;
+		}
+		startMillis = lastEventMillis(drop - 1);
+		openingCents = drop < chunkCount() ? snapshots[drop] : balanceCents;
+		int kept = chunkCount() - drop;
+		System.arraycopy(chunks, drop, chunks, 0, kept);
+		System.arraycopy(snapshots, drop, snapshots, 0, kept);
+		Arrays.fill(chunks, kept, kept + drop, null);
+		size -= drop * SNAPSHOT_INTERVAL;
+	}
+
+	private long lastEventMillis(int fullChunk) {
+		return chunks[fullChunk][(SNAPSHOT_INTERVAL - 1) * EVENT_LONGS];
+	}
+
+	private int chunkCount() {
+		return (size + SNAPSHOT_INTERVAL - 1) / SNAPSHOT_INTERVAL;
+	}
+
+	/**
+	 * Returns the balance after every change made at or before the given time.
+	 *
+	 * @param epochMillis the time, in epoch milliseconds
+	 * @return the balance in cents at that time
+	 * @throws IllegalArgumentException if the time is before the history starts
+	 */
+	long balanceAt(long epochMillis) {
+		if (epochMillis < startMillis) {
+			throw new IllegalArgumentException("No history before " + Instant.ofEpochMilli(startMillis) + ".");
+		}
+		// Last chunk whose first event is not after the time
+		int lo = 0;
+		int hi = chunkCount() - 1;
+		int found = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (chunks[mid][0] <= epochMillis) {
+				found = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		if (found < 0) {
+			return openingCents;
+		}
+		long balance = snapshots[found];
+		long[] events = chunks[found];
+		int end = Math.min(SNAPSHOT_INTERVAL, size - found * SNAPSHOT_INTERVAL) * EVENT_LONGS;
+		for (int i = 0; i < end && events[i] <= epochMillis; i += EVENT_LONGS) {
+			balance += events[i + 1];
+		}
+		return balance;
+	}
+
+	/**
+	 * Starts recording under the given policy, first dropping whatever it no
+	 * longer retains.
+	 */
+	void setPolicy(Policy policy) {
+		this.policy = policy;
+		retire(policy.now(), MAX_EVENTS);
+	}
+
+	/**
+	 * Returns a copy that later changes to this history do not affect. Full
+	 * chunks are shared and only the chunk being filled is copied, so the cost
+	 * grows with the number of chunks rather than events.
+	 */
+	AccountHistory copy() {
+		AccountHistory copy = new AccountHistory(policy, startMillis, openingCents);
+		int count = chunkCount();
+		copy.chunks = Arrays.copyOf(chunks, count);
+		copy.snapshots = Arrays.copyOf(snapshots, count);
+		if (size % SNAPSHOT_INTERVAL != 0) {
+			copy.chunks[count - 1] = chunks[count - 1].clone();
+		}
+		copy.size = size;
+		copy.balanceCents = balanceCents;
+		copy.lastMillis = lastMillis;
+		return copy;
+	}
+
+	/**
+	 * Writes the history: start time, opening balance, event count, then each
+	 * event's time and change.
+	 */
+	void writeTo(DataOutputStream out) throws IOException {
+		out.writeLong(startMillis);
+		out.writeLong(openingCents);
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			long[] events = chunks[i / SNAPSHOT_INTERVAL];
+			int offset = (i % SNAPSHOT_INTERVAL) * EVENT_LONGS;
+			out.writeLong(events[offset]);
+			out.writeLong(events[offset + 1]);
+		}
+	}
+
+	/**
+	 * Reads a history written by {@link #writeTo(DataOutputStream)}. It records
+	 * nothing until it is given a policy.
+	 *
+	 * @throws IOException if the history cannot be read
+	 */
+	static AccountHistory readFrom(DataInputStream in) throws IOException {
+		AccountHistory history = new AccountHistory(null, in.readLong(), in.readLong());
+		int events = in.readInt();
+		if (events < 0) {
+			throw new IOException("Invalid history length: " + events);
+		}
+		for (int i = 0; i < events; i++) {
+			history.append(in.readLong(), in.readLong());
+		}
+		return history;
+	}
+
+	/** @return when the history starts, in epoch milliseconds. */
+	long getStartMillis() {
+		return startMillis;
+	}
+
+	/** @return the balance after the last recorded change, in cents. */
+	long getBalanceCents() {
+		return balanceCents;
+	}
+
+	/** @return the number of changes kept. */
+	int size() {
+		return size;
+	}
+}
@@ -0,0 +1,36 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of formatted account summaries, in account-number order, returned by
+ * {@link Bank#getAccountSummaries(String, int)}.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class AccountPage {
+
+	private final List<String> rows;
+	private final String nextAccountNumber;
+
+	AccountPage(List<String> rows, String nextAccountNumber) {
+		this.rows = Collections.unmodifiableList(rows);
+		this.nextAccountNumber = nextAccountNumber;
+	}
+
+	/** @return the formatted summary rows on this page (may be empty) */
+	public List<String> getRows() {
+		return rows;
+	}
+
+	/** @return the account number the next page starts at, or null if this is the last page */
+	public String getNextAccountNumber() {
+		return nextAccountNumber;
+	}
+
+	/** @return true if more accounts follow this page */
+	public boolean hasNext() {
+		return nextAccountNumber != null;
+	}
+}
@@ -0,0 +1,619 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The account table shared by {@link MappedAccountStore} and
+ * {@link PagedAccountStore}: file header, fixed-size records, hash index and
+ * the account rules applied to them. The two stores differ only in how they
+ * reach the bytes of the file, which they supply through the get and put
+ * methods here.
+ *
+ * File layout:
+ * <pre>
+ *   header   (64 bytes)  magic, version, capacity, size, hash table length
+ *   table    (int each)  open-addressing hash index of slot + 1 (0 = empty)
+ *   records  (128 bytes) type, account number, customer ID, customer name,
+ *                        transaction count, balance in cents
+ * </pre>
+ * Each store decides where the table and the records start. Accounts occupy
+ * slots 0 to size - 1; removing one moves the last record into its slot.
+ *
+ * Every change to the records goes through {@link #update(long, byte[], int, int)}
+ * together with the new size, so a store can make the two one step. The index
+ * can always be rebuilt from the records ({@link #rebuildIndex(String)}).
+ *
+ * Deposits, withdrawals and monthly updates follow the same rules as the
+ * account classes. {@link #getAccount(String)} returns a live
+ * {@link AccountView} of one record, as {@link ColumnarAccountStore} does.
+ * Not thread-safe.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+abstract class AccountRecordStore implements Closeable {
+
+	/** Maximum UTF-8 length of an account number. */
+	public static final int MAX_ACCOUNT_NUMBER_BYTES = 32;
+	/** Maximum UTF-8 length of a customer ID. */
+	public static final int MAX_CUSTOMER_ID_BYTES = 32;
+	/** Maximum UTF-8 length of a customer name. */
+	public static final int MAX_CUSTOMER_NAME_BYTES = 47;
+
+	/** Largest capacity; its hash table, at least twice as long, must still be indexed by an int. */
+	public static final int MAX_CAPACITY = 1 << 29;
+
+	static final int HEADER_SIZE = 64;
+	static final int RECORD_SIZE = 128;
+
+	// Header field offsets
+	static final int H_MAGIC = 0;
+	static final int H_VERSION = 4;
+	static final int H_CAPACITY = 8;
+	static final int H_SIZE = 12;
+	static final int H_TABLE_LENGTH = 16;
+
+	// Record field offsets
+	private static final int R_TYPE = 0;
+	private static final int R_NUMBER = 1;
+	private static final int R_CUSTOMER_ID = R_NUMBER + 1 + MAX_ACCOUNT_NUMBER_BYTES;
+	private static final int R_CUSTOMER_NAME = R_CUSTOMER_ID + 1 + MAX_CUSTOMER_ID_BYTES;
+	private static final int R_TRANSACTIONS = R_CUSTOMER_NAME + 1 + MAX_CUSTOMER_NAME_BYTES;
+	private static final int R_BALANCE = R_TRANSACTIONS + 4;
+
+	private static final AccountType[] TYPES = AccountType.values();
+
+	private final int capacity;
+	private final int tableLength;
+	private final long tableOffset;
+	private final long recordsOffset;
+
+	/**
+	 * @param capacity maximum number of accounts
+	 * @param tableLength hash table length, from {@link #tableLength(int)}
+	 * @param tableOffset file position of the hash table
+	 * @param recordsOffset file position of the first record
+	 */
+	AccountRecordStore(int capacity, int tableLength, long tableOffset, long recordsOffset) {
+		this.capacity = capacity;
+		this.tableLength = tableLength;
+		this.tableOffset = tableOffset;
+		this.recordsOffset = recordsOffset;
+	}
+
+	/**
+	 * @param capacity maximum number of accounts
+	 * @return the hash table length for that capacity, keeping the load factor at most 1/2
+	 * @throws IllegalArgumentException if the capacity is not positive or above {@link #MAX_CAPACITY}
+	 */
+	static int tableLength(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		if (capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Capacity cannot exceed " + MAX_CAPACITY + ": " + capacity);
+		}
+		return Integer.highestOneBit(capacity * 2 - 1) * 2;
+	}
+
+	/** Writes the header of a new, empty store. */
+	void writeHeader(int magic, int version) {
+		putInt(H_MAGIC, magic);
+		putInt(H_VERSION, version);
+		putInt(H_CAPACITY, capacity);
+		putInt(H_SIZE, 0);
+		putInt(H_TABLE_LENGTH, tableLength);
+	}
+
+	/**
+	 * Reads and checks the header of a store file.
+	 *
+	 * @param what the kind of store, for messages
+	 * @return the header, with capacity, size and table length known to agree
+	 * @throws IOException if the file is not a store of this kind or its header is damaged
+	 */
+	static ByteBuffer readHeader(FileChannel channel, int magic, int version, String what, String filename)
+			throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+			// keep reading until the header is full or the file ends
+		}
+		if (header.hasRemaining() || header.getInt(H_MAGIC) != magic) {
+			throw new IOException("Not " + what + ": " + filename);
+		}
+		if (header.getInt(H_VERSION) != version) {
+			throw new IOException("Unsupported " + what + " version: " + header.getInt(H_VERSION));
+		}
+		int capacity = header.getInt(H_CAPACITY);
+		int size = header.getInt(H_SIZE);
+		if (capacity <= 0 || capacity > MAX_CAPACITY || header.getInt(H_TABLE_LENGTH) != tableLength(capacity)
+				|| size < 0 || size > capacity) {
+			throw new IOException("Damaged " + what + " header: capacity " + capacity + ", size " + size
+					+ ", table length " + header.getInt(H_TABLE_LENGTH) + ": " + filename);
+		}
+		return header;
+	}
+
+	/**
+	 * @param fileLength the length of the store file
+	 * @throws IOException if the file is too short to hold every record its header promises
+	 */
+	void checkLength(long fileLength, String filename) throws IOException {
+		if (fileLength < recordsEnd()) {
+			throw new IOException("Account store is " + fileLength + " bytes but its header needs "
+					+ recordsEnd() + "; the file was cut short: " + filename);
+		}
+	}
+
+	/** @return the file position just past the last record slot. */
+	long recordsEnd() {
+		return recordsOffset + (long) capacity * RECORD_SIZE;
+	}
+
+	// -------- Byte access, supplied by each store --------
+
+	abstract byte getByte(long position);
+
+	abstract int getInt(long position);
+
+	abstract void putInt(long position, int value);
+
+	abstract long getLong(long position);
+
+	abstract void putLong(long position, long value);
+
+	abstract void getBytes(long position, byte[] bytes);
+
+	abstract void putBytes(long position, byte[] bytes, int length);
+
+	// -------- Account operations --------
+
+	/** @return the number of accounts in the store. */
+	public int size() {
+		return getInt(H_SIZE);
+	}
+
+	/** @return the maximum number of accounts the store can hold. */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Creates a new account with a zero balance.
+	 *
+	 * @param type the account type
+	 * @param accountNumber the unique account number
+	 * @param customer the account owner
+	 * @throws IllegalArgumentException if inputs are invalid, too long, or the account number is in use
+	 * @throws IllegalStateException if the store is full
+	 */
+	public void createAccount(AccountType type, String accountNumber, Customer customer) {
+		if (type == null || accountNumber == null || accountNumber.isBlank() || customer == null) {
+			throw new IllegalArgumentException("Type, account number, and customer cannot be empty or null.");
+		}
+		byte[] number = encode(accountNumber.trim(), MAX_ACCOUNT_NUMBER_BYTES, "Account number");
+		byte[] id = encode(customer.getCustomerId(), MAX_CUSTOMER_ID_BYTES, "Customer ID");
+		byte[] name = encode(customer.getName(), MAX_CUSTOMER_NAME_BYTES, "Customer name");
+		if (find(number) >= 0) {
+			throw new IllegalArgumentException("Account number already exists: " + accountNumber.trim());
+		}
+		int slot = size();
+		if (slot == capacity) {
+			throw new IllegalStateException("Account store is full (capacity " + capacity + ").");
+		}
+		ByteBuffer image = ByteBuffer.allocate(RECORD_SIZE);
+		image.put(R_TYPE, (byte) (type.ordinal() + 1));
+		putString(image, R_NUMBER, number);
+		putString(image, R_CUSTOMER_ID, id);
+		putString(image, R_CUSTOMER_NAME, name);
+		update(record(slot), image.array(), slot + 1, 0);
+		index(slot, number);
+		changed();
+	}
+
+	/**
+	 * Removes an account. The last record is moved into its place.
+	 *
+	 * @param accountNumber the account number
+	 * @return true if removed, false if not found
+	 */
+	public boolean removeAccount(String accountNumber) {
+		int slot = find(accountNumber);
+		if (slot < 0) {
+			return false;
+		}
+		unindex(slot);
+		int last = size() - 1;
+		if (slot != last) {
+			unindex(last);
+			byte[] moved = new byte[RECORD_SIZE];
+			getBytes(record(last), moved);
+			update(record(slot), moved, last, 0);
+			index(slot, numberBytes(slot));
+		} else {
+			update(record(last), new byte[0], last, 0);
+		}
+		changed();
+		return true;
+	}
+
+	/**
+	 * Deposits into an account, with the same rules as {@link Account#deposit(double)}
+	 * but without a receipt.
+	 *
+	 * @param accountNumber the account number
+	 * @param amount the amount; must be positive
+	 * @return true if successful; false if the account was not found
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	public boolean deposit(String accountNumber, double amount) {
+		long cents = Account.requirePositiveCents(amount, "Deposit amount must be positive.");
+		int slot = find(accountNumber);
+		if (slot < 0) {
+			return false;
+		}
+		long rec = record(slot);
+		int transactions = getInt(rec + R_TRANSACTIONS);
+		if (typeAt(rec).countsTransactions()) {
+			transactions++;
+		}
+		updateState(slot, transactions, getLong(rec + R_BALANCE) + cents, 0);
+		changed();
+		return true;
+	}
+
+	/**
+	 * Withdraws from an account, with the same rules as the account type's
+	 * {@code withdraw} method but without a receipt.
+	 *
+	 * @param accountNumber the account number
+	 * @param amount the amount; must be positive
+	 * @return true if successful; false if the account was not found
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	public boolean withdraw(String accountNumber, double amount) {
+		long cents = Account.requirePositiveCents(amount, "Withdrawal amount must be positive.");
+		int slot = find(accountNumber);
+		if (slot < 0) {
+			return false;
+		}
+		long rec = record(slot);
+		AccountType type = typeAt(rec);
+		long balance = getLong(rec + R_BALANCE);
+		int transactions = getInt(rec + R_TRANSACTIONS);
+		if (type.countsTransactions()) {
+			transactions++;
+		}
+		updateState(slot, transactions, balance - type.withdrawalCents(cents, balance), 0);
+		changed();
+		return true;
+	}
+
+	/**
+	 * Applies monthly interest and fees to every account. Records are visited in
+	 * file order, so each page is read and written back at most once. Each
+	 * record's update carries the number of records done, so a store can resume
+	 * a month-end that was stopped part way.
+	 */
+	public void applyMonthlyUpdates() {
+		int size = size();
+		for (int slot = monthEndProgress(); slot < size; slot++) {
+			long rec = record(slot);
+			long balance = typeAt(rec).monthlyBalance(getLong(rec + R_BALANCE), getInt(rec + R_TRANSACTIONS));
+			updateState(slot, 0, balance, slot + 1);
+		}
+		monthEndDone();
+		changed();
+	}
+
+	/**
+	 * @param accountNumber the account number
+	 * @return the balance of the account, or NaN if not found
+	 */
+	public double getBalance(String accountNumber) {
+		int slot = find(accountNumber);
+		return slot < 0 ? Double.NaN : getLong(record(slot) + R_BALANCE) / 100.0;
+	}
+
+	/**
+	 * Returns a live view of one account; see {@link AccountView}. Creating one
+	 * reads nothing but the index. Its customer is read from the record on each
+	 * call, since the store keeps no Customer objects.
+	 *
+	 * @param accountNumber the account number
+	 * @return the view, or null if not found
+	 */
+	public AccountView getAccount(String accountNumber) {
+		int slot = find(accountNumber);
+		return slot < 0 ? null : new RecordView(numberBytes(slot), slot);
+	}
+
+	/** A live view of one record, reading and writing the store; see {@link AccountView}. */
+	private final class RecordView implements AccountView {
+		private final byte[] number;
+
+		/** Last known slot; records move when others are removed, so it is checked on each use. */
+		private int slot;
+
+		RecordView(byte[] number, int slot) {
+			this.number = number;
+			this.slot = slot;
+		}
+
+		/** @return the file position of the account's record. */
+		private long rec() {
+			if (slot >= size() || !numberEquals(slot, number)) {
+				slot = find(number);
+				if (slot < 0) {
+					throw new IllegalStateException("Account " + getAccountNumber() + " has been removed.");
+				}
+			}
+			return record(slot);
+		}
+
+		@Override
+		public String getAccountNumber() {
+			return new String(number, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public AccountType getType() {
+			return typeAt(rec());
+		}
+
+		@Override
+		public Customer getCustomer() {
+			long rec = rec();
+			return new Customer(getString(rec + R_CUSTOMER_ID), getString(rec + R_CUSTOMER_NAME));
+		}
+
+		@Override
+		public double getBalance() {
+			return getBalanceCents() / 100.0;
+		}
+
+		@Override
+		public long getBalanceCents() {
+			return getLong(rec() + R_BALANCE);
+		}
+
+		@Override
+		public int getTransactionCount() {
+			return getInt(rec() + R_TRANSACTIONS);
+		}
+
+		/** Deposits into the account; see {@link AccountRecordStore#deposit(String, double)}. */
+		@Override
+		public void deposit(double amount) {
+			rec();
+			AccountRecordStore.this.deposit(getAccountNumber(), amount);
+		}
+
+		/** Withdraws from the account; see {@link AccountRecordStore#withdraw(String, double)}. */
+		@Override
+		public void withdraw(double amount) {
+			rec();
+			AccountRecordStore.this.withdraw(getAccountNumber(), amount);
+		}
+
+		@Override
+		public String toString() {
+			return "Account: " + getAccountNumber() +
+					"\nAccount Owner: " + getCustomer() +
+					"\nBalance: " + Account.formatCents(getBalanceCents());
+		}
+	}
+
+	/**
+	 * Makes every change so far durable, as the store defines it.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	abstract void flush() throws IOException;
+
+	/**
+	 * @param slot a slot from 0 to size() - 1
+	 * @return the type of the account in the slot
+	 */
+	AccountType typeInSlot(int slot) {
+		return typeAt(record(slot));
+	}
+
+	/**
+	 * @param slot a slot from 0 to size() - 1
+	 * @return the balance in cents of the account in the slot
+	 */
+	long balanceCentsInSlot(int slot) {
+		return getLong(record(slot) + R_BALANCE);
+	}
+
+	/**
+	 * @param slot a slot from 0 to size() - 1
+	 * @return a live view of the account in the slot
+	 */
+	AccountView accountInSlot(int slot) {
+		return new RecordView(numberBytes(slot), slot);
+	}
+
+	/** Called after each operation that changed the store, once the change is complete. */
+	void changed() {
+	}
+
+	/**
+	 * Writes bytes of the records together with the new number of accounts and
+	 * month-end progress. Writes them in turn here; a store whose writes reach
+	 * the file as they are made overrides this to make them one step.
+	 *
+	 * @param position file position of the bytes
+	 * @param bytes the bytes to write there; may be empty
+	 * @param newSize the number of accounts after the change
+	 * @param monthEnd records done by the month-end this change belongs to, or 0
+	 */
+	void update(long position, byte[] bytes, int newSize, int monthEnd) {
+		putBytes(position, bytes, bytes.length);
+		putInt(H_SIZE, newSize);
+	}
+
+	/** @return the number of records a stopped month-end has already updated; 0 if none. */
+	int monthEndProgress() {
+		return 0;
+	}
+
+	/** Called once a month-end has updated every record. */
+	void monthEndDone() {
+	}
+
+	/** Writes an account's transaction count and balance, which sit side by side, as one update. */
+	private void updateState(int slot, int transactions, long balanceCents, int monthEnd) {
+		byte[] state = ByteBuffer.allocate(Integer.BYTES + Long.BYTES).putInt(transactions).putLong(balanceCents).array();
+		update(record(slot) + R_TRANSACTIONS, state, size(), monthEnd);
+	}
+
+	/**
+	 * Rebuilds the hash index from the records, checking each one.
+	 *
+	 * @throws IOException if a record is damaged or two records share an account number
+	 */
+	void rebuildIndex(String filename) throws IOException {
+		for (int i = 0; i < tableLength; i++) {
+			setTableEntry(i, 0);
+		}
+		int size = size();
+		for (int slot = 0; slot < size; slot++) {
+			long rec = record(slot);
+			int type = getByte(rec + R_TYPE);
+			int numberLength = getByte(rec + R_NUMBER);
+			int idLength = getByte(rec + R_CUSTOMER_ID);
+			int nameLength = getByte(rec + R_CUSTOMER_NAME);
+			if (type < 1 || type > TYPES.length || numberLength <= 0 || numberLength > MAX_ACCOUNT_NUMBER_BYTES
+					|| idLength < 0 || idLength > MAX_CUSTOMER_ID_BYTES
+					|| nameLength < 0 || nameLength > MAX_CUSTOMER_NAME_BYTES) {
+				throw new IOException("Account store record " + slot + " is damaged: " + filename);
+			}
+			byte[] number = numberBytes(slot);
+			if (find(number) >= 0) {
+				throw new IOException("Account store holds account "
+						+ new String(number, StandardCharsets.UTF_8) + " twice: " + filename);
+			}
+			index(slot, number);
+		}
+	}
+
+	// -------- Records and hash index --------
+
+	long record(int slot) {
+		return recordsOffset + (long) slot * RECORD_SIZE;
+	}
+
+	private AccountType typeAt(long rec) {
+		return TYPES[getByte(rec + R_TYPE) - 1];
+	}
+
+	private static byte[] encode(String value, int maxBytes, String field) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > maxBytes) {
+			throw new IllegalArgumentException(field + " is longer than " + maxBytes + " bytes.");
+		}
+		return bytes;
+	}
+
+	/** Writes a length-prefixed byte string into a record image. */
+	private static void putString(ByteBuffer image, int offset, byte[] bytes) {
+		image.put(offset, (byte) bytes.length);
+		image.put(offset + 1, bytes);
+	}
+
+	private String getString(long position) {
+		byte[] bytes = new byte[getByte(position)];
+		getBytes(position + 1, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private byte[] numberBytes(int slot) {
+		long position = record(slot) + R_NUMBER;
+		byte[] bytes = new byte[getByte(position)];
+		getBytes(position + 1, bytes);
+		return bytes;
+	}
+
+	/** @return true if the record in the slot has exactly this account number. */
+	private boolean numberEquals(int slot, byte[] number) {
+		long position = record(slot) + R_NUMBER;
+		if (getByte(position) != number.length) {
+			return false;
+		}
+		for (int i = 0; i < number.length; i++) {
+			if (getByte(position + 1 + i) != number[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int bucket(byte[] number) {
+		int h = 1;
+		for (byte b : number) {
+			h = 31 * h + b;
+		}
+		return (h ^ (h >>> 16)) & (tableLength - 1);
+	}
+
+	private int tableEntry(int i) {
+		return getInt(tableOffset + (long) i * Integer.BYTES);
+	}
+
+	private void setTableEntry(int i, int value) {
+		putInt(tableOffset + (long) i * Integer.BYTES, value);
+	}
+
+	private int find(String accountNumber) {
+		if (accountNumber == null) {
+			return -1;
+		}
+		byte[] number = accountNumber.getBytes(StandardCharsets.UTF_8);
+		return number.length > MAX_ACCOUNT_NUMBER_BYTES ? -1 : find(number);
+	}
+
+	/** @return the slot holding the account, or -1 if not found. */
+	private int find(byte[] number) {
+		int mask = tableLength - 1;
+		for (int i = bucket(number); tableEntry(i) != 0; i = (i + 1) & mask) {
+			int slot = tableEntry(i) - 1;
+			if (numberEquals(slot, number)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private void index(int slot, byte[] number) {
+		int mask = tableLength - 1;
+		int i = bucket(number);
+		while (tableEntry(i) != 0) {
+			i = (i + 1) & mask;
+		}
+		setTableEntry(i, slot + 1);
+	}
+
+	/** Removes a slot from the hash table, shifting later entries back to keep probes intact. */
+	private void unindex(int slot) {
+		int mask = tableLength - 1;
+		int i = bucket(numberBytes(slot));
+		while (tableEntry(i) != slot + 1) {
+			i = (i + 1) & mask;
+		}
+		int hole = i;
+		for (int j = (hole + 1) & mask; tableEntry(j) != 0; j = (j + 1) & mask) {
+			int home = bucket(numberBytes(tableEntry(j) - 1));
+			// Move the entry back if the hole lies between its home bucket and its position
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				setTableEntry(hole, tableEntry(j));
+				hole = j;
+			}
+		}
+		setTableEntry(hole, 0);
+	}
+}
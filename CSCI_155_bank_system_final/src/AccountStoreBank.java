@@ -0,0 +1,334 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The bank operations on accounts kept in an {@link AccountRecordStore}: a
+ * {@link MappedAccountStore} or a {@link PagedAccountStore}. Lets the front
+ * ends run on a store file instead of an in-memory {@link Bank}.
+ *
+ * The stores are not thread-safe, so every operation holds one lock; a
+ * ReentrantLock rather than a monitor, so virtual threads waiting for it do
+ * not pin their carriers. Statistics are not kept as the accounts change but
+ * computed by scanning the store when asked, so they cost time in proportion
+ * to the number of accounts. Views returned by {@link #getLargestAccount()}
+ * take the lock too.
+ *
+ * Unlike Bank there is no journal, receipts, balance history or customer
+ * registry: each account keeps the customer it was created with, and changes
+ * become durable at {@link #flush()} and {@link #close()} as the store
+ * defines. A transfer is two updates of the store; both are made or, if the
+ * source lacks funds, neither, but a crash between them can keep only the
+ * withdrawal.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class AccountStoreBank implements BankOperations, Closeable {
+
+	private final AccountRecordStore store;
+
+	/** Held by every operation on the store. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Constructs a bank on an open store; closing the bank closes the store.
+	 *
+	 * @param store the store holding the accounts
+	 */
+	AccountStoreBank(AccountRecordStore store) {
+		if (store == null) {
+			throw new IllegalArgumentException("Store cannot be null.");
+		}
+		this.store = store;
+	}
+
+	/** Runs an action holding the lock and returns its result. */
+	private <T> T locked(Supplier<T> action) {
+		lock.lock();
+		try {
+			return action.get();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Creates a new account with a zero balance.
+	 *
+	 * @throws IllegalArgumentException also if the store is full, or a text field
+	 *         is longer than the store allows
+	 */
+	@Override
+	public void createAccount(String type, String accountNumber, Customer customer) {
+		if (type == null || type.isBlank()) {
+			throw new IllegalArgumentException("Type, account number, and customer cannot be empty or null.");
+		}
+		AccountType accountType;
+		try {
+			accountType = AccountType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid account type: " + type);
+		}
+		locked(() -> {
+			try {
+				store.createAccount(accountType, accountNumber, customer);
+			} catch (IllegalStateException e) {
+				// A full store is a rejected create for the front ends, like a duplicate number
+				throw new IllegalArgumentException(e.getMessage(), e);
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public boolean removeAccount(String accountNumber) {
+		return locked(() -> store.removeAccount(accountNumber));
+	}
+
+	@Override
+	public boolean deposit(String accountNumber, double amount) {
+		return locked(() -> store.deposit(accountNumber, amount));
+	}
+
+	@Override
+	public boolean withdraw(String accountNumber, double amount) {
+		return locked(() -> store.withdraw(accountNumber, amount));
+	}
+
+	@Override
+	public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+		long cents = Account.requirePositiveCents(amount, "Transfer amount must be positive.");
+		if (fromAccountNumber == null || toAccountNumber == null) {
+			return false;
+		}
+		if (fromAccountNumber.equals(toAccountNumber)) {
+			throw new IllegalArgumentException("Cannot transfer to the same account.");
+		}
+		return locked(() -> {
+			AccountView from = store.getAccount(fromAccountNumber);
+			AccountView to = store.getAccount(toAccountNumber);
+			if (from == null || to == null) {
+				return false;
+			}
+			if (from.getType().withdrawalCents(cents, from.getBalanceCents()) < cents) {
+				throw new IllegalArgumentException("Insufficient funds in account " + fromAccountNumber + ".");
+			}
+			from.withdraw(cents / 100.0);
+			to.deposit(cents / 100.0);
+			return true;
+		});
+	}
+
+	@Override
+	public BatchResult applyBatch(TransactionBatch batch) {
+		byte[] statuses = new byte[batch.size()];
+		return locked(() -> {
+			long deposited = 0;
+			long withdrawn = 0;
+			int failed = 0;
+			for (int row = 0; row < statuses.length; row++) {
+				long cents = batch.amountCentsAt(row);
+				AccountView acc = store.getAccount(batch.accountNumberAt(row));
+				if (acc == null) {
+					statuses[row] = BatchResult.ACCOUNT_NOT_FOUND;
+					failed++;
+				} else if (cents <= 0) {
+					statuses[row] = BatchResult.INVALID_AMOUNT;
+					failed++;
+				} else if (batch.typeAt(row) == TransactionBatch.DEPOSIT) {
+					acc.deposit(cents / 100.0);
+					deposited += cents;
+				} else {
+					long before = acc.getBalanceCents();
+					acc.withdraw(cents / 100.0);
+					long taken = before - acc.getBalanceCents();
+					withdrawn += taken;
+					if (taken < cents) {
+						statuses[row] = BatchResult.PARTIAL_WITHDRAWAL;
+					}
+				}
+			}
+			return new BatchResult(statuses, deposited, withdrawn, failed);
+		});
+	}
+
+	@Override
+	public String displayAccountInfo(String accountNumber) {
+		return locked(() -> {
+			AccountView acc = store.getAccount(accountNumber);
+			return acc == null ? "Account: " + accountNumber + " not found." : acc.toString();
+		});
+	}
+
+	@Override
+	public void applyMonthlyUpdates() {
+		locked(() -> {
+			store.applyMonthlyUpdates();
+			return null;
+		});
+	}
+
+	@Override
+	public long getAccountCount() {
+		return locked(() -> (long) store.size());
+	}
+
+	@Override
+	public long getAccountCount(AccountType type) {
+		return locked(() -> {
+			long count = 0;
+			for (int slot = 0, size = store.size(); slot < size; slot++) {
+				count += store.typeInSlot(slot) == type ? 1 : 0;
+			}
+			return count;
+		});
+	}
+
+	@Override
+	public double getTotalBalance() {
+		return locked(() -> {
+			long cents = 0;
+			for (int slot = 0, size = store.size(); slot < size; slot++) {
+				cents += store.balanceCentsInSlot(slot);
+			}
+			return cents / 100.0;
+		});
+	}
+
+	@Override
+	public double getTotalBalance(AccountType type) {
+		return locked(() -> {
+			long cents = 0;
+			for (int slot = 0, size = store.size(); slot < size; slot++) {
+				if (store.typeInSlot(slot) == type) {
+					cents += store.balanceCentsInSlot(slot);
+				}
+			}
+			return cents / 100.0;
+		});
+	}
+
+	@Override
+	public double getAverageBalance() {
+		return locked(() -> {
+			int size = store.size();
+			return size == 0 ? 0.0 : getTotalBalance() / size;
+		});
+	}
+
+	@Override
+	public int getZeroBalanceCount() {
+		return locked(() -> {
+			int count = 0;
+			for (int slot = 0, size = store.size(); slot < size; slot++) {
+				count += store.balanceCentsInSlot(slot) == 0 ? 1 : 0;
+			}
+			return count;
+		});
+	}
+
+	@Override
+	public AccountView getLargestAccount() {
+		return locked(() -> {
+			int best = -1;
+			long bestCents = Long.MIN_VALUE;
+			for (int slot = 0, size = store.size(); slot < size; slot++) {
+				long cents = store.balanceCentsInSlot(slot);
+				if (cents > bestCents) {
+					best = slot;
+					bestCents = cents;
+				}
+			}
+			return best < 0 ? null : new LockedView(store.accountInSlot(best));
+		});
+	}
+
+	/**
+	 * Makes every change so far durable, as the store defines it.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	public void flush() throws IOException {
+		lock.lock();
+		try {
+			store.flush();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Flushes and closes the store. */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			store.close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** A view of a store record that holds the bank's lock for each call. */
+	private final class LockedView implements AccountView {
+		private final AccountView view;
+
+		LockedView(AccountView view) {
+			this.view = view;
+		}
+
+		@Override
+		public String getAccountNumber() {
+			return view.getAccountNumber();
+		}
+
+		@Override
+		public AccountType getType() {
+			return locked(view::getType);
+		}
+
+		@Override
+		public Customer getCustomer() {
+			return locked(view::getCustomer);
+		}
+
+		@Override
+		public double getBalance() {
+			return locked(view::getBalance);
+		}
+
+		@Override
+		public long getBalanceCents() {
+			return locked(view::getBalanceCents);
+		}
+
+		@Override
+		public int getTransactionCount() {
+			return locked(view::getTransactionCount);
+		}
+
+		@Override
+		public void deposit(double amount) {
+			locked(() -> {
+				view.deposit(amount);
+				return null;
+			});
+		}
+
+		@Override
+		public void withdraw(double amount) {
+			locked(() -> {
+				view.withdraw(amount);
+				return null;
+			});
+		}
+
+		@Override
+		public String toString() {
+			return locked(view::toString);
+		}
+	}
+}
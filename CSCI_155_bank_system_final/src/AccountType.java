@@ -0,0 +1,84 @@
+/**
+ * The kinds of account the bank offers.
+ *
+ * Each type also applies its account class's rules to a plain balance and
+ * transaction count, for stores that keep accounts as records rather than
+ * Account objects ({@link ColumnarAccountStore}, {@link AccountRecordStore}).
+ * The rules themselves live in the account classes.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public enum AccountType {
+	CHECKING("Checking") {
+		@Override
+		long withdrawalCents(long requestedCents, long balanceCents) {
+			return Account.cappedWithdrawal(requestedCents, balanceCents);
+		}
+
+		@Override
+		boolean countsTransactions() {
+			return true;
+		}
+
+		@Override
+		long monthlyBalance(long balanceCents, int transactionCount) {
+			return balanceCents - CheckingAccount.monthlyFeeCents(transactionCount);
+		}
+	},
+	GOLD("Gold") {
+		/** Gold accounts allow overdrafts. */
+		@Override
+		long withdrawalCents(long requestedCents, long balanceCents) {
+			return requestedCents;
+		}
+
+		@Override
+		long monthlyBalance(long balanceCents, int transactionCount) {
+			return GoldAccount.monthlyBalance(balanceCents);
+		}
+	},
+	REGULAR("Regular") {
+		@Override
+		long withdrawalCents(long requestedCents, long balanceCents) {
+			return Account.cappedWithdrawal(requestedCents, balanceCents);
+		}
+
+		@Override
+		long monthlyBalance(long balanceCents, int transactionCount) {
+			return RegularAccount.monthlyBalance(balanceCents);
+		}
+	};
+
+	/** Display name, e.g. "Checking". */
+	private final String displayName;
+
+	AccountType(String displayName) {
+		this.displayName = displayName;
+	}
+
+	/** @return the display name of this type */
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	/**
+	 * @param requestedCents cents requested; positive
+	 * @param balanceCents balance before the withdrawal
+	 * @return the cents a withdrawal takes from that balance under this type's rules
+	 */
+	abstract long withdrawalCents(long requestedCents, long balanceCents);
+
+	/** @return true if deposits and withdrawals count toward a monthly transaction fee */
+	boolean countsTransactions() {
+		return false;
+	}
+
+	/**
+	 * @param balanceCents balance at the end of the month
+	 * @param transactionCount transactions made during the month
+	 * @return the balance after the month's interest or fees; the transaction count then starts again at 0
+	 */
+	abstract long monthlyBalance(long balanceCents, int transactionCount);
+}
@@ -0,0 +1,52 @@
+/**
+ * One account as every account store presents it: an {@link Account} in a
+ * {@link Bank}, or a record in a {@link ColumnarAccountStore} or an
+ * {@link AccountRecordStore}. A view is live: it always shows the account's
+ * current state, and deposits and withdrawals made through it change the
+ * account in its store.
+ *
+ * Views of store records follow their account number, so they keep working
+ * while other accounts are added or removed, and fail with an
+ * IllegalStateException once their own account has been removed. They are as
+ * thread-safe as their store.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public interface AccountView {
+
+	/** @return the account number */
+	String getAccountNumber();
+
+	/** @return the kind of account */
+	AccountType getType();
+
+	/** @return the customer who owns the account */
+	Customer getCustomer();
+
+	/** @return the current balance */
+	double getBalance();
+
+	/** @return the current balance in cents */
+	long getBalanceCents();
+
+	/** @return transactions counted toward this month's fees; 0 for accounts without them */
+	int getTransactionCount();
+
+	/**
+	 * Deposits into the account, with the rules of its type.
+	 *
+	 * @param amount the amount; must be at least one cent
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	void deposit(double amount);
+
+	/**
+	 * Withdraws from the account, with the rules of its type.
+	 *
+	 * @param amount the amount; must be at least one cent
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	void withdraw(double amount);
+}
@@ -0,0 +1,194 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A receipt sink that hands receipts to a background writer thread, so callers
+ * never wait on console or file I/O.
+ *
+ * Receipts are queued in a bounded queue. Callers may hold account and bank
+ * locks when they send a receipt, so when the queue is full the receipt is
+ * dropped rather than making the caller, and everything waiting for its
+ * locks, wait for the writer. The writer drains receipts in batches into a
+ * buffered stream and flushes whenever the queue runs empty.
+ *
+ * If the writer stops because writing failed, every later call fails at once
+ * with that error. Receipts dropped because the queue was full, or still
+ * queued when the writer stopped, are counted ({@link #getDroppedCount()})
+ * and reported by {@link #close()}.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class AsyncReceiptSink implements ReceiptSink, Closeable {
+
+	/** Marks the end of the queue on close. */
+	private static final String END = new String("END");
+
+	/** How often {@link #close()}, waiting for space for the end marker, checks that the writer is still running. */
+	private static final long WAIT_CHECK_MILLIS = 100;
+
+	private final BlockingQueue<String> queue;
+	private final Writer out;
+	private final Thread writer;
+	private volatile boolean closed;
+	private volatile IOException failure;
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Constructs a sink writing to standard output.
+	 *
+	 * @param capacity maximum number of receipts waiting to be written; must be positive
+	 */
+	public AsyncReceiptSink(int capacity) {
+		this(System.out, capacity);
+	}
+
+	/**
+	 * Constructs a sink writing to the given stream.
+	 *
+	 * @param stream where receipts are written; not closed by this sink
+	 * @param capacity maximum number of receipts waiting to be written; must be positive
+	 */
+	public AsyncReceiptSink(OutputStream stream, int capacity) {
+		if (stream == null) {
+			throw new IllegalArgumentException("Output stream cannot be null.");
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+		this.writer = new Thread(this::writeLoop, "receipt-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Queues a receipt without waiting, or drops and counts it if the queue is full.
+	 *
+	 * @throws IllegalStateException if the sink is closed
+	 * @throws UncheckedIOException if the writer has stopped because writing failed
+	 */
+	@Override
+	public void accept(String receipt) {
+		if (closed) {
+			throw new IllegalStateException("Receipt sink is closed.");
+		}
+		try {
+			checkWriter();
+			if (!queue.offer(receipt)) {
+				dropped.incrementAndGet();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Receipt writer failed.", e);
+		}
+	}
+
+	/**
+	 * Adds the end marker to the queue, waiting for space while the writer is running.
+	 *
+	 * @throws IOException the writer's failure, if it has stopped
+	 * @throws InterruptedException if interrupted while waiting for space
+	 */
+	private void enqueueEnd() throws IOException, InterruptedException {
+		checkWriter();
+		while (!queue.offer(END, WAIT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+			checkWriter();
+		}
+		checkWriter(); // the writer may have stopped before taking the marker
+	}
+
+	/** @throws IOException the writer's failure, if it has stopped */
+	private void checkWriter() throws IOException {
+		IOException e = failure;
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	/** @return the number of receipts dropped because the queue was full or the writer had stopped. */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/** Writes queued receipts until the end marker is seen. */
+	private void writeLoop() {
+		List<String> batch = new ArrayList<>();
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for (String receipt : batch) {
+					if (receipt == END) {
+						out.flush();
+						return;
+					}
+					out.write(receipt);
+					out.write(System.lineSeparator());
+				}
+				batch.clear();
+				if (queue.isEmpty()) {
+					out.flush();
+				}
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			failure = new IOException("Receipt writer was interrupted.", e);
+		} catch (RuntimeException | Error e) {
+			failure = new IOException("Receipt writer failed.", e);
+			throw e;
+		} finally {
+			discardQueued(); // wakes close() if it is waiting for space; it then sees the failure
+		}
+	}
+
+	/** Empties the queue, counting the receipts in it as dropped. */
+	private void discardQueued() {
+		List<String> left = new ArrayList<>();
+		queue.drainTo(left);
+		left.remove(END);
+		dropped.addAndGet(left.size());
+	}
+
+	/**
+	 * Writes all queued receipts, then stops the writer thread. Returns at once
+	 * with the writer's failure if it has already stopped. Dropped receipts are
+	 * not an error, but their number is printed to standard error.
+	 *
+	 * @throws IOException if writing receipts failed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			enqueueEnd();
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted before all receipts were written.", e);
+		}
+		discardQueued(); // receipts sent while closing, after the end marker
+		checkWriter();
+		long lost = dropped.get();
+		if (lost > 0) {
+			System.err.println(lost + " receipts were dropped because the receipt queue was full.");
+		}
+	}
+}
@@ -1,13 +1,27 @@
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Represents a bank containing customer accounts and provides core operations
@@ -16,20 +30,105 @@ import java.util.List;
  * 
  * This class is the central logic manager for the system.
  * 
+ * Bank is thread-safe. Account balances are updated lock-free, so operations on
+ * any accounts run in parallel. When a journal is attached, each account's lock
+ * ({@link Account#getLock()}) is also held while its change is applied and
+ * recorded, so journal order matches the order changes were made. Transfers always
+ * hold the locks of both their accounts, taken in account-number order so they
+ * cannot deadlock. These are ReentrantLocks rather than monitors, so virtual
+ * threads blocked on the journal or a receipt sink while holding one do not pin
+ * their carrier threads. Deposits,
+ * withdrawals, transfers and account creation share a read lock;
+ * applyMonthlyUpdates and removeAccount take the write lock so they see no
+ * operation half-done. Saves and checkpoints take the write lock only for an
+ * instant to mark their cut, then write a copy-on-write view of the accounts while
+ * operations continue (see {@link BankCheckpoint}).
+ * 
+ * While a journal is attached the bank also keeps a balance history for every
+ * account ({@link #getBalanceAt(String, long)}), saved with the snapshots and
+ * rebuilt from the journal with the times it noted.
+ * 
  * @author Red Team
  * @version 1.0
  * @since 2025-08-08
  */
 
-public class Bank implements Serializable {
-	private static final long serialVersionUID = 1L;
+public class Bank implements BankOperations {
+	
+	/** All accounts in the bank, indexed by account number. */
+	private final Map<String, Account> accounts;
+	
+	/** The same accounts, kept sorted by account number for listings. */
+	private final NavigableMap<String, Account> sortedAccounts;
+	
+	/** Registered customers by customer ID; all accounts of a customer share one instance. */
+	private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+	
+	/** Account numbers owned by each customer, by customer ID. */
+	private final Map<String, Set<String>> accountsByCustomer = new ConcurrentHashMap<>();
+	
+	/** Registered customers by name, for prefix search. */
+	private final CustomerNameIndex customerNames = new CustomerNameIndex();
+	
+	/** Aggregates kept up to date as accounts and balances change. */
+	private final BankStatistics statistics;
+	
+	/** Shared by per-account operations; held exclusively by bank-wide operations. */
+	private final ReadWriteLock operationLock = new ReentrantReadWriteLock();
+	
+	/** Optional write-ahead journal that records every change; null if not journaling. */
+	private BankJournal journal;
+	
+	/** True while a journal is replayed; replayed deposits and withdrawals produce no receipts. */
+	private volatile boolean replaying;
+	
+	/** Retention and clock of account histories; set once a journal is attached, null before. */
+	private volatile AccountHistory.Policy historyPolicy;
+	
+	/** Histories read with the snapshot, held until a journal is attached and they start recording again. */
+	private final Map<Account, AccountHistory> loadedHistories = new ConcurrentHashMap<>();
+	
+	/** Generation of the last snapshot; a journal only replays onto a matching snapshot. */
+	private long journalGeneration;
+	
+	/** Checkpoint currently capturing the accounts, or null; changed under the write lock. */
+	private volatile BankCheckpoint checkpoint;
+	
+	/** Number of checkpoints started; guarded by the write lock. */
+	private long checkpointEpoch;
+	
+	/** Lets one save or checkpoint run at a time. */
+	private final Semaphore checkpointPermit = new Semaphore(1);
+	
+	/** How long account histories are kept unless {@link #attachJournal(BankJournal, Duration)} says otherwise. */
+	public static final Duration DEFAULT_HISTORY_RETENTION = Duration.ofDays(400);
+	
+	/** Number of deltas written before a background compaction merges them into the snapshot. */
+	private static final int COMPACT_AFTER_DELTAS = 8;
 	
-	/** List of all accounts in the bank. */
-	private final List<Account> accounts;
+	/** Accounts changed since the last save; replaced at each save's cut. */
+	private volatile Set<Account> dirtyAccounts = ConcurrentHashMap.newKeySet();
+	
+	/** Numbers of accounts removed since the last save; replaced at each save's cut. */
+	private volatile Set<String> removedAccountNumbers = ConcurrentHashMap.newKeySet();
+	
+	/** Generation of the last save a delta can build on, or -1 if a full save is needed; guarded by checkpointPermit. */
+	private long savedGeneration = -1;
+	
+	/** Deltas written since the last full snapshot or compaction; guarded by checkpointPermit. */
+	private int deltasSinceSnapshot;
+	
+	/** True while a background compaction is running. */
+	private final AtomicBoolean compacting = new AtomicBoolean();
+	
+	/** Counts and latencies of the operations on this bank. */
+	private final BankMetrics metrics = new BankMetrics();
 	
 	/** Constructs a new Bank with no accounts. */
 	public Bank() {
-		this.accounts = new ArrayList<>();
+		this.accounts = new ConcurrentHashMap<>();
+		this.sortedAccounts = new ConcurrentSkipListMap<>();
+		this.statistics = new BankStatistics(accounts.values());
 	}
 	
 	/**
@@ -37,28 +136,253 @@ public class Bank implements Serializable {
 	 * 
 	 * @param type "checking", "gold", "regular" (case-insensitive)
 	 * @param accountNumber The unique account number. 
-	 * @param customer The customer who owns the account.
-	 * @throws IllegalArgumentException if type is invalid or inputs are null/empty
+	 * @param customer The customer who owns the account. If a customer with the same
+	 *        ID is already registered, the registered instance is used instead.
+	 * @throws IllegalArgumentException if type is invalid, inputs are null/empty,
+	 *         or the account number is already in use
 	 */
+	@Override
 	public void createAccount(String type, String accountNumber, Customer customer) {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			createAccountUnmetered(type, accountNumber, customer);
+			succeeded = true;
+		} finally {
+			metrics.record(BankMetrics.Operation.CREATE_ACCOUNT, start, succeeded);
+		}
+	}
+	
+	/**
+	 * Creates the account; see {@link #createAccount(String, String, Customer)}.
+	 * Not counted in the metrics, so journal replay uses it too.
+	 */
+	void createAccountUnmetered(String type, String accountNumber, Customer customer) {
 		if (type == null || type.isBlank() || accountNumber == null || accountNumber.isBlank() || customer == null) {
 			throw new IllegalArgumentException("Type, account number, and customer cannot be empty or null.");
 		}
-		Account newAccount;
+		long seq = 0;
+		operationLock.readLock().lock();
+		try {
+			// Creates for one customer reserve their account numbers one at a time here, so they agree
+			// on the registered instance. Publishing and journaling happen after, outside the map's lock.
+			Account[] created = new Account[1];
+			boolean[] newCustomer = new boolean[1];
+			accountsByCustomer.compute(customer.getCustomerId(), (customerId, owned) -> {
+				Customer registered = customers.get(customerId);
+				created[0] = newAccount(type, accountNumber, registered != null ? registered : customer);
+				if (owned != null && owned.contains(accountNumber)) {
+					throw new IllegalArgumentException("Account number already exists: " + accountNumber);
+				}
+				if (registered == null) {
+					newCustomer[0] = true;
+					registerCustomer(customer);
+				}
+				Set<String> numbers = owned != null ? owned : ConcurrentHashMap.newKeySet();
+				numbers.add(accountNumber);
+				return numbers;
+			});
+			Account newAccount = created[0];
+			try {
+				// Lock the new account so no deposit to it can be journaled before its creation
+				Lock lock = newAccount.getLock();
+				lock.lock();
+				try {
+					publish(newAccount);
+					if (journal != null) {
+						try {
+							seq = journal.logCreate(type, accountNumber, newAccount.getCustomer());
+						} catch (RuntimeException e) {
+							unpublish(newAccount);
+							throw e;
+						}
+					}
+				} finally {
+					lock.unlock();
+				}
+			} catch (RuntimeException e) {
+				releaseReservation(newAccount, newCustomer[0]);
+				throw e;
+			}
+		} finally {
+			operationLock.readLock().unlock();
+		}
+		commit(seq);
+	}
+	
+	/**
+	 * Gives back the account number a failed create reserved for its customer,
+	 * and unregisters the customer if that create registered them and they own
+	 * nothing else.
+	 */
+	private void releaseReservation(Account account, boolean registeredByCreate) {
+		Customer owner = account.getCustomer();
+		accountsByCustomer.computeIfPresent(owner.getCustomerId(), (customerId, owned) -> {
+			owned.remove(account.getAccountNumber());
+			if (!owned.isEmpty()) {
+				return owned;
+			}
+			if (registeredByCreate && customers.remove(customerId, owner)) {
+				customerNames.remove(owner);
+			}
+			return null;
+		});
+	}
+	
+	/**
+	 * @param type "checking", "gold", "regular" (case-insensitive)
+	 * @return a new account of that type with a zero balance.
+	 * @throws IllegalArgumentException if type is invalid
+	 */
+	private static Account newAccount(String type, String accountNumber, Customer owner) {
 		switch (type.toLowerCase()) {
 		case "checking":
-			newAccount = new CheckingAccount(accountNumber, customer);
-			break;
+			return new CheckingAccount(accountNumber, owner);
 		case "gold":
-			newAccount = new GoldAccount(accountNumber, customer);
-			break;
+			return new GoldAccount(accountNumber, owner);
 		case "regular":
-			newAccount = new RegularAccount(accountNumber, customer);
-			break;
+			return new RegularAccount(accountNumber, owner);
 		default:
 			throw new IllegalArgumentException("Invalid account type: " + type);
 		}
-		accounts.add(newAccount);
+	}
+	
+	/**
+	 * Adds an already constructed account to the bank and registers its owner.
+	 * 
+	 * @param account the account to add.
+	 * @throws IllegalArgumentException if the account number is already in use
+	 */
+	void addAccount(Account account) {
+		publish(account);
+		Customer owner = account.getCustomer();
+		registerCustomer(owner);
+		accountsByCustomer.computeIfAbsent(owner.getCustomerId(), id -> ConcurrentHashMap.newKeySet())
+				.add(account.getAccountNumber());
+	}
+	
+	/**
+	 * Makes an account findable by number and counts it in the statistics,
+	 * checkpoint and next delta.
+	 * 
+	 * @param account the account to publish.
+	 * @throws IllegalArgumentException if the account number is already in use;
+	 *         nothing is changed then
+	 */
+	private void publish(Account account) {
+		BankCheckpoint cp = checkpoint;
+		if (cp != null) {
+			cp.accountAdded(account);
+		}
+		// Track the account before publishing it, so no balance change is missed
+		AccountHistory.Policy policy = historyPolicy;
+		if (policy != null) {
+			account.startHistory(policy);
+		}
+		statistics.accountAdded(account);
+		if (accounts.putIfAbsent(account.getAccountNumber(), account) != null) {
+			// Never published, so nobody else saw the steps above; undo them
+			statistics.accountRemoved(account);
+			if (cp != null) {
+				cp.accountRejected(account);
+			}
+			throw new IllegalArgumentException("Account number already exists: " + account.getAccountNumber());
+		}
+		dirtyAccounts.add(account);
+		sortedAccounts.put(account.getAccountNumber(), account);
+	}
+	
+	/**
+	 * Undoes {@link #publish(Account)} for an account whose creation failed after
+	 * it was published. The caller still holds the read lock it published under,
+	 * so no save has cut since.
+	 * 
+	 * @param account the account to take back.
+	 */
+	private void unpublish(Account account) {
+		if (!accounts.remove(account.getAccountNumber(), account)) {
+			return;
+		}
+		sortedAccounts.remove(account.getAccountNumber(), account);
+		dirtyAccounts.remove(account);
+		statistics.accountRemoved(account);
+		BankCheckpoint cp = checkpoint;
+		if (cp != null) {
+			cp.accountRejected(account);
+		}
+	}
+	
+	/**
+	 * Registers a customer, or returns the already registered customer with the same ID.
+	 * 
+	 * @param customer the customer to register.
+	 * @return the shared customer instance for that customer ID.
+	 */
+	public Customer registerCustomer(Customer customer) {
+		Customer existing = customers.putIfAbsent(customer.getCustomerId(), customer);
+		if (existing != null) {
+			return existing;
+		}
+		customerNames.add(customer);
+		return customer;
+	}
+	
+	/**
+	 * Finds the accounts of customers whose name starts with the given prefix,
+	 * ignoring case. Results follow customer name order, then account number.
+	 * 
+	 * @param namePrefix the start of the owner's name; must not be null.
+	 * @param limit maximum number of accounts to return; must be positive.
+	 * @return the matching accounts (may be empty).
+	 * @throws IllegalArgumentException if namePrefix is null or limit is not positive.
+	 */
+	public List<Account> findAccountsByCustomerName(String namePrefix, int limit) {
+		if (namePrefix == null) {
+			throw new IllegalArgumentException("Name prefix cannot be null.");
+		}
+		if (limit <= 0) {
+			throw new IllegalArgumentException("Limit must be positive.");
+		}
+		List<Account> matches = new ArrayList<>();
+		for (Customer customer : customerNames.find(namePrefix, limit)) {
+			for (String accountNumber : getAccountNumbersForCustomer(customer.getCustomerId())) {
+				Account acc = findAccount(accountNumber);
+				if (acc != null) {
+					matches.add(acc);
+					if (matches.size() == limit) {
+						return matches;
+					}
+				}
+			}
+		}
+		return matches;
+	}
+	
+	/**
+	 * @param customerId the customer ID.
+	 * @return the registered customer, or null if none has that ID.
+	 */
+	public Customer getCustomer(String customerId) {
+		return customerId == null ? null : customers.get(customerId);
+	}
+	
+	/**
+	 * @param customerId the customer ID.
+	 * @return the account numbers owned by the customer, sorted (empty if none).
+	 */
+	public List<String> getAccountNumbersForCustomer(String customerId) {
+		Set<String> owned = customerId == null ? null : accountsByCustomer.get(customerId);
+		if (owned == null) {
+			return Collections.emptyList();
+		}
+		List<String> numbers = new ArrayList<>(owned);
+		Collections.sort(numbers);
+		return Collections.unmodifiableList(numbers);
+	}
+	
+	/** @return a read-only view of all accounts. */
+	Collection<Account> getAccounts() {
+		return Collections.unmodifiableCollection(accounts.values());
 	}
 	
 	/**
@@ -67,12 +391,54 @@ public class Bank implements Serializable {
 	 * @param accountNumber the account number to remove.
 	 * @return true if removed successfully, false if not.
 	 */
+	@Override
 	public boolean removeAccount(String accountNumber) {
-		Account acc = findAccount(accountNumber);
-		if (acc != null) {
-			return accounts.remove(acc);
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			succeeded = removeAccountUnmetered(accountNumber);
+			return succeeded;
+		} finally {
+			metrics.record(BankMetrics.Operation.REMOVE_ACCOUNT, start, succeeded);
 		}
-		return false;
+	}
+	
+	/** Removes the account, uncounted in the metrics; see {@link #removeAccount(String)}. */
+	boolean removeAccountUnmetered(String accountNumber) {
+		long seq = 0;
+		boolean removed;
+		operationLock.writeLock().lock();
+		try {
+			Account acc = accounts.remove(accountNumber);
+			removed = acc != null;
+			if (removed) {
+				BankCheckpoint cp = checkpoint;
+				if (cp != null) {
+					cp.accountRemoved(acc);
+				}
+				dirtyAccounts.remove(acc);
+				loadedHistories.remove(acc);
+				removedAccountNumbers.add(accountNumber);
+				sortedAccounts.remove(accountNumber);
+				statistics.accountRemoved(acc);
+				String customerId = acc.getCustomer().getCustomerId();
+				Set<String> owned = accountsByCustomer.get(customerId);
+				if (owned != null && owned.remove(accountNumber) && owned.isEmpty()) {
+					accountsByCustomer.remove(customerId);
+					Customer gone = customers.remove(customerId);
+					if (gone != null) {
+						customerNames.remove(gone);
+					}
+				}
+			}
+			if (removed && journal != null) {
+				seq = journal.logRemove(accountNumber);
+			}
+		} finally {
+			operationLock.writeLock().unlock();
+		}
+		commit(seq);
+		return removed;
 	}
 	
 	/**
@@ -82,13 +448,45 @@ public class Bank implements Serializable {
 	 * @param amount The amount to deposit.
 	 * @return true if successful; false if account not found.
 	 */
+	@Override
 	public boolean deposit(String accountNumber, double amount) {
-		Account acc = findAccount(accountNumber);
-		if (acc == null) {
-			return false;
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			succeeded = depositUnmetered(accountNumber, amount);
+			return succeeded;
+		} finally {
+			metrics.record(BankMetrics.Operation.DEPOSIT, start, succeeded);
 		}
-		acc.deposit(amount);
-			return true;
+	}
+	
+	/** Makes the deposit, uncounted in the metrics; see {@link #deposit(String, double)}. */
+	boolean depositUnmetered(String accountNumber, double amount) {
+		long seq = 0;
+		operationLock.readLock().lock();
+		try {
+			Account acc = findAccount(accountNumber);
+			if (acc == null) {
+				return false;
+			}
+			beforeChange(acc);
+			if (journal == null) {
+				depositInto(acc, amount);
+			} else {
+				Lock lock = acc.getLock();
+				lock.lock();
+				try {
+					depositInto(acc, amount);
+					seq = journal.logDeposit(accountNumber, amount);
+				} finally {
+					lock.unlock();
+				}
+			}
+		} finally {
+			operationLock.readLock().unlock();
+		}
+		commit(seq);
+		return true;
 	}
 	
 	/**
@@ -98,97 +496,1002 @@ public class Bank implements Serializable {
 	 * @param amount The amount to withdraw.
 	 * @return true if successful; false if account not found.
 	 */
+	@Override
 	public boolean withdraw(String accountNumber, double amount) {
-		Account acc = findAccount(accountNumber);
-		if (acc == null) {
-			return false;
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			succeeded = withdrawUnmetered(accountNumber, amount);
+			return succeeded;
+		} finally {
+			metrics.record(BankMetrics.Operation.WITHDRAW, start, succeeded);
+		}
+	}
+	
+	/** Makes the withdrawal, uncounted in the metrics; see {@link #withdraw(String, double)}. */
+	boolean withdrawUnmetered(String accountNumber, double amount) {
+		long seq = 0;
+		operationLock.readLock().lock();
+		try {
+			Account acc = findAccount(accountNumber);
+			if (acc == null) {
+				return false;
+			}
+			beforeChange(acc);
+			if (journal == null) {
+				withdrawFrom(acc, amount);
+			} else {
+				Lock lock = acc.getLock();
+				lock.lock();
+				try {
+					withdrawFrom(acc, amount);
+					seq = journal.logWithdraw(accountNumber, amount);
+				} finally {
+					lock.unlock();
+				}
+			}
+		} finally {
+			operationLock.readLock().unlock();
+		}
+		commit(seq);
+		return true;
+	}
+	
+	/** Deposits into an account, with a receipt unless a journal is being replayed. */
+	private void depositInto(Account acc, double amount) {
+		if (replaying) {
+			acc.depositCents(Account.requirePositiveCents(amount, "Deposit amount must be positive."));
+		} else {
+			acc.deposit(amount);
+		}
+	}
+	
+	/** Withdraws from an account, with a receipt unless a journal is being replayed. */
+	private void withdrawFrom(Account acc, double amount) {
+		if (replaying) {
+			acc.withdrawCents(Account.requirePositiveCents(amount, "Withdrawal amount must be positive."));
 		} else {
 			acc.withdraw(amount);
-			return true;
 		}
 	}
 	
+	/**
+	 * Moves money from one account to another as a single operation: either both
+	 * balances change or neither does, and no save, checkpoint or monthly update
+	 * sees one without the other. Checking and Regular accounts cannot be overdrawn
+	 * by a transfer; Gold accounts can. A transfer counts as a transaction on each
+	 * Checking account involved. No receipts are printed.
+	 * 
+	 * Both accounts are locked in account-number order, so concurrent transfers
+	 * between any accounts, in either direction, cannot deadlock.
+	 * 
+	 * @param fromAccountNumber the account to take the money from.
+	 * @param toAccountNumber the account to add it to.
+	 * @param amount the amount to move; must be at least one cent.
+	 * @return true if successful; false if either account is not found.
+	 * @throws IllegalArgumentException if the amount is not positive, both account
+	 *         numbers are the same, or the source account has insufficient funds
+	 */
+	@Override
+	public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			succeeded = transferUnmetered(fromAccountNumber, toAccountNumber, amount);
+			return succeeded;
+		} finally {
+			metrics.record(BankMetrics.Operation.TRANSFER, start, succeeded);
+		}
+	}
+	
+	/** Makes the transfer, uncounted in the metrics; see {@link #transfer(String, String, double)}. */
+	boolean transferUnmetered(String fromAccountNumber, String toAccountNumber, double amount) {
+		long cents = Account.requirePositiveCents(amount, "Transfer amount must be positive.");
+		if (fromAccountNumber == null || toAccountNumber == null) {
+			return false;
+		}
+		int order = fromAccountNumber.compareTo(toAccountNumber);
+		if (order == 0) {
+			throw new IllegalArgumentException("Cannot transfer to the same account.");
+		}
+		long seq = 0;
+		operationLock.readLock().lock();
+		try {
+			Account from = findAccount(fromAccountNumber);
+			Account to = findAccount(toAccountNumber);
+			if (from == null || to == null) {
+				return false;
+			}
+			// Account numbers are unique, so this is a total order over all accounts
+			Account first = order < 0 ? from : to;
+			Account second = order < 0 ? to : from;
+			Lock firstLock = first.getLock();
+			Lock secondLock = second.getLock();
+			firstLock.lock();
+			secondLock.lock();
+			try {
+				beforeChange(from);
+				beforeChange(to);
+				if (!from.transferOutCents(cents)) {
+					throw new IllegalArgumentException("Insufficient funds in account " + fromAccountNumber + ".");
+				}
+				to.depositCents(cents);
+				if (journal != null) {
+					seq = journal.logTransfer(fromAccountNumber, toAccountNumber, cents / 100.0);
+				}
+			} finally {
+				secondLock.unlock();
+				firstLock.unlock();
+			}
+		} finally {
+			operationLock.readLock().unlock();
+		}
+		commit(seq);
+		return true;
+	}
+	
+	/**
+	 * Applies a batch of deposits and withdrawals in one pass, in row order.
+	 * Unlike {@link #deposit(String, double)} and {@link #withdraw(String, double)},
+	 * no receipts are printed and bad rows do not throw; each row gets a status code
+	 * in the result instead. Consecutive rows for the same account share one lookup,
+	 * and with a journal attached the whole batch waits for a single disk sync.
+	 * 
+	 * @param batch the transactions to apply.
+	 * @return per-row status codes and totals.
+	 */
+	@Override
+	public BatchResult applyBatch(TransactionBatch batch) {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			BatchResult result = applyBatchUnmetered(batch);
+			succeeded = true;
+			return result;
+		} finally {
+			metrics.record(BankMetrics.Operation.APPLY_BATCH, start, succeeded);
+		}
+	}
+	
+	/** Applies the batch; see {@link #applyBatch(TransactionBatch)}. */
+	private BatchResult applyBatchUnmetered(TransactionBatch batch) {
+		int size = batch.size();
+		byte[] statuses = new byte[size];
+		long deposited = 0;
+		long withdrawn = 0;
+		int failed = 0;
+		long seq = 0;
+		
+		operationLock.readLock().lock();
+		try {
+			String lastNumber = null;
+			Account acc = null;
+			for (int row = 0; row < size; row++) {
+				String accountNumber = batch.accountNumberAt(row);
+				if (lastNumber == null || !lastNumber.equals(accountNumber)) {
+					acc = accountNumber == null ? null : findAccount(accountNumber);
+					lastNumber = accountNumber;
+				}
+				long cents = batch.amountCentsAt(row);
+				if (acc == null) {
+					statuses[row] = BatchResult.ACCOUNT_NOT_FOUND;
+					failed++;
+					continue;
+				}
+				if (cents <= 0) {
+					statuses[row] = BatchResult.INVALID_AMOUNT;
+					failed++;
+					continue;
+				}
+				
+				beforeChange(acc);
+				if (batch.typeAt(row) == TransactionBatch.DEPOSIT) {
+					if (journal == null) {
+						acc.depositCents(cents);
+					} else {
+						Lock lock = acc.getLock();
+						lock.lock();
+						try {
+							acc.depositCents(cents);
+							seq = journal.logDeposit(accountNumber, cents / 100.0);
+						} finally {
+							lock.unlock();
+						}
+					}
+					deposited += cents;
+				} else {
+					long taken;
+					if (journal == null) {
+						taken = acc.withdrawCents(cents);
+					} else {
+						Lock lock = acc.getLock();
+						lock.lock();
+						try {
+							taken = acc.withdrawCents(cents);
+							seq = journal.logWithdraw(accountNumber, cents / 100.0);
+						} finally {
+							lock.unlock();
+						}
+					}
+					withdrawn += taken;
+					if (taken < cents) {
+						statuses[row] = BatchResult.PARTIAL_WITHDRAWAL;
+					}
+				}
+			}
+		} finally {
+			operationLock.readLock().unlock();
+		}
+		commit(seq);
+		return new BatchResult(statuses, deposited, withdrawn, failed);
+	}
+	
 	/**
 	 * Returns formatted summaries of all accounts, sorted by account number. 
 	 * Each row: ACC_NUM, TYPE, BALANCE, OWNER_NAME (OWNER_ID)
 	 * 
+	 * For large banks prefer {@link #getAccountSummaries(String, int)} or
+	 * {@link #streamAccountSummaries(String)}, which do not build every row up front,
+	 * and {@link #exportAccountsCsv(String, int)} for a full dump to a file.
+	 * 
 	 * @return immutable list of formatted summary rows (may be empty)
 	 */
 	public List<String> getAllAccountSummaries() {
-		List<Account> accountCopies = new ArrayList<>(accounts);
-		accountCopies.sort(Comparator.comparing(Account::getAccountNumber));
-		
-		List <String> rows = new ArrayList<>(accountCopies.size());
-		for (Account a : accountCopies) {
-			rows.add(String.format(
-					"%-12s %10.2f      %s (%s)", 
-					a.getAccountNumber(),
-					a.getBalance(),
-					a.getCustomer().getName(),
-					a.getCustomer().getCustomerId()
-					));
+		List <String> rows = new ArrayList<>(sortedAccounts.size());
+		for (Account a : sortedAccounts.values()) {
+			rows.add(formatSummary(a));
 		}
 		return Collections.unmodifiableList(rows);
 	}
 	
+	/**
+	 * Returns one page of account summaries, sorted by account number.
+	 * 
+	 * @param startAccountNumber first account number to include (inclusive);
+	 *        null to start from the beginning.
+	 * @param pageSize maximum number of rows; must be positive.
+	 * @return the page, with the account number the next page starts at.
+	 * @throws IllegalArgumentException if pageSize is not positive.
+	 */
+	public AccountPage getAccountSummaries(String startAccountNumber, int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("Page size must be positive.");
+		}
+		List<String> rows = new ArrayList<>(pageSize);
+		for (Account a : tail(startAccountNumber).values()) {
+			if (rows.size() == pageSize) {
+				return new AccountPage(rows, a.getAccountNumber());
+			}
+			rows.add(formatSummary(a));
+		}
+		return new AccountPage(rows, null);
+	}
+	
+	/**
+	 * Streams account summaries in account-number order. Rows are formatted
+	 * lazily as the stream is consumed.
+	 * 
+	 * @param startAccountNumber first account number to include (inclusive);
+	 *        null to start from the beginning.
+	 * @return a lazy stream of formatted summary rows.
+	 */
+	public Stream<String> streamAccountSummaries(String startAccountNumber) {
+		return tail(startAccountNumber).values().stream().map(Bank::formatSummary);
+	}
+	
+	/**
+	 * Writes every account to a CSV file, sorted by account number, with the
+	 * columns account_number, type, balance, customer_name and customer_id.
+	 * Rows are formatted on worker threads and streamed to the file, so memory
+	 * use does not grow with the number of accounts (see {@link AccountCsvExport}).
+	 *
+	 * Operations are not paused while exporting. Each row shows its account as
+	 * it was at some moment during the export; use {@link #saveToFile(String)}
+	 * for a copy of the whole bank at one instant.
+	 *
+	 * @param filename the file to write; an existing file is replaced.
+	 * @param parallelism number of formatting threads; must be positive.
+	 * @return the number of accounts written.
+	 * @throws IOException if the file cannot be written.
+	 * @throws IllegalArgumentException if parallelism is not positive.
+	 */
+	public long exportAccountsCsv(String filename, int parallelism) throws IOException {
+		return AccountCsvExport.write(sortedAccounts.values(), filename, parallelism);
+	}
+
+	/** @return the accounts from the given account number onwards, in order. */
+	private NavigableMap<String, Account> tail(String startAccountNumber) {
+		return startAccountNumber == null ? sortedAccounts : sortedAccounts.tailMap(startAccountNumber, true);
+	}
+	
+	/** Formats one summary row: ACC_NUM, BALANCE, OWNER_NAME (OWNER_ID). */
+	private static String formatSummary(Account a) {
+		return String.format(
+				"%-12s %10.2f      %s (%s)", 
+				a.getAccountNumber(),
+				a.getBalance(),
+				a.getCustomer().getName(),
+				a.getCustomer().getCustomerId()
+				);
+	}
+	
 	/**
 	 * Displays the details of a specific account.
 	 * 
 	 * @param accountNumber the account number. 
 	 * @return the account's toString() output or not found message.
 	 */
+	@Override
 	public String displayAccountInfo(String accountNumber) {
 		Account acc = findAccount(accountNumber);
-		return acc != null ? acc.toString() : ("Account: " + accountNumber + " not found.");
+		if (acc == null) {
+			return "Account: " + accountNumber + " not found.";
+		}
+		Lock lock = acc.getLock();
+		lock.lock();
+		try {
+			return acc.toString();
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	/** Applies monthly updates (interest or fees) to all accounts. */
+	@Override
 	public void applyMonthlyUpdates() {
-		for (Account acc : accounts) {
-			acc.applyMonthlyUpdate();
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			applyMonthlyUpdatesUnmetered();
+			succeeded = true;
+		} finally {
+			metrics.record(BankMetrics.Operation.MONTHLY_UPDATE, start, succeeded);
+		}
+	}
+	
+	/** Applies the updates, uncounted in the metrics; see {@link #applyMonthlyUpdates()}. */
+	void applyMonthlyUpdatesUnmetered() {
+		applyMonthlyUpdatesUnmetered(1, null);
+	}
+	
+	/**
+	 * Applies monthly updates to all accounts in parallel. Accounts are split into
+	 * partitions that run on a ForkJoinPool with the given parallelism. Each
+	 * account's update depends only on that account and uses exact cent
+	 * arithmetic, so the results are identical to {@link #applyMonthlyUpdates()}.
+	 * The month-end is all or nothing: if any partition fails, every account
+	 * already updated is put back and nothing is journaled.
+	 * 
+	 * @param parallelism number of worker threads; must be positive.
+	 * @param progress notified as each partition finishes; may be null.
+	 * @throws IllegalArgumentException if parallelism is not positive.
+	 */
+	public void applyMonthlyUpdates(int parallelism, MonthEndProgress progress) {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			applyMonthlyUpdatesUnmetered(parallelism, progress);
+			succeeded = true;
+		} finally {
+			metrics.record(BankMetrics.Operation.MONTHLY_UPDATE, start, succeeded);
+		}
+	}
+	
+	/**
+	 * Applies the updates in partitions; see {@link #applyMonthlyUpdates(int, MonthEndProgress)}.
+	 * With a parallelism of 1 the partitions run one after another on this thread.
+	 */
+	private void applyMonthlyUpdatesUnmetered(int parallelism, MonthEndProgress progress) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive.");
+		}
+		long seq = 0;
+		operationLock.writeLock().lock();
+		try {
+			MonthEnd monthEnd = new MonthEnd(accounts.values().toArray(new Account[0]),
+					parallelism, progress);
+			try {
+				if (parallelism == 1) {
+					for (int p = 0; p < monthEnd.partitions; p++) {
+						monthEnd.run(p);
+					}
+				} else {
+					ForkJoinPool pool = new ForkJoinPool(parallelism);
+					try {
+						List<ForkJoinTask<?>> tasks = new ArrayList<>(monthEnd.partitions);
+						for (int p = 0; p < monthEnd.partitions; p++) {
+							int partition = p;
+							tasks.add(pool.submit(() -> monthEnd.run(partition)));
+						}
+						Throwable failure = null;
+						for (ForkJoinTask<?> task : tasks) {
+							try {
+								task.join();
+							} catch (RuntimeException | Error e) {
+								failure = failure == null ? e : failure;
+							}
+						}
+						if (failure instanceof RuntimeException e) {
+							throw e;
+						} else if (failure != null) {
+							throw (Error) failure;
+						}
+					} finally {
+						pool.shutdown();
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				// Nothing is journaled yet, so put the bank back to match the journal
+				monthEnd.undo();
+				throw e;
+			}
+			if (journal != null) {
+				seq = journal.logMonthlyUpdate();
+			}
+		} finally {
+			operationLock.writeLock().unlock();
+		}
+		commit(seq);
+	}
+	
+	/**
+	 * One month-end run over a fixed set of accounts, split into partitions. Each
+	 * account's state is saved before it is updated, so a failed run can be undone.
+	 * Runs under the bank's write lock.
+	 */
+	private final class MonthEnd {
+		final Account[] all;
+		final int partitions;
+		private final MonthEndProgress progress;
+		private final long[] savedCents;
+		private final int[] savedTransactions;
+		
+		/** Number of accounts each partition has started to update. */
+		private final int[] started;
+		
+		MonthEnd(Account[] all, int parallelism, MonthEndProgress progress) {
+			this.all = all;
+			// A few partitions per worker keeps threads busy if some finish early
+			this.partitions = Math.max(1, Math.min(all.length, parallelism * 4));
+			this.progress = progress;
+			this.savedCents = new long[all.length];
+			this.savedTransactions = new int[all.length];
+			this.started = new int[partitions];
+		}
+		
+		private int from(int partition) {
+			return (int) ((long) all.length * partition / partitions);
+		}
+		
+		/** Updates the accounts of one partition and reports it. */
+		void run(int partition) {
+			long start = System.nanoTime();
+			int from = from(partition);
+			int to = from(partition + 1);
+			int i = from;
+			try {
+				for (; i < to; i++) {
+					Account acc = all[i];
+					// The lock keeps the account's history consistent for a checkpoint copying it
+					Lock lock = acc.getLock();
+					lock.lock();
+					try {
+						savedCents[i] = acc.getBalanceCents();
+						savedTransactions[i] = acc instanceof CheckingAccount checking ? checking.getTransactionCount() : 0;
+						beforeChange(acc);
+						acc.applyMonthlyUpdate();
+					} finally {
+						lock.unlock();
+					}
+				}
+			} finally {
+				// Counts the account that failed, if any; read after join, which orders it
+				started[partition] = i - from + (i < to ? 1 : 0);
+			}
+			if (progress != null) {
+				progress.partitionCompleted(partition, partitions, to - from, System.nanoTime() - start);
+			}
+		}
+		
+		/** Puts every account that was started back to its saved state. */
+		void undo() {
+			for (int p = 0; p < partitions; p++) {
+				int from = from(p);
+				for (int i = from; i < from + started[p]; i++) {
+					Lock lock = all[i].getLock();
+					lock.lock();
+					try {
+						all[i].revertBalanceCents(savedCents[i]);
+						if (all[i] instanceof CheckingAccount checking) {
+							checking.restoreTransactionCount(savedTransactions[i]);
+						}
+					} finally {
+						lock.unlock();
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns what an account's balance was at a past time, from the history of
+	 * balance changes the bank records for every account while a journal is
+	 * attached. Takes bounded time however long the history is (see
+	 * {@link AccountHistory}).
+	 * 
+	 * History starts when the account is created, or when the journal is
+	 * attached for accounts saved without one, and is kept for the retention
+	 * given to {@link #attachJournal(BankJournal, Duration)}.
+	 * 
+	 * @param accountNumber the account number.
+	 * @param epochMillis the time, in milliseconds since the epoch.
+	 * @return the balance after every change made at or before that time.
+	 * @throws IllegalArgumentException if the account is not found, no journal
+	 *         is attached, or the time is before its history starts
+	 */
+	public double getBalanceAt(String accountNumber, long epochMillis) {
+		Account acc = accountNumber == null ? null : findAccount(accountNumber);
+		if (acc == null) {
+			throw new IllegalArgumentException("Account " + accountNumber + " not found.");
 		}
+		// Changes are recorded under the account's lock
+		Lock lock = acc.getLock();
+		lock.lock();
+		try {
+			AccountHistory history = acc.getHistory();
+			if (history == null) {
+				throw new IllegalArgumentException("No balance history is kept without a journal.");
+			}
+			return history.balanceAt(epochMillis) / 100.0;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/** @return the number of accounts. */
+	@Override
+	public long getAccountCount() {
+		return statistics.getAccountCount();
+	}
+	
+	/**
+	 * @param type the account type
+	 * @return the number of accounts of that type.
+	 */
+	@Override
+	public long getAccountCount(AccountType type) {
+		return statistics.getAccountCount(type);
 	}
 	
 	/** @return the total combined balance of all accounts. */
+	@Override
 	public double getTotalBalance() {
-		return accounts.stream().mapToDouble(Account::getBalance).sum();
+		return statistics.getTotalBalance();
+	}
+	
+	/**
+	 * @param type the account type
+	 * @return the combined balance of accounts of that type.
+	 */
+	@Override
+	public double getTotalBalance(AccountType type) {
+		return statistics.getTotalBalance(type);
 	}
 	
 	/** @return the average balance of all accounts (0 if none exist). */
+	@Override
 	public double getAverageBalance() {
-		if (accounts.isEmpty()) return 0.0;
-		return getTotalBalance() / accounts.size();
+		return statistics.getAverageBalance();
 	}
 	
 	/** @return the number of accounts with zero balance. */
+	@Override
 	public int getZeroBalanceCount() {
-		return (int) accounts.stream().filter(acc -> acc.getBalance() == 0.0).count();
+		return statistics.getZeroBalanceCount();
 	}
 	
 	/** @return the account with largest balance, or null if no accounts exist. */
+	@Override
 	public Account getLargestAccount() {
-		return accounts.stream().max(Comparator.comparingDouble(Account::getBalance)).orElse(null);
+		return statistics.getLargestAccount();
+	}
+	
+	/** @return the live, incrementally maintained statistics for this bank, including per-type totals. */
+	public BankStatistics getStatistics() {
+		return statistics;
+	}
+	
+	/**
+	 * Returns the counts and latencies of this bank's operations. Call
+	 * {@link BankMetrics#register(String)} on the result to publish them over JMX.
+	 * 
+	 * @return the live metrics of this bank.
+	 */
+	public BankMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Attaches a write-ahead journal, keeping account histories for
+	 * {@link #DEFAULT_HISTORY_RETENTION}.
+	 * 
+	 * @param journal the journal to attach.
+	 * @return the number of journal records replayed.
+	 * @throws IOException if the journal cannot be read.
+	 * @see #attachJournal(BankJournal, Duration)
+	 */
+	public int attachJournal(BankJournal journal) throws IOException {
+		return attachJournal(journal, DEFAULT_HISTORY_RETENTION);
+	}
+	
+	/**
+	 * Attaches a write-ahead journal. Any records in it that follow this bank's
+	 * snapshot are replayed first, without receipts; from then on every change
+	 * is appended to it.
+	 * 
+	 * Account histories start recording here: those saved with the snapshot carry
+	 * on, the rest start now. Replayed changes are recorded at the times the
+	 * journal noted for them.
+	 * 
+	 * @param journal the journal to attach.
+	 * @param historyRetention how long balance changes are kept for {@link #getBalanceAt(String, long)}.
+	 * @return the number of journal records replayed.
+	 * @throws IOException if the journal cannot be read.
+	 * @throws IllegalArgumentException if the retention is not positive
+	 */
+	public int attachJournal(BankJournal journal, Duration historyRetention) throws IOException {
+		AccountHistory.Policy policy = new AccountHistory.Policy(historyRetention.toMillis());
+		this.journal = null;
+		startHistories(policy);
+		replaying = true;
+		boolean attached = false;
+		try {
+			int replayed = journal.replayInto(this);
+			this.journal = journal;
+			attached = true;
+			return replayed;
+		} finally {
+			policy.setReplayMillis(0);
+			replaying = false;
+			if (!attached) {
+				startHistories(null);
+			}
+		}
+	}
+	
+	/**
+	 * Starts every account's history under the given policy, carrying on from the
+	 * history it has or was loaded with if that still matches its balance, or stops them all
+	 * if the policy is null. Histories are only recorded under the account locks
+	 * a journal makes the bank take, so they stop whenever no journal is attached.
+	 */
+	private void startHistories(AccountHistory.Policy policy) {
+		operationLock.writeLock().lock();
+		try {
+			historyPolicy = policy;
+			for (Account acc : accounts.values()) {
+				Lock lock = acc.getLock();
+				lock.lock();
+				try {
+					AccountHistory loaded = loadedHistories.remove(acc);
+					AccountHistory history = acc.getHistory() != null ? acc.getHistory() : loaded;
+					if (policy == null) {
+						acc.setHistory(null);
+					} else if (history != null && history.getBalanceCents() == acc.getBalanceCents()) {
+						history.setPolicy(policy);
+						acc.setHistory(history);
+					} else {
+						acc.startHistory(policy);
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+			loadedHistories.clear();
+		} finally {
+			operationLock.writeLock().unlock();
+		}
+	}
+	
+	/** Times the changes replayed from here on; called by journal replay. */
+	void setReplayTime(long epochMillis) {
+		AccountHistory.Policy policy = historyPolicy;
+		if (policy != null) {
+			policy.setReplayMillis(epochMillis);
+		}
+	}
+	
+	/** Holds the history saved with a loaded account until a journal is attached. */
+	void restoreHistory(Account acc, AccountHistory history) {
+		loadedHistories.put(acc, history);
+	}
+	
+	/**
+	 * Saves a full snapshot and then drops the journal records and deltas it
+	 * contains, waiting until all are done. Operations keep running meanwhile.
+	 * 
+	 * @param filename the snapshot file.
+	 * @throws IOException if the snapshot or journal cannot be written.
+	 */
+	public void checkpoint(String filename) throws IOException {
+		await(checkpointInBackground(filename));
+	}
+	
+	/**
+	 * Starts a full checkpoint and returns at once. The bank is paused only while
+	 * the cut is marked, which takes constant time whatever its size; a background
+	 * thread then writes the accounts as they were at the cut and drops the
+	 * journal records and deltas the snapshot contains. Waits first if another
+	 * save or checkpoint is still running.
+	 * 
+	 * @param filename the snapshot file.
+	 * @return completes when the snapshot is on disk, or with the IOException that stopped it.
+	 */
+	public CompletableFuture<Void> checkpointInBackground(String filename) {
+		return startSave(filename, true);
+	}
+	
+	/**
+	 * Saves only the accounts changed or removed since the last save, as a delta
+	 * file next to the snapshot, and waits until it is on disk. The cost depends
+	 * on the number of changed accounts, not on the size of the bank. If this
+	 * bank has not been saved or loaded yet, a full snapshot is written instead.
+	 * 
+	 * @param filename the snapshot file.
+	 * @throws IOException if the delta or journal cannot be written.
+	 */
+	public void saveChanges(String filename) throws IOException {
+		await(saveChangesInBackground(filename));
+	}
+	
+	/**
+	 * Starts a delta save as in {@link #saveChanges(String)} and returns at once,
+	 * pausing the bank only to mark the cut. Once enough deltas have built up they
+	 * are merged into the snapshot by a background compaction.
+	 * 
+	 * @param filename the snapshot file.
+	 * @return completes when the delta is on disk, or with the IOException that stopped it.
+	 */
+	public CompletableFuture<Void> saveChangesInBackground(String filename) {
+		return startSave(filename, false);
+	}
+	
+	/** Marks the cut of a full or delta save and starts the thread that writes it. */
+	private CompletableFuture<Void> startSave(String filename, boolean full) {
+		long start = System.nanoTime();
+		checkpointPermit.acquireUninterruptibly();
+		BankJournal cpJournal;
+		BankCheckpoint cp;
+		Set<Account> changed;
+		Set<String> removed;
+		long baseGeneration;
+		long markerSeq;
+		boolean fullSave;
+		operationLock.writeLock().lock();
+		try {
+			fullSave = full || savedGeneration < 0;
+			baseGeneration = savedGeneration;
+			changed = dirtyAccounts;
+			removed = removedAccountNumbers;
+			dirtyAccounts = ConcurrentHashMap.newKeySet();
+			removedAccountNumbers = ConcurrentHashMap.newKeySet();
+			journalGeneration++;
+			cpJournal = journal;
+			markerSeq = cpJournal != null ? cpJournal.logCheckpoint(journalGeneration) : 0;
+			cp = new BankCheckpoint(++checkpointEpoch, journalGeneration);
+			checkpoint = cp;
+		} finally {
+			operationLock.writeLock().unlock();
+		}
+		
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		Thread writer = new Thread(() -> {
+			boolean compact = false;
+			try {
+				try {
+					if (fullSave) {
+						writeCheckpoint(cp, sortedAccounts.values(), filename);
+						BankSnapshot.deleteDeltas(filename, cp.getGeneration());
+						deltasSinceSnapshot = 0;
+					} else {
+						writeDelta(cp, changed, removed, baseGeneration, filename);
+						compact = ++deltasSinceSnapshot >= COMPACT_AFTER_DELTAS;
+					}
+					savedGeneration = cp.getGeneration();
+				} catch (IOException | RuntimeException e) {
+					restoreUnsaved(changed, removed);
+					throw e;
+				}
+				if (cpJournal != null) {
+					cpJournal.compact(cp.getGeneration(), markerSeq);
+				}
+				metrics.record(BankMetrics.Operation.CHECKPOINT, start, true);
+				done.complete(null);
+			} catch (IOException | RuntimeException e) {
+				metrics.record(BankMetrics.Operation.CHECKPOINT, start, false);
+				done.completeExceptionally(e);
+			} finally {
+				if (compact) {
+					deltasSinceSnapshot = 0;
+				}
+				checkpointPermit.release();
+			}
+			if (compact) {
+				compactInBackground(filename);
+			}
+		}, "bank-checkpoint");
+		writer.start();
+		return done;
+	}
+	
+	/** Writes the given accounts as of the checkpoint's cut, then ends the checkpoint. */
+	private void writeCheckpoint(BankCheckpoint cp, Collection<Account> live, String filename) throws IOException {
+		try {
+			BankSnapshot.write(cp.collect(live), cp.getGeneration(), filename);
+		} finally {
+			checkpoint = null;
+		}
+	}
+	
+	/** Writes the changed accounts as of the checkpoint's cut as a delta, then ends the checkpoint. */
+	private void writeDelta(BankCheckpoint cp, Set<Account> changed, Set<String> removed,
+			long baseGeneration, String filename) throws IOException {
+		try {
+			BankSnapshot.writeDelta(cp.collect(changed), removed, cp.getGeneration(), baseGeneration, filename);
+		} finally {
+			checkpoint = null;
+		}
+	}
+	
+	/** Puts back the changes of a save that failed, so the next save writes them. */
+	private void restoreUnsaved(Set<Account> changed, Set<String> removed) {
+		operationLock.writeLock().lock();
+		try {
+			for (Account acc : changed) {
+				// Skip accounts removed since; their removal is already recorded
+				if (accounts.get(acc.getAccountNumber()) == acc) {
+					dirtyAccounts.add(acc);
+				}
+			}
+			removedAccountNumbers.addAll(removed);
+		} finally {
+			operationLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Merges the snapshot and its deltas into a new snapshot on a background
+	 * thread, then deletes the merged deltas. Saves continue meanwhile; if a full
+	 * checkpoint replaces the snapshot first, the merged copy is discarded.
+	 */
+	private void compactInBackground(String filename) {
+		if (!compacting.compareAndSet(false, true)) {
+			return;
+		}
+		Thread compactor = new Thread(() -> {
+			Path merged = Path.of(filename + ".compact");
+			try {
+				long baseGeneration = BankSnapshot.readGeneration(filename);
+				Bank bank = BankSnapshot.read(filename);
+				List<BankCheckpoint.AccountState> states = new ArrayList<>(bank.accounts.size());
+				for (Account acc : bank.sortedAccounts.values()) {
+					states.add(BankCheckpoint.AccountState.of(acc, bank.loadedHistories.get(acc)));
+				}
+				BankSnapshot.write(states, bank.getJournalGeneration(), merged.toString());
+				
+				checkpointPermit.acquireUninterruptibly();
+				try {
+					if (BankSnapshot.readGeneration(filename) == baseGeneration) {
+						Files.move(merged, Path.of(filename), StandardCopyOption.REPLACE_EXISTING,
+								StandardCopyOption.ATOMIC_MOVE);
+						BankSnapshot.deleteDeltas(filename, bank.getJournalGeneration());
+					}
+				} finally {
+					checkpointPermit.release();
+				}
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Snapshot compaction failed: " + e.getMessage());
+			} finally {
+				try {
+					Files.deleteIfExists(merged);
+				} catch (IOException e) {
+					// Left behind; overwritten by the next compaction
+				}
+				compacting.set(false);
+			}
+		}, "bank-compaction");
+		compactor.setDaemon(true);
+		compactor.start();
+	}
+	
+	/** Waits for a background save, rethrowing its IOException. */
+	private static void await(CompletableFuture<Void> save) throws IOException {
+		try {
+			save.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IOException io) {
+				throw io;
+			}
+			throw e;
+		}
 	}
 	
-	/** Save the current bank object to a file. */
+	/** Records that the bank matches the saved files of the given generation; used when loading. */
+	void markSaved(long generation) {
+		savedGeneration = generation;
+		dirtyAccounts = ConcurrentHashMap.newKeySet();
+		removedAccountNumbers = ConcurrentHashMap.newKeySet();
+	}
+	
+	/** @return the generation of the snapshot this bank was loaded from or last saved as. */
+	long getJournalGeneration() {
+		return journalGeneration;
+	}
+	
+	/** Sets the snapshot generation; used when loading a snapshot. */
+	void setJournalGeneration(long journalGeneration) {
+		this.journalGeneration = journalGeneration;
+	}
+	
+	/**
+	 * Saves the bank as it is now to a file in the binary snapshot format.
+	 * Operations are paused only while the cut is marked, not while writing.
+	 */
 	public void saveToFile(String filename) throws IOException {
-		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))) {
-			out.writeObject(this);
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			saveToFileUnmetered(filename);
+			succeeded = true;
+		} finally {
+			metrics.record(BankMetrics.Operation.SAVE, start, succeeded);
+		}
+	}
+	
+	/** Writes the snapshot; see {@link #saveToFile(String)}. */
+	private void saveToFileUnmetered(String filename) throws IOException {
+		checkpointPermit.acquireUninterruptibly();
+		try {
+			BankCheckpoint cp;
+			operationLock.writeLock().lock();
+			try {
+				cp = new BankCheckpoint(++checkpointEpoch, journalGeneration);
+				checkpoint = cp;
+			} finally {
+				operationLock.writeLock().unlock();
+			}
+			writeCheckpoint(cp, sortedAccounts.values(), filename);
+		} finally {
+			checkpointPermit.release();
+		}
+	}
+	
+	/** Loads a bank from a file written by {@link #saveToFile(String)}. */
+	public static Bank loadFromFile(String filename) throws IOException {
+		return BankSnapshot.read(filename);
+	}
+	
+	/**
+	 * Marks the account changed for the next delta save, and lets a running
+	 * checkpoint save the account's state before it is changed.
+	 */
+	private void beforeChange(Account acc) {
+		dirtyAccounts.add(acc);
+		BankCheckpoint cp = checkpoint;
+		if (cp != null) {
+			cp.beforeChange(acc);
 		}
 	}
 	
-	/** Loads a bank object from a file. */
-	public static Bank loadFromFile(String filename) throws IOException, ClassNotFoundException {
-		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))) {
-			return (Bank) in.readObject();
+	/** Waits for a journal record to become durable, outside of any lock. */
+	private void commit(long seq) {
+		if (seq != 0) {
+			journal.commit(seq);
 		}
 	}
 	
-	/** Searches for an account by account number. */
+	/** Looks up an account by account number in constant time. */
 	private Account findAccount(String accountNumber) {
-		return accounts.stream()
-				.filter(acc -> acc.matchesAccountNumber(accountNumber))
-				.findFirst()
-				.orElse(null);
+		return accounts.get(accountNumber);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,445 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Repeatable micro-benchmarks for Bank, run in the style of JMH: each benchmark
+ * runs warmup iterations first, then timed measurement iterations, for every
+ * combination of bank size and account-type mix. Results are printed as a table
+ * and can be written as JSON Lines, one result per line, to compare builds.
+ *
+ * Usage:
+ * <pre>
+ *   java BankBenchmark [--sizes 1000,100000] [--mix 1:1:1,1:0:0] [--benchmarks create,deposit,...]
+ *                      [--store bank|columnar] [--warmup 3] [--iterations 5] [--time 1000] [--out results.jsonl]
+ *   java BankBenchmark --compare baseline.jsonl candidate.jsonl
+ * </pre>
+ * The mix gives relative weights of checking, gold and regular accounts. Sizes
+ * up to 10,000,000 accounts need a heap of several gigabytes ({@code -Xmx}).
+ *
+ * {@code --store columnar} runs the benchmarks a {@link ColumnarAccountStore}
+ * supports (create, deposit, withdraw, show, remove, monthly and statistics)
+ * on one instead of a Bank. Results carry the same names, so {@code --compare}
+ * of a bank run with a columnar run shows the difference between the two.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankBenchmark {
+
+	/** How a score is expressed. */
+	private enum Mode {
+		/** Operations per second; higher is better. */
+		THROUGHPUT("thrpt", "ops/s"),
+		/** Milliseconds per operation; lower is better. */
+		AVERAGE_TIME("avgt", "ms/op");
+
+		final String label;
+		final String unit;
+
+		Mode(String label, String unit) {
+			this.label = label;
+			this.unit = unit;
+		}
+	}
+
+	/** One benchmark: runs its operation {@code ops} times and returns a value to keep it from being optimized away. */
+	@FunctionalInterface
+	private interface Operation {
+		long run(State state, int ops) throws IOException;
+	}
+
+	private record Benchmark(String name, Mode mode, Operation operation) {
+	}
+
+	/**
+	 * A bank, or a columnar store, of the requested size and mix, plus what the
+	 * benchmarks need to drive it.
+	 */
+	private static final class State {
+		/** The bank under test; null when a columnar store is. */
+		final Bank bank;
+		/** The columnar store under test; null when a bank is. */
+		final ColumnarAccountStore store;
+		final String[] accountNumbers;
+		final int[] weights;
+		final SplittableRandom random = new SplittableRandom(42);
+		final Path file;
+		int created;
+
+		State(int size, int[] weights, Path file, boolean columnar) {
+			this.bank = columnar ? null : new Bank();
+			this.store = columnar ? new ColumnarAccountStore(size) : null;
+			this.accountNumbers = new String[size];
+			this.weights = weights;
+			this.file = file;
+			for (int i = 0; i < size; i++) {
+				accountNumbers[i] = String.format("ACC%09d", i);
+				Customer customer = new Customer("C" + (i % 10_000), "Customer " + (i % 10_000));
+				if (columnar) {
+					store.createAccount(typeFor(i), accountNumbers[i], customer);
+					store.deposit(accountNumbers[i], 100 + (i % 1000));
+				} else {
+					bank.createAccount(typeFor(i).name(), accountNumbers[i], customer);
+					bank.deposit(accountNumbers[i], 100 + (i % 1000));
+				}
+			}
+		}
+
+		/** @return the account type of the i-th account under this mix. */
+		AccountType typeFor(int i) {
+			int slot = i % (weights[0] + weights[1] + weights[2]);
+			return slot < weights[0] ? AccountType.CHECKING
+					: slot < weights[0] + weights[1] ? AccountType.GOLD : AccountType.REGULAR;
+		}
+
+		String randomAccount() {
+			return accountNumbers[random.nextInt(accountNumbers.length)];
+		}
+	}
+
+	private static final List<Benchmark> BENCHMARKS = List.of(
+			new Benchmark("create", Mode.THROUGHPUT, (s, ops) -> {
+				for (int i = 0; i < ops; i++) {
+					int n = s.created++;
+					s.bank.createAccount(s.typeFor(n).name(), "NEW" + n, new Customer("N" + n, "New Customer"));
+				}
+				return s.created;
+			}),
+			new Benchmark("deposit", Mode.THROUGHPUT, (s, ops) -> {
+				long found = 0;
+				for (int i = 0; i < ops; i++) {
+					found += s.bank.deposit(s.randomAccount(), 1) ? 1 : 0;
+				}
+				return found;
+			}),
+			new Benchmark("withdraw", Mode.THROUGHPUT, (s, ops) -> {
+				long found = 0;
+				for (int i = 0; i < ops; i++) {
+					found += s.bank.withdraw(s.randomAccount(), 1) ? 1 : 0;
+				}
+				return found;
+			}),
+			new Benchmark("show", Mode.THROUGHPUT, (s, ops) -> {
+				long length = 0;
+				for (int i = 0; i < ops; i++) {
+					length += s.bank.displayAccountInfo(s.randomAccount()).length();
+				}
+				return length;
+			}),
+			new Benchmark("remove", Mode.THROUGHPUT, (s, ops) -> {
+				// Removes a random account and creates it again, so the bank keeps its size
+				long removed = 0;
+				for (int i = 0; i < ops; i++) {
+					int n = s.random.nextInt(s.accountNumbers.length);
+					removed += s.bank.removeAccount(s.accountNumbers[n]) ? 1 : 0;
+					s.bank.createAccount(s.typeFor(n).name(), s.accountNumbers[n], new Customer("C" + (n % 10_000), "Customer " + (n % 10_000)));
+				}
+				return removed;
+			}),
+			new Benchmark("transfer", Mode.THROUGHPUT, (s, ops) -> {
+				long moved = 0;
+				for (int i = 0; i < ops; i++) {
+					String from = s.randomAccount();
+					String to = s.randomAccount();
+					try {
+						moved += !from.equals(to) && s.bank.transfer(from, to, 1) ? 1 : 0;
+					} catch (IllegalArgumentException e) {
+						// Insufficient funds; still a measured call
+					}
+				}
+				return moved;
+			}),
+			new Benchmark("monthly", Mode.AVERAGE_TIME, (s, ops) -> {
+				for (int i = 0; i < ops; i++) {
+					s.bank.applyMonthlyUpdates();
+				}
+				return ops;
+			}),
+			new Benchmark("summaries", Mode.AVERAGE_TIME, (s, ops) -> {
+				long rows = 0;
+				for (int i = 0; i < ops; i++) {
+					rows += s.bank.getAllAccountSummaries().size();
+				}
+				return rows;
+			}),
+			new Benchmark("export", Mode.AVERAGE_TIME, (s, ops) -> {
+				long rows = 0;
+				for (int i = 0; i < ops; i++) {
+					rows += s.bank.exportAccountsCsv(s.file.toString(), Runtime.getRuntime().availableProcessors());
+				}
+				return rows;
+			}),
+			new Benchmark("statistics", Mode.THROUGHPUT, (s, ops) -> {
+				long sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += (long) s.bank.getTotalBalance() + (long) s.bank.getAverageBalance()
+							+ s.bank.getZeroBalanceCount() + s.bank.getLargestAccount().getBalanceCents();
+				}
+				return sum;
+			}),
+			new Benchmark("save", Mode.AVERAGE_TIME, (s, ops) -> {
+				for (int i = 0; i < ops; i++) {
+					s.bank.saveToFile(s.file.toString());
+				}
+				return Files.size(s.file);
+			}),
+			new Benchmark("load", Mode.AVERAGE_TIME, (s, ops) -> {
+				if (!Files.exists(s.file)) {
+					s.bank.saveToFile(s.file.toString());
+				}
+				long accounts = 0;
+				for (int i = 0; i < ops; i++) {
+					accounts += Bank.loadFromFile(s.file.toString()).getStatistics().getAccountCount();
+				}
+				return accounts;
+			}));
+
+	/** The same operations on a {@link ColumnarAccountStore}, for those it supports. */
+	private static final List<Benchmark> COLUMNAR_BENCHMARKS = List.of(
+			new Benchmark("create", Mode.THROUGHPUT, (s, ops) -> {
+				for (int i = 0; i < ops; i++) {
+					int n = s.created++;
+					s.store.createAccount(s.typeFor(n), "NEW" + n, new Customer("N" + n, "New Customer"));
+				}
+				return s.created;
+			}),
+			new Benchmark("deposit", Mode.THROUGHPUT, (s, ops) -> {
+				long found = 0;
+				for (int i = 0; i < ops; i++) {
+					found += s.store.deposit(s.randomAccount(), 1) ? 1 : 0;
+				}
+				return found;
+			}),
+			new Benchmark("withdraw", Mode.THROUGHPUT, (s, ops) -> {
+				long found = 0;
+				for (int i = 0; i < ops; i++) {
+					found += s.store.withdraw(s.randomAccount(), 1) ? 1 : 0;
+				}
+				return found;
+			}),
+			new Benchmark("show", Mode.THROUGHPUT, (s, ops) -> {
+				long length = 0;
+				for (int i = 0; i < ops; i++) {
+					length += s.store.getAccount(s.randomAccount()).toString().length();
+				}
+				return length;
+			}),
+			new Benchmark("remove", Mode.THROUGHPUT, (s, ops) -> {
+				long removed = 0;
+				for (int i = 0; i < ops; i++) {
+					int n = s.random.nextInt(s.accountNumbers.length);
+					removed += s.store.removeAccount(s.accountNumbers[n]) ? 1 : 0;
+					s.store.createAccount(s.typeFor(n), s.accountNumbers[n], new Customer("C" + (n % 10_000), "Customer " + (n % 10_000)));
+				}
+				return removed;
+			}),
+			new Benchmark("monthly", Mode.AVERAGE_TIME, (s, ops) -> {
+				for (int i = 0; i < ops; i++) {
+					s.store.applyMonthlyUpdates();
+				}
+				return ops;
+			}),
+			new Benchmark("statistics", Mode.THROUGHPUT, (s, ops) -> {
+				long sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += (long) s.store.getTotalBalance() + s.store.size();
+				}
+				return sum;
+			}));
+
+	/** Keeps benchmark results observable so the JIT cannot drop the work. */
+	private static volatile long sink;
+
+	private BankBenchmark() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = parseOptions(args);
+		if (options.containsKey("compare")) {
+			compare(Path.of(options.get("compare")), Path.of(options.get("compare2")));
+			return;
+		}
+		List<Integer> sizes = new ArrayList<>();
+		for (String size : options.getOrDefault("sizes", "1000,100000").split(",")) {
+			sizes.add(Integer.parseInt(size.replace("_", "")));
+		}
+		String[] mixes = options.getOrDefault("mix", "1:1:1").split(",");
+		List<String> selected = List.of(options.getOrDefault("benchmarks",
+				"create,deposit,withdraw,show,remove,transfer,monthly,summaries,export,statistics,save,load").split(","));
+		String store = options.getOrDefault("store", "bank");
+		if (!store.equals("bank") && !store.equals("columnar")) {
+			throw new IllegalArgumentException("Store must be bank or columnar, got: " + store);
+		}
+		boolean columnar = store.equals("columnar");
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+		int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+		long iterationNanos = Long.parseLong(options.getOrDefault("time", "1000")) * 1_000_000;
+
+		Account.setReceiptSink(ReceiptSink.NONE);
+		Path file = Files.createTempFile("bank-benchmark", ".dat");
+		List<String> results = new ArrayList<>();
+		System.out.println("Store: " + store);
+		System.out.printf("%-12s %10s %7s %6s %14s %12s  %s%n", "Benchmark", "size", "mix", "mode", "score", "+- stdev", "unit");
+		try {
+			for (String mix : mixes) {
+				int[] weights = parseMix(mix);
+				for (int size : sizes) {
+					for (Benchmark benchmark : columnar ? COLUMNAR_BENCHMARKS : BENCHMARKS) {
+						if (!selected.contains(benchmark.name())) {
+							continue;
+						}
+						// A fresh bank per benchmark, so one benchmark's changes do not skew the next
+						Files.deleteIfExists(file);
+						State state = new State(size, weights, file, columnar);
+						double[] scores = measure(benchmark, state, warmup, iterations, iterationNanos);
+						double mean = mean(scores);
+						double stdev = stdev(scores, mean);
+						System.out.printf(Locale.ROOT, "%-12s %10d %7s %6s %14.3f %12.3f  %s%n",
+								benchmark.name(), size, mix, benchmark.mode().label, mean, stdev, benchmark.mode().unit);
+						results.add(String.format(Locale.ROOT,
+								"{\"benchmark\":\"%s\",\"store\":\"%s\",\"size\":%d,\"mix\":\"%s\",\"mode\":\"%s\","
+										+ "\"score\":%.6f,\"scoreError\":%.6f,\"unit\":\"%s\",\"iterations\":%d}",
+								benchmark.name(), store, size, mix, benchmark.mode().label, mean, stdev,
+								benchmark.mode().unit, iterations));
+					}
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+		if (options.containsKey("out")) {
+			Files.write(Path.of(options.get("out")), results, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Runs warmup iterations, then measurement iterations of at least the given
+	 * length, and returns one score per measurement iteration.
+	 */
+	private static double[] measure(Benchmark benchmark, State state, int warmup, int iterations,
+			long iterationNanos) throws IOException {
+		double[] scores = new double[iterations];
+		for (int i = -warmup; i < iterations; i++) {
+			long ops = 0;
+			int batch = 1;
+			long start = System.nanoTime();
+			long elapsed;
+			do {
+				sink += benchmark.operation().run(state, batch);
+				ops += batch;
+				elapsed = System.nanoTime() - start;
+				// Grow the batch so timer calls do not dominate fast operations
+				if (elapsed < iterationNanos / 100) {
+					batch = Math.min(batch * 2, 1 << 20);
+				}
+			} while (elapsed < iterationNanos);
+			if (i >= 0) {
+				scores[i] = benchmark.mode() == Mode.THROUGHPUT ? ops * 1e9 / elapsed : elapsed / 1e6 / ops;
+			}
+		}
+		return scores;
+	}
+
+	/** Prints, for every result in both files, the candidate's change relative to the baseline. */
+	private static void compare(Path baseline, Path candidate) throws IOException {
+		Map<String, double[]> before = readResults(baseline);
+		Map<String, double[]> after = readResults(candidate);
+		try (PrintWriter out = new PrintWriter(System.out, true)) {
+			out.printf("%-40s %14s %14s %9s%n", "Benchmark (size, mix, mode)", "baseline", "candidate", "change");
+			for (Map.Entry<String, double[]> entry : after.entrySet()) {
+				double[] old = before.get(entry.getKey());
+				if (old == null) {
+					continue;
+				}
+				double change = (entry.getValue()[0] - old[0]) / old[0] * 100;
+				// For average time a drop is an improvement; flip the sign so + always means faster
+				if (entry.getValue()[1] == 1) {
+					change = -change;
+				}
+				out.printf(Locale.ROOT, "%-40s %14.3f %14.3f %+8.1f%%%n", entry.getKey(), old[0], entry.getValue()[0], change);
+			}
+		}
+	}
+
+	/** Reads a JSON Lines results file into key -> {score, 1 if average time else 0}. */
+	private static Map<String, double[]> readResults(Path file) throws IOException {
+		Pattern field = Pattern.compile("\"(\\w+)\":\"?([^,\"}]*)\"?");
+		Map<String, double[]> results = new LinkedHashMap<>();
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			Map<String, String> fields = new HashMap<>();
+			Matcher m = field.matcher(line);
+			while (m.find()) {
+				fields.put(m.group(1), m.group(2));
+			}
+			if (fields.containsKey("benchmark")) {
+				String key = fields.get("benchmark") + " (" + fields.get("size") + ", " + fields.get("mix") + ", "
+						+ fields.get("mode") + ")";
+				results.put(key, new double[] { Double.parseDouble(fields.get("score")),
+						fields.get("mode").equals(Mode.AVERAGE_TIME.label) ? 1 : 0 });
+			}
+		}
+		return results;
+	}
+
+	private static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--") || i + 1 >= args.length) {
+				throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+			}
+			String name = args[i].substring(2);
+			options.put(name, args[++i]);
+			if (name.equals("compare")) {
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("--compare needs a baseline and a candidate file.");
+				}
+				options.put("compare2", args[++i]);
+			}
+		}
+		return options;
+	}
+
+	private static int[] parseMix(String mix) {
+		String[] parts = mix.split(":");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Mix must be checking:gold:regular weights, got: " + mix);
+		}
+		int[] weights = { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) };
+		if (weights[0] < 0 || weights[1] < 0 || weights[2] < 0 || weights[0] + weights[1] + weights[2] == 0) {
+			throw new IllegalArgumentException("Mix weights must be non-negative and not all zero: " + mix);
+		}
+		return weights;
+	}
+
+	private static double mean(double[] values) {
+		double sum = 0;
+		for (double v : values) {
+			sum += v;
+		}
+		return sum / values.length;
+	}
+
+	private static double stdev(double[] values, double mean) {
+		if (values.length < 2) {
+			return 0;
+		}
+		double sum = 0;
+		for (double v : values) {
+			sum += (v - mean) * (v - mean);
+		}
+		return Math.sqrt(sum / (values.length - 1));
+	}
+}
@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A point-in-time view of a Bank's accounts, captured while the bank keeps running.
+ *
+ * Starting a checkpoint only installs this object, so the pause does not depend
+ * on the number of accounts. From then on Bank calls {@link #beforeChange(Account)}
+ * before it changes an account, and the first such call saves the account's state
+ * as it was at the cut (copy-on-write). The background writer reads each account
+ * either from that saved copy or, if it was never changed, from the live account.
+ * The account lock and {@link Account#getCheckpointEpoch()} decide which of the
+ * two gets there first, so every account is captured exactly once.
+ *
+ * Accounts created after the cut are left out, and accounts removed after the cut
+ * are still included. Customer names are read when the snapshot is written.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+final class BankCheckpoint {
+
+	/** State of one account at the cut; history is a copy, or null if none is kept. */
+	record AccountState(Account account, long balanceCents, int transactionCount, AccountHistory history) {
+
+		/** Reads the current state of an account; the caller holds its lock. */
+		static AccountState of(Account acc) {
+			AccountHistory history = acc.getHistory();
+			return of(acc, history != null ? history.copy() : null);
+		}
+
+		/** Reads the current state of an account, saving the given history with it. */
+		static AccountState of(Account acc, AccountHistory history) {
+			int transactions = acc instanceof CheckingAccount checking ? checking.getTransactionCount() : 0;
+			return new AccountState(acc, acc.getBalanceCents(), transactions, history);
+		}
+	}
+
+	/** Saved instead of a state for accounts created after the cut. */
+	private static final AccountState CREATED = new AccountState(null, 0, 0, null);
+
+	private final long epoch;
+	private final long generation;
+
+	/** States of accounts changed after the cut but not yet captured by the writer. */
+	private final Map<Account, AccountState> savedStates = new ConcurrentHashMap<>();
+
+	/** Accounts removed after the cut; they still belong in the snapshot. */
+	private final Queue<Account> removed = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param epoch unique, increasing number of this checkpoint within its bank
+	 * @param generation snapshot generation to record in the file
+	 */
+	BankCheckpoint(long epoch, long generation) {
+		this.epoch = epoch;
+		this.generation = generation;
+	}
+
+	/** @return the snapshot generation to record in the file. */
+	long getGeneration() {
+		return generation;
+	}
+
+	/** Saves the account's state at the cut, if nothing has captured it yet. */
+	void beforeChange(Account acc) {
+		Lock lock = acc.getLock();
+		lock.lock();
+		try {
+			if (acc.getCheckpointEpoch() != epoch) {
+				acc.setCheckpointEpoch(epoch);
+				savedStates.put(acc, AccountState.of(acc));
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Marks an account created after the cut so the writer leaves it out. */
+	void accountAdded(Account acc) {
+		Lock lock = acc.getLock();
+		lock.lock();
+		try {
+			acc.setCheckpointEpoch(epoch);
+			savedStates.put(acc, CREATED);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Forgets an account passed to {@link #accountAdded(Account)} whose creation then failed. */
+	void accountRejected(Account acc) {
+		savedStates.remove(acc);
+	}
+
+	/** Saves a removed account's state at the cut so it is still written. */
+	void accountRemoved(Account acc) {
+		beforeChange(acc);
+		removed.add(acc);
+	}
+
+	/**
+	 * Captures the state at the cut of every account.
+	 *
+	 * @param live the bank's accounts; iterated once, concurrently with changes
+	 * @return one state per account that existed at the cut
+	 */
+	List<AccountState> collect(Collection<Account> live) {
+		List<AccountState> states = new ArrayList<>(live.size());
+		for (Account acc : live) {
+			AccountState state;
+			Lock lock = acc.getLock();
+			lock.lock();
+			try {
+				if (acc.getCheckpointEpoch() == epoch) {
+					state = savedStates.remove(acc);
+				} else {
+					acc.setCheckpointEpoch(epoch);
+					state = AccountState.of(acc);
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (state != null && state != CREATED) {
+				states.add(state);
+			}
+		}
+		// Accounts still present after the pass above were seen by it; the rest are added here
+		for (Account acc : removed) {
+			AccountState state = savedStates.remove(acc);
+			if (state != null && state != CREATED) {
+				states.add(state);
+			}
+		}
+		return states;
+	}
+}
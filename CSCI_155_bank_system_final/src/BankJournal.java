@@ -0,0 +1,749 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal of Bank operations.
+ *
+ * Every successful createAccount, deposit, withdraw, transfer, removeAccount and
+ * applyMonthlyUpdates call is appended as one length-prefixed record with a
+ * CRC-32C of its contents. On startup the journal is replayed on top of the last
+ * snapshot to recover operations made since that snapshot. Replay stops at the
+ * first record that is cut short or fails its checksum; the bytes from there on
+ * are copied to a {@code .damaged} file before they are dropped.
+ *
+ * Syncing uses group commit: callers waiting for durability share a single
+ * {@code force()} call. With a durability window of 0 each append waits until its
+ * record is on disk; with a positive window appends return immediately and a
+ * background thread syncs at least once per window, so at most one window of
+ * operations can be lost on a crash.
+ *
+ * Whenever the clock has moved on since the last record, a time record goes
+ * before the next one, so replay can time account history as it happened.
+ *
+ * The journal header stores a generation number that matches the snapshot it
+ * applies to, so a journal that is already contained in a newer snapshot is never
+ * replayed twice. A background checkpoint appends a marker record carrying the
+ * new generation at its cut; once that snapshot is on disk,
+ * {@link #compact(long, long)} drops the records before the marker. If the process
+ * stops in between, replay skips ahead to the marker matching the snapshot.
+ * A journal whose generation is newer than the snapshot's holds operations the
+ * snapshot lacks, so replay refuses it rather than discarding it.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankJournal implements Closeable {
+
+	/** File signature, the ASCII bytes "BJN2". */
+	private static final int MAGIC = 0x424A4E32;
+
+	/** Signature of journals written before records had checksums, the ASCII bytes "BJNL". */
+	private static final int LEGACY_MAGIC = 0x424A4E4C;
+
+	/** Size of the file header: magic + generation. */
+	private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+	/** Size of the framing before each record: length + checksum. */
+	private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+	/** Record types. */
+	private static final byte OP_CREATE = 1;
+	private static final byte OP_DEPOSIT = 2;
+	private static final byte OP_WITHDRAW = 3;
+	private static final byte OP_REMOVE = 4;
+	private static final byte OP_MONTHLY = 5;
+	private static final byte OP_CHECKPOINT = 6;
+	private static final byte OP_TRANSFER = 7;
+	private static final byte OP_TIME = 8;
+
+	/** Value of {@link #loggedMillis} when the next record must be preceded by a time record. */
+	private static final long NO_TIME = Long.MIN_VALUE;
+
+	private final Path path;
+	private FileChannel channel;
+	private final long durabilityWindowMillis;
+	private final Thread flusher;
+
+	/** Records appended but not yet written to the channel. */
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+	/** Sequence number of the last appended record. */
+	private long appendedSeq;
+
+	/** Time carried by the last time record appended, or {@link #NO_TIME}. */
+	private long loggedMillis = NO_TIME;
+
+	/** Sequence number of the last record known to be on disk. */
+	private long syncedSeq;
+
+	/** True while one caller is writing and syncing on behalf of the group. */
+	private boolean syncing;
+
+	/**
+	 * Why a write or sync failed, or null. Records appended before the failure
+	 * may never reach the disk, so from then on every caller waiting for a sync
+	 * gets this error, until a snapshot lets the journal start over (see
+	 * {@link #compact(long, long)} and {@link #reset(long)}).
+	 */
+	private IOException failure;
+
+	/**
+	 * Guards the fields above. A lock rather than this object's monitor, so
+	 * virtual threads waiting for a sync do not pin their carrier thread.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Signalled whenever a sync finishes. */
+	private final Condition syncDone = lock.newCondition();
+
+	private boolean closed;
+
+	/**
+	 * Opens (or creates) a journal file.
+	 *
+	 * @param filename The journal file.
+	 * @param durabilityWindowMillis 0 to sync every append before returning, or
+	 *        the maximum time in milliseconds an append may stay unsynced.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public BankJournal(String filename, long durabilityWindowMillis) throws IOException {
+		if (durabilityWindowMillis < 0) {
+			throw new IllegalArgumentException("Durability window cannot be negative.");
+		}
+		this.path = Path.of(filename);
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.durabilityWindowMillis = durabilityWindowMillis;
+		if (durabilityWindowMillis > 0) {
+			this.flusher = new Thread(this::flushLoop, "bank-journal-flusher");
+			this.flusher.setDaemon(true);
+			this.flusher.start();
+		} else {
+			this.flusher = null;
+		}
+	}
+
+	// -------- Recording --------
+
+	/**
+	 * Each log method encodes and queues one record and returns its sequence
+	 * number. Callers pass it to {@link #commit(long)} once they have released any
+	 * locks, so slow disk syncs never happen while an account is locked.
+	 */
+	long logCreate(String type, String accountNumber, Customer customer) {
+		return append(OP_CREATE, out -> {
+			out.writeUTF(type.toLowerCase());
+			out.writeUTF(accountNumber);
+			out.writeUTF(customer.getCustomerId());
+			out.writeUTF(customer.getName());
+		});
+	}
+
+	long logDeposit(String accountNumber, double amount) {
+		return append(OP_DEPOSIT, out -> {
+			out.writeUTF(accountNumber);
+			out.writeDouble(amount);
+		});
+	}
+
+	long logWithdraw(String accountNumber, double amount) {
+		return append(OP_WITHDRAW, out -> {
+			out.writeUTF(accountNumber);
+			out.writeDouble(amount);
+		});
+	}
+
+	long logTransfer(String fromAccountNumber, String toAccountNumber, double amount) {
+		return append(OP_TRANSFER, out -> {
+			out.writeUTF(fromAccountNumber);
+			out.writeUTF(toAccountNumber);
+			out.writeDouble(amount);
+		});
+	}
+
+	long logRemove(String accountNumber) {
+		return append(OP_REMOVE, out -> out.writeUTF(accountNumber));
+	}
+
+	long logMonthlyUpdate() {
+		return append(OP_MONTHLY, out -> { });
+	}
+
+	/** Marks the cut of a checkpoint; records after it are not in that snapshot. */
+	long logCheckpoint(long generation) {
+		return append(OP_CHECKPOINT, out -> out.writeLong(generation));
+	}
+
+	/**
+	 * Waits, if the journal syncs every operation, until the record with the given
+	 * sequence number is on disk. With a durability window this returns at once.
+	 *
+	 * @param seq sequence number returned by one of the log methods.
+	 */
+	void commit(long seq) {
+		if (durabilityWindowMillis == 0) {
+			awaitSync(seq);
+		}
+	}
+
+	/** Writes the body of one record. */
+	@FunctionalInterface
+	private interface RecordWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/** Encodes a record, adds it to the pending batch, and returns its sequence number. */
+	private long append(byte op, RecordWriter body) {
+		byte[] record = encode(op, body);
+		lock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("Journal is closed.");
+			}
+			long now = System.currentTimeMillis();
+			if (now != loggedMillis) {
+				pending.writeBytes(encode(OP_TIME, out -> out.writeLong(now)));
+				loggedMillis = now;
+			}
+			pending.writeBytes(record);
+			if (op == OP_CHECKPOINT) {
+				// Compaction drops everything up to the marker, so the records after it need their own time
+				loggedMillis = NO_TIME;
+			}
+			return ++appendedSeq;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** @return a record with its length and checksum filled in. */
+	private static byte[] encode(byte op, RecordWriter body) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(0); // length placeholder
+			out.writeInt(0); // checksum placeholder
+			out.writeByte(op);
+			body.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		byte[] record = bytes.toByteArray();
+		CRC32C crc = new CRC32C();
+		crc.update(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE);
+		ByteBuffer.wrap(record).putInt(0, record.length - RECORD_HEADER_SIZE).putInt(Integer.BYTES, (int) crc.getValue());
+		return record;
+	}
+
+	/**
+	 * Blocks until every record up to {@code seq} is on disk. The first waiter
+	 * becomes the leader and syncs the whole pending batch for everyone. If the
+	 * write or sync fails, the leader and every other waiter for that batch, and
+	 * all later ones, get the error; records are never reported synced unless
+	 * they are.
+	 *
+	 * @throws UncheckedIOException if the journal could not write or sync
+	 */
+	private void awaitSync(long seq) {
+		ByteArrayOutputStream batch;
+		long target;
+		lock.lock();
+		try {
+			while (syncedSeq < seq && syncing) {
+				syncDone.awaitUninterruptibly();
+			}
+			if (syncedSeq >= seq) {
+				return;
+			}
+			if (failure != null) {
+				throw new UncheckedIOException("Journal failed; operations may not be on disk", failure);
+			}
+			syncing = true;
+			batch = pending;
+			pending = new ByteArrayOutputStream();
+			target = appendedSeq;
+		} finally {
+			lock.unlock();
+		}
+		IOException error = null;
+		try {
+			ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+			while (buf.hasRemaining()) {
+				channel.write(buf, channel.size());
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			lock.lock();
+			try {
+				syncing = false;
+				if (error == null && failure == null) {
+					syncedSeq = Math.max(syncedSeq, target);
+				} else if (failure == null) {
+					// Part of the batch may be on disk, so it cannot be retried without duplicating records
+					failure = error != null ? error : new IOException("Journal write failed.");
+				}
+				syncDone.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (error != null) {
+			throw new UncheckedIOException(error);
+		}
+	}
+
+	/** Syncs everything appended so far. */
+	public void sync() {
+		long seq;
+		lock.lock();
+		try {
+			seq = appendedSeq;
+		} finally {
+			lock.unlock();
+		}
+		awaitSync(seq);
+	}
+
+	/** Background loop used when a durability window is configured. */
+	private void flushLoop() {
+		while (true) {
+			try {
+				Thread.sleep(durabilityWindowMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			lock.lock();
+			try {
+				if (closed) return;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				sync();
+			} catch (UncheckedIOException e) {
+				// Every later sync fails the same way until a snapshot resets the journal
+				System.err.println("Journal sync failed: " + e.getMessage());
+				lock.lock();
+				try {
+					while (failure != null && !closed) {
+						syncDone.awaitUninterruptibly();
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	// -------- Recovery and checkpoints --------
+
+	/**
+	 * Replays the journal into the given bank if it belongs to the bank's current
+	 * snapshot generation. If the journal is older but contains the checkpoint
+	 * marker of the bank's generation, only the records after the marker are
+	 * replayed; otherwise an older journal is already contained in the snapshot and
+	 * is discarded. Replay stops at a damaged record, such as one torn by a crash
+	 * mid-write; the bytes from it on are set aside in a {@code .damaged} file. A
+	 * journal written before records had checksums is rewritten with them.
+	 *
+	 * @param bank The bank loaded from the last snapshot; must not have a journal attached.
+	 * @return the number of records replayed.
+	 * @throws IOException if the journal cannot be read, or if it is newer than the
+	 *         bank's snapshot; the journal is then left untouched.
+	 */
+	public int replayInto(Bank bank) throws IOException {
+		long generation = bank.getJournalGeneration();
+		if (channel.size() < HEADER_SIZE) {
+			reset(generation);
+			return 0;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining()) {
+			channel.read(header, header.position());
+		}
+		int magic = header.getInt(0);
+		if (magic != MAGIC && magic != LEGACY_MAGIC) {
+			throw new IOException("Not a bank journal.");
+		}
+		boolean legacy = magic == LEGACY_MAGIC;
+		long journalGeneration = header.getLong(Integer.BYTES);
+		boolean replaying = journalGeneration == generation;
+		long lastMarker = generation;
+
+		int replayed = 0;
+		RecordReader records = new RecordReader(channel, HEADER_SIZE, !legacy);
+		for (byte[] record = records.next(); record != null; record = records.next()) {
+			long marker = checkpointMarker(record);
+			if (marker >= 0) {
+				// Start after the cut of the loaded snapshot; later markers belong to unfinished checkpoints
+				replaying |= marker == generation;
+				lastMarker = Math.max(lastMarker, marker);
+			} else if (replaying) {
+				apply(bank, new DataInputStream(new ByteArrayInputStream(record)));
+				if (record[0] != OP_TIME) {
+					replayed++;
+				}
+			}
+		}
+		if (!replaying && (journalGeneration > generation || lastMarker > generation)) {
+			throw new IOException("Journal generation " + Math.max(journalGeneration, lastMarker)
+					+ " is newer than the snapshot's generation " + generation
+					+ "; its operations are missing from the snapshot, so it was left untouched.");
+		}
+		if (records.damage != null) {
+			setAside(records.position, records.damage);
+		}
+		if (!replaying) {
+			reset(generation);
+			return 0;
+		}
+		channel.truncate(records.position);
+		if (legacy) {
+			upgrade(journalGeneration);
+		}
+		// Never reuse the generation of a marker still in this journal
+		bank.setJournalGeneration(lastMarker);
+		return replayed;
+	}
+
+	/**
+	 * Copies the journal from the given offset to its end into a new
+	 * {@code .damaged} file, so bytes dropped by replay can still be inspected.
+	 */
+	private void setAside(long from, String reason) throws IOException {
+		Path damaged = Path.of(path + ".damaged." + System.currentTimeMillis());
+		long size = channel.size();
+		try (FileChannel out = FileChannel.open(damaged, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			for (long copied = from; copied < size; ) {
+				copied += channel.transferTo(copied, size - copied, out);
+			}
+			out.force(true);
+		}
+		System.err.printf("Journal damaged at offset %d (%s); dropped %d bytes, saved to %s%n",
+				from, reason, size - from, damaged);
+	}
+
+	/** Rewrites a replayed journal without checksums in the current format, keeping its generation. */
+	private void upgrade(long generation) throws IOException {
+		Path temp = Path.of(path + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)));
+			data.writeInt(MAGIC);
+			data.writeLong(generation);
+			RecordReader records = new RecordReader(channel, HEADER_SIZE, false);
+			for (byte[] record = records.next(); record != null; record = records.next()) {
+				data.writeInt(record.length);
+				data.writeInt(checksum(record));
+				data.write(record);
+			}
+			data.flush();
+			out.force(true);
+		}
+		replaceWith(temp);
+	}
+
+	/** Moves a rewritten journal into place and switches to it. */
+	private void replaceWith(Path temp) throws IOException {
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		FileChannel old = channel;
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		old.close();
+	}
+
+	/** @return the CRC-32C of a record's contents, as stored before it. */
+	private static int checksum(byte[] record) {
+		CRC32C crc = new CRC32C();
+		crc.update(record);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Reads a journal's records in order, stopping at the end of the file or at
+	 * the first record that is cut short or fails its checksum.
+	 */
+	private static final class RecordReader {
+		private final DataInputStream in;
+		private final boolean checksummed;
+		private final long size;
+
+		/** End of the last good record read. */
+		long position;
+
+		/** Why reading stopped before the end of the file, or null if it did not. */
+		String damage;
+
+		RecordReader(FileChannel channel, long position, boolean checksummed) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(position))));
+			this.size = channel.size();
+			this.position = position;
+			this.checksummed = checksummed;
+		}
+
+		/** @return the next record's type and body, or null after the last good record. */
+		byte[] next() throws IOException {
+			if (position >= size) {
+				return null;
+			}
+			int framing = checksummed ? RECORD_HEADER_SIZE : Integer.BYTES;
+			try {
+				int length = in.readInt();
+				int stored = checksummed ? in.readInt() : 0;
+				if (length <= 0 || length > size - position - framing) {
+					damage = "record cut short";
+					return null;
+				}
+				byte[] record = new byte[length];
+				in.readFully(record);
+				if (checksummed && stored != checksum(record)) {
+					damage = "checksum mismatch";
+					return null;
+				}
+				position += framing + length;
+				return record;
+			} catch (EOFException e) {
+				damage = "record cut short";
+				return null;
+			}
+		}
+	}
+
+	/** @return the generation of a checkpoint marker record, or -1 for other records. */
+	private static long checkpointMarker(byte[] record) {
+		return record[0] == OP_CHECKPOINT ? ByteBuffer.wrap(record, 1, Long.BYTES).getLong() : -1;
+	}
+
+	/** Applies one decoded record to the bank, through paths that leave its metrics alone. */
+	private static void apply(Bank bank, DataInputStream in) throws IOException {
+		byte op = in.readByte();
+		switch (op) {
+		case OP_CREATE:
+			String type = in.readUTF();
+			String accountNumber = in.readUTF();
+			bank.createAccountUnmetered(type, accountNumber, new Customer(in.readUTF(), in.readUTF()));
+			break;
+		case OP_DEPOSIT:
+			bank.depositUnmetered(in.readUTF(), in.readDouble());
+			break;
+		case OP_WITHDRAW:
+			bank.withdrawUnmetered(in.readUTF(), in.readDouble());
+			break;
+		case OP_REMOVE:
+			bank.removeAccountUnmetered(in.readUTF());
+			break;
+		case OP_MONTHLY:
+			bank.applyMonthlyUpdatesUnmetered();
+			break;
+		case OP_TRANSFER:
+			bank.transferUnmetered(in.readUTF(), in.readUTF(), in.readDouble());
+			break;
+		case OP_TIME:
+			bank.setReplayTime(in.readLong());
+			break;
+		default:
+			throw new IOException("Unknown journal record type: " + op);
+		}
+	}
+
+	/**
+	 * Drops the records before the checkpoint marker of the given generation,
+	 * after that snapshot has been safely written. The marker is synced first,
+	 * so it and everything before it are on disk; the rest of the journal is
+	 * copied to a new file that replaces this one atomically. Appends continue
+	 * meanwhile; only syncs wait. If the marker is not found the journal is left
+	 * as it is, keeping its old generation. If an earlier write failed, the
+	 * journal starts over from the marker instead (see {@link #restartAfter(long)}).
+	 *
+	 * @param generation The generation of the snapshot just written.
+	 * @param markerSeq The sequence number {@link #logCheckpoint(long)} returned for its marker.
+	 * @throws IOException if the journal cannot be rewritten.
+	 */
+	void compact(long generation, long markerSeq) throws IOException {
+		lock.lock();
+		try {
+			while (syncing) {
+				syncDone.awaitUninterruptibly();
+			}
+			if (failure != null) {
+				restartAfter(generation);
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		try {
+			awaitSync(markerSeq);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		lock.lock();
+		try {
+			while (syncing) {
+				syncDone.awaitUninterruptibly();
+			}
+			syncing = true; // keeps other syncs off the channel while it is replaced
+		} finally {
+			lock.unlock();
+		}
+		try {
+			// Find the end of the marker
+			long keepFrom = -1;
+			RecordReader records = new RecordReader(channel, HEADER_SIZE, true);
+			for (byte[] record = records.next(); record != null; record = records.next()) {
+				if (checkpointMarker(record) == generation) {
+					keepFrom = records.position;
+					break;
+				}
+			}
+			if (keepFrom < 0) {
+				return; // nothing is known to be in the snapshot, so nothing is dropped
+			}
+
+			Path temp = Path.of(path + ".tmp");
+			try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putLong(generation).flip();
+				while (header.hasRemaining()) {
+					out.write(header);
+				}
+				long size = channel.size();
+				for (long copied = keepFrom; copied < size; ) {
+					copied += channel.transferTo(copied, size - copied, out);
+				}
+				out.force(true);
+			}
+			replaceWith(temp);
+		} finally {
+			lock.lock();
+			try {
+				syncing = false;
+				syncDone.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Starts a new journal after a failed write, from the checkpoint marker of the
+	 * given generation. The snapshot just written holds every operation before
+	 * the marker, including those whose records were lost, so only the records
+	 * after it are kept. This works only if the marker was appended after the
+	 * failure and is still waiting to be written; otherwise records after the
+	 * marker may be lost, and the journal stays failed. Called with the lock
+	 * held and no sync running.
+	 *
+	 * @throws IOException the original failure if the journal cannot start over,
+	 *         or an error writing the new file
+	 */
+	private void restartAfter(long generation) throws IOException {
+		byte[] unwritten = pending.toByteArray();
+		ByteBuffer records = ByteBuffer.wrap(unwritten);
+		int keepFrom = -1;
+		while (keepFrom < 0 && records.remaining() >= RECORD_HEADER_SIZE) {
+			int length = records.getInt();
+			records.getInt(); // checksum
+			byte[] record = new byte[length];
+			records.get(record);
+			if (checkpointMarker(record) == generation) {
+				keepFrom = records.position();
+			}
+		}
+		if (keepFrom < 0) {
+			throw failure;
+		}
+		Path temp = Path.of(path + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + unwritten.length - keepFrom)
+					.putInt(MAGIC).putLong(generation).put(unwritten, keepFrom, unwritten.length - keepFrom).flip();
+			while (data.hasRemaining()) {
+				out.write(data);
+			}
+			out.force(true);
+		}
+		replaceWith(temp);
+		pending = new ByteArrayOutputStream();
+		syncedSeq = appendedSeq;
+		failure = null;
+		syncDone.signalAll();
+	}
+
+	/**
+	 * Empties the journal and starts a new generation. Called after a snapshot
+	 * with the same generation has been safely written.
+	 *
+	 * @param generation The generation of the snapshot this journal now follows.
+	 * @throws IOException if the file cannot be rewritten.
+	 */
+	void reset(long generation) throws IOException {
+		lock.lock();
+		try {
+			while (syncing) {
+				syncDone.awaitUninterruptibly();
+			}
+			pending = new ByteArrayOutputStream();
+			syncedSeq = appendedSeq;
+			loggedMillis = NO_TIME;
+			failure = null; // the snapshot holds everything the failed records did
+			syncDone.signalAll();
+			channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putLong(generation).flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Syncs any pending records and closes the journal file.
+	 *
+	 * @throws IOException if the pending records could not be synced; the file is closed anyway
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException error = null;
+		try {
+			sync();
+		} catch (UncheckedIOException e) {
+			error = e.getCause();
+		}
+		lock.lock();
+		try {
+			closed = true;
+			syncDone.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if (flusher != null) {
+			flusher.interrupt();
+		}
+		channel.close();
+		if (error != null) {
+			throw error;
+		}
+	}
+}
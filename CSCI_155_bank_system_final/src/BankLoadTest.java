@@ -0,0 +1,158 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load-test client for {@link BankServer}.
+ *
+ * Opens a number of connections, creates one account per connection, and then
+ * sends a mix of deposits and withdrawals on every connection with up to
+ * {@code pipeline} requests outstanding at a time. Reports throughput and
+ * latency percentiles over all requests.
+ *
+ * Usage: {@code java BankLoadTest [host] [port] [connections] [requestsPerConnection] [pipeline]}
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankLoadTest {
+
+	private BankLoadTest() {
+	}
+
+	/**
+	 * Runs the load test.
+	 *
+	 * @param host server host
+	 * @param port server port
+	 * @param connections number of concurrent connections
+	 * @param requests requests per connection, after the account is created
+	 * @param pipeline maximum requests in flight per connection
+	 * @return latency of every request in nanoseconds, sorted, followed by the elapsed time
+	 * @throws Exception if a connection fails
+	 */
+	static long[] run(String host, int port, int connections, int requests, int pipeline) throws Exception {
+		long[][] latencies = new long[connections][];
+		AtomicLong errors = new AtomicLong();
+		List<Thread> clients = new ArrayList<>(connections);
+		String run = Long.toString(System.nanoTime(), 36);
+		long start = System.nanoTime();
+		for (int c = 0; c < connections; c++) {
+			int client = c;
+			clients.add(Thread.ofVirtual().start(() -> {
+				try {
+					latencies[client] = runClient(host, port, "LT" + run + "-" + client, requests, pipeline, errors);
+				} catch (IOException | InterruptedException e) {
+					throw new IllegalStateException("Client " + client + " failed: " + e.getMessage(), e);
+				}
+			}));
+		}
+		for (Thread t : clients) {
+			t.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		if (errors.get() > 0) {
+			System.err.println(errors.get() + " requests answered with ERR");
+		}
+
+		long[] all = new long[connections * requests + 1];
+		int n = 0;
+		for (long[] l : latencies) {
+			if (l != null) {
+				System.arraycopy(l, 0, all, n, l.length);
+				n += l.length;
+			}
+		}
+		all = Arrays.copyOf(all, n + 1);
+		Arrays.sort(all, 0, n);
+		all[n] = elapsed;
+		return all;
+	}
+
+	/** Drives one connection: a sender keeps up to {@code pipeline} requests in flight while this thread reads responses. */
+	private static long[] runClient(String host, int port, String account, int requests, int pipeline,
+			AtomicLong errors) throws IOException, InterruptedException {
+		try (Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+			out.write("create gold " + account + " " + account + " Load Test\n");
+			out.flush();
+			if (!in.readLine().startsWith("OK")) {
+				throw new IOException("Could not create account " + account);
+			}
+
+			AtomicLongArray sentAt = new AtomicLongArray(requests);
+			long[] latencies = new long[requests];
+			Semaphore window = new Semaphore(pipeline);
+			Thread sender = Thread.ofVirtual().start(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				try {
+					for (int i = 0; i < requests; i++) {
+						window.acquire();
+						String op = random.nextInt(3) == 0 ? "withdraw " : "deposit ";
+						sentAt.set(i, System.nanoTime());
+						out.write(op + account + " " + (1 + random.nextInt(100)) + "\n");
+						// Flush once the window is used up, or when nothing else is ready to send
+						if (window.availablePermits() == 0 || i == requests - 1) {
+							out.flush();
+						}
+					}
+					out.flush();
+				} catch (IOException | InterruptedException e) {
+					// The connection is gone; the reading side reports it
+				}
+			});
+			for (int i = 0; i < requests; i++) {
+				String response = in.readLine();
+				if (response == null) {
+					throw new IOException("Server closed the connection.");
+				}
+				latencies[i] = System.nanoTime() - sentAt.get(i);
+				if (!response.startsWith("OK")) {
+					errors.incrementAndGet();
+				}
+				window.release();
+			}
+			sender.join();
+			return latencies;
+		}
+	}
+
+	/** Prints throughput and latency percentiles for a load test run. */
+	public static void main(String[] args) throws Exception {
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+		int connections = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int requests = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+		int pipeline = args.length > 4 ? Integer.parseInt(args[4]) : 32;
+
+		long[] result = run(host, port, connections, requests, pipeline);
+		int n = result.length - 1;
+		long elapsed = result[n];
+		System.out.printf("%d requests over %d connections (pipeline %d) in %d ms: %.0f requests/s%n",
+				n, connections, pipeline, elapsed / 1_000_000, n * 1e9 / elapsed);
+		System.out.printf("latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+				percentile(result, n, 0.50), percentile(result, n, 0.99),
+				percentile(result, n, 0.999), result[n - 1] / 1e6);
+	}
+
+	/** @return the given percentile of the first n sorted values, in milliseconds. */
+	private static double percentile(long[] sorted, int n, double p) {
+		return sorted[Math.min(n - 1, (int) Math.ceil(p * n) - 1)] / 1e6;
+	}
+}
@@ -0,0 +1,127 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts and latencies of a Bank's operations, one {@link OperationMetrics} per
+ * kind of operation. Always on; recording a call costs two clock reads and a few
+ * atomic updates, and allocates nothing.
+ *
+ * After {@link #register(String)} the metrics can be read with any JMX client,
+ * such as JConsole or VisualVM, as MBeans named
+ * {@code bank:type=Operation,bank=<name>,name=<operation>}.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankMetrics {
+
+	/** The kinds of operations measured. */
+	public enum Operation {
+		CREATE_ACCOUNT("createAccount"),
+		REMOVE_ACCOUNT("removeAccount"),
+		DEPOSIT("deposit"),
+		WITHDRAW("withdraw"),
+		TRANSFER("transfer"),
+		APPLY_BATCH("applyBatch"),
+		MONTHLY_UPDATE("applyMonthlyUpdates"),
+		SAVE("saveToFile"),
+		/** A full or delta save, from marking the cut until the file is written. */
+		CHECKPOINT("checkpoint");
+
+		private final String methodName;
+
+		Operation(String methodName) {
+			this.methodName = methodName;
+		}
+
+		/** @return the name of the Bank method, used as the MBean name. */
+		public String getMethodName() {
+			return methodName;
+		}
+	}
+
+	private final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+
+	private final List<ObjectName> registered = new ArrayList<>();
+
+	BankMetrics() {
+		for (int i = 0; i < operations.length; i++) {
+			operations[i] = new OperationMetrics();
+		}
+	}
+
+	/**
+	 * Records one call of an operation.
+	 *
+	 * @param operation the operation called
+	 * @param startNanos {@link System#nanoTime()} when the call began
+	 * @param succeeded false if the call failed
+	 */
+	void record(Operation operation, long startNanos, boolean succeeded) {
+		operations[operation.ordinal()].record(startNanos, succeeded);
+	}
+
+	/** @return the metrics of one operation. */
+	public OperationMetrics get(Operation operation) {
+		return operations[operation.ordinal()];
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server.
+	 *
+	 * @param bankName distinguishes this bank from others in the same JVM
+	 * @throws JMException if the metrics of a bank with this name are already registered
+	 */
+	public synchronized void register(String bankName) throws JMException {
+		if (!registered.isEmpty()) {
+			throw new IllegalStateException("Metrics are already registered.");
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for (Operation operation : Operation.values()) {
+				ObjectName name = new ObjectName("bank:type=Operation,bank=" + ObjectName.quote(bankName)
+						+ ",name=" + operation.getMethodName());
+				server.registerMBean(get(operation), name);
+				registered.add(name);
+			}
+		} catch (JMException e) {
+			unregister();
+			throw e;
+		}
+	}
+
+	/** Removes the metrics from the platform MBean server, if registered. */
+	public synchronized void unregister() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registered) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				// Already gone
+			}
+		}
+		registered.clear();
+	}
+
+	/** Clears the counts and latencies of every operation. */
+	public void reset() {
+		for (OperationMetrics metrics : operations) {
+			metrics.reset();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Operation operation : Operation.values()) {
+			sb.append(String.format("%-20s %s%n", operation.getMethodName(), get(operation)));
+		}
+		return sb.toString();
+	}
+}
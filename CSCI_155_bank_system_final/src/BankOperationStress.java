@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stress test and benchmark for concurrent deposits, withdrawals, account
+ * creation and removal on one {@link Bank}.
+ *
+ * Many threads pick random operations on a shared set of accounts. Every
+ * thread notes what it did, and the bank must agree with those notes once the
+ * threads finish:
+ * <ul>
+ *   <li>Gold accounts, whose withdrawals always take the full amount, hold
+ *       exactly their opening balance plus deposits minus withdrawals.</li>
+ *   <li>Checking accounts count exactly one transaction per deposit and
+ *       withdrawal, and their balance never goes below zero.</li>
+ *   <li>Accounts that threads race to create and remove exist exactly when
+ *       their successful creates outnumber their successful removals, which
+ *       differ by at most one.</li>
+ *   <li>The bank's statistics agree with its accounts, counted one by one.</li>
+ * </ul>
+ * The workers then run again while monthly updates are applied
+ * {@value #MONTH_ENDS} times. Interest and fees make balances unpredictable
+ * there, so that round checks only which accounts exist and the statistics.
+ *
+ * A lost update, a double create or a stale statistic fails the run; a
+ * deadlock shows up as the run never finishing.
+ *
+ * Usage: {@code java BankOperationStress [threads] [accounts] [operationsPerThread]}
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankOperationStress {
+
+	/** Starting balance of every lasting account, in dollars. */
+	private static final int OPENING_BALANCE = 1000;
+
+	/** Month-ends applied while the workers run again; a year, so interest stays far from overflow. */
+	private static final int MONTH_ENDS = 12;
+
+	/** Pause between those month-ends, spreading them over the workers' run. */
+	private static final long MONTH_END_PAUSE_MILLIS = 20;
+
+	private BankOperationStress() {
+	}
+
+	/**
+	 * Runs the stress test.
+	 *
+	 * @param threads number of worker threads
+	 * @param accountCount number of lasting accounts, half gold and half checking;
+	 *        a quarter as many more are created and removed during the run
+	 * @param operationsPerThread operations each thread makes
+	 * @return true if every check passed
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	static boolean run(int threads, int accountCount, int operationsPerThread) throws InterruptedException {
+		Account.setReceiptSink(ReceiptSink.NONE);
+		Bank bank = new Bank();
+		String[] accounts = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accounts[i] = String.format("L%07d", i);
+			bank.createAccount(isGold(i) ? "gold" : "checking", accounts[i], new Customer("S" + i, "Stress " + i));
+			bank.deposit(accounts[i], OPENING_BALANCE);
+		}
+		// The opening deposits count as checking transactions too
+		int[] openingTransactions = new int[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			openingTransactions[i] = isGold(i) ? 0 : 1;
+		}
+		int churnCount = Math.max(1, accountCount / 4);
+		String[] churn = new String[churnCount];
+		for (int i = 0; i < churnCount; i++) {
+			churn[i] = String.format("X%07d", i);
+		}
+
+		Ledger ledger = new Ledger(accountCount, churnCount);
+		long elapsed = work(bank, accounts, churn, ledger, threads, operationsPerThread, false);
+
+		int failures = 0;
+		for (int i = 0; i < accountCount; i++) {
+			Account acc = findAccount(bank, accounts[i]);
+			if (isGold(i)) {
+				long expected = OPENING_BALANCE * 100L + ledger.depositedCents.get(i) - ledger.withdrawnCents.get(i);
+				if (acc.getBalanceCents() != expected) {
+					failures++;
+					System.err.printf("%s holds %d cents, expected %d%n", accounts[i], acc.getBalanceCents(), expected);
+				}
+			} else {
+				int expected = openingTransactions[i] + ledger.transactions.get(i);
+				int counted = ((CheckingAccount) acc).getTransactionCount();
+				if (counted != expected || acc.getBalanceCents() < 0) {
+					failures++;
+					System.err.printf("%s counted %d transactions, expected %d; balance %d cents%n",
+							accounts[i], counted, expected, acc.getBalanceCents());
+				}
+			}
+		}
+		failures += checkAccountSet(bank, churn, ledger);
+
+		long operations = (long) threads * operationsPerThread;
+		System.out.printf("%d threads, %d accounts: %d operations (%d creates, %d removals) in %d ms, %.0f operations/s%n",
+				threads, accountCount, operations, ledger.creates.get(), ledger.removes.get(), elapsed / 1_000_000,
+				operations * 1e9 / elapsed);
+
+		// Month-ends change balances and reset transaction counts, so with them running
+		// only the set of accounts and the statistics can be checked
+		Ledger monthEndLedger = new Ledger(accountCount, churnCount);
+		for (int i = 0; i < churnCount; i++) {
+			monthEndLedger.liveChurn.set(i, ledger.liveChurn.get(i));
+		}
+		long monthEnds = work(bank, accounts, churn, monthEndLedger, threads, operationsPerThread, true);
+		failures += checkAccountSet(bank, churn, monthEndLedger);
+		System.out.printf("Again with %d month-ends running: %d creates, %d removals%n",
+				monthEnds, monthEndLedger.creates.get(), monthEndLedger.removes.get());
+		System.out.printf("%d accounts at the end; %d checks failed%n", bank.getAccounts().size(), failures);
+		return failures == 0;
+	}
+
+	/** What the worker threads did, noted as they did it. */
+	private static final class Ledger {
+		final AtomicLongArray depositedCents;
+		final AtomicLongArray withdrawnCents;
+		final AtomicIntegerArray transactions;
+		/** Successful creates minus successful removals of each churning account. */
+		final AtomicIntegerArray liveChurn;
+		final AtomicLong creates = new AtomicLong();
+		final AtomicLong removes = new AtomicLong();
+
+		Ledger(int accountCount, int churnCount) {
+			depositedCents = new AtomicLongArray(accountCount);
+			withdrawnCents = new AtomicLongArray(accountCount);
+			transactions = new AtomicIntegerArray(accountCount);
+			liveChurn = new AtomicIntegerArray(churnCount);
+		}
+	}
+
+	/**
+	 * Runs the worker threads until each has made its operations, noting them in
+	 * the ledger. With {@code monthEnds}, the calling thread applies up to
+	 * {@link #MONTH_ENDS} monthly updates while the workers run.
+	 *
+	 * @return the elapsed nanoseconds, or with {@code monthEnds} the number of month-ends applied
+	 */
+	private static long work(Bank bank, String[] accounts, String[] churn, Ledger ledger, int threads,
+			int operationsPerThread, boolean monthEnds) throws InterruptedException {
+		CountDownLatch startSignal = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>(threads);
+		for (int t = 0; t < threads; t++) {
+			long seed = monthEnds ? threads + t : t;
+			workers.add(Thread.ofPlatform().name("operation-" + t).start(() -> {
+				SplittableRandom random = new SplittableRandom(seed);
+				try {
+					startSignal.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < operationsPerThread; i++) {
+					int choice = random.nextInt(100);
+					int dollars = 1 + random.nextInt(500);
+					if (choice < 70) {
+						int n = random.nextInt(accounts.length);
+						if (choice < 40) {
+							bank.deposit(accounts[n], dollars);
+							ledger.depositedCents.addAndGet(n, dollars * 100L);
+						} else {
+							bank.withdraw(accounts[n], dollars);
+							ledger.withdrawnCents.addAndGet(n, dollars * 100L);
+						}
+						ledger.transactions.incrementAndGet(n);
+						continue;
+					}
+					int n = random.nextInt(churn.length);
+					if (choice < 80) {
+						bank.deposit(churn[n], dollars); // may find the account gone
+					} else if (choice < 90) {
+						try {
+							bank.createAccount("regular", churn[n], new Customer("X" + n, "Churn " + n));
+							ledger.liveChurn.incrementAndGet(n);
+							ledger.creates.incrementAndGet();
+						} catch (IllegalArgumentException e) {
+							// Already exists
+						}
+					} else if (bank.removeAccount(churn[n])) {
+						ledger.liveChurn.decrementAndGet(n);
+						ledger.removes.incrementAndGet();
+					}
+				}
+			}));
+		}
+
+		long start = System.nanoTime();
+		startSignal.countDown();
+		long monthEndCount = 0;
+		if (monthEnds) {
+			while (monthEndCount < MONTH_ENDS && workers.stream().anyMatch(Thread::isAlive)) {
+				bank.applyMonthlyUpdates();
+				monthEndCount++;
+				Thread.sleep(MONTH_END_PAUSE_MILLIS);
+			}
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return monthEnds ? monthEndCount : System.nanoTime() - start;
+	}
+
+	/**
+	 * Checks that each churning account exists exactly when the ledger says it
+	 * should, and that the bank's statistics agree with its accounts.
+	 *
+	 * @return the number of failed checks
+	 */
+	private static int checkAccountSet(Bank bank, String[] churn, Ledger ledger) {
+		int failures = 0;
+		for (int i = 0; i < churn.length; i++) {
+			int live = ledger.liveChurn.get(i);
+			boolean exists = findAccount(bank, churn[i]) != null;
+			if (live < 0 || live > 1 || exists != (live == 1)) {
+				failures++;
+				System.err.printf("%s exists: %b, but creates minus removals is %d%n", churn[i], exists, live);
+			}
+		}
+		long totalCents = 0;
+		for (Account acc : bank.getAccounts()) {
+			totalCents += acc.getBalanceCents();
+		}
+		int accountsCounted = bank.getAccounts().size();
+		BankStatistics stats = bank.getStatistics();
+		if (stats.getAccountCount() != accountsCounted || Math.round(bank.getTotalBalance() * 100) != totalCents) {
+			failures++;
+			System.err.printf("Statistics report %d accounts and %.2f; counted %d accounts and %d cents%n",
+					stats.getAccountCount(), bank.getTotalBalance(), accountsCounted, totalCents);
+		}
+
+		return failures;
+	}
+
+	/** @return true if the i-th lasting account is a gold account; the rest are checking. */
+	private static boolean isGold(int i) {
+		return i % 2 == 0;
+	}
+
+	/** @return the account with the given number, or null if it does not exist. */
+	private static Account findAccount(Bank bank, String accountNumber) {
+		for (Account acc : bank.getAccounts()) {
+			if (acc.getAccountNumber().equals(accountNumber)) {
+				return acc;
+			}
+		}
+		return null;
+	}
+
+	/** Runs the stress test and exits with status 1 if any check failed. */
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 4;
+		int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int operations = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+		if (run(threads, accounts, operations)) {
+			System.out.println("All operations accounted for.");
+		} else {
+			System.out.println("OPERATIONS LOST OR DUPLICATED.");
+			System.exit(1);
+		}
+	}
+}
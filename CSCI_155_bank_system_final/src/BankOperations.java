@@ -0,0 +1,111 @@
+/**
+ * The account operations the front ends use: {@link BankSystem}'s menu,
+ * {@link BankScript} and {@link BankServer}. Each storage or execution mode
+ * implements them, so a front end runs unchanged on any of them:
+ * {@link Bank} keeps its accounts in memory, {@link AccountStoreBank} keeps
+ * them in a file-backed {@link AccountRecordStore}, and
+ * {@link ShardedBank#asBankOperations()} runs them on a ShardedBank's shard
+ * threads.
+ *
+ * Implementations are thread-safe. What each adds beyond these operations,
+ * such as journaling, receipts or balance history, is described by the
+ * implementation.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public interface BankOperations {
+
+	/**
+	 * Creates a new account with a zero balance.
+	 *
+	 * @param type "checking", "gold", "regular" (case-insensitive)
+	 * @param accountNumber the unique account number
+	 * @param customer the customer who owns the account
+	 * @throws IllegalArgumentException if type is invalid, inputs are null/empty,
+	 *         or the account number is already in use
+	 */
+	void createAccount(String type, String accountNumber, Customer customer);
+
+	/**
+	 * @param accountNumber the account number to remove
+	 * @return true if removed, false if not found
+	 */
+	boolean removeAccount(String accountNumber);
+
+	/**
+	 * @param accountNumber the account number
+	 * @param amount the amount to deposit; must be at least one cent
+	 * @return true if successful; false if the account was not found
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	boolean deposit(String accountNumber, double amount);
+
+	/**
+	 * @param accountNumber the account number
+	 * @param amount the amount to withdraw; must be at least one cent
+	 * @return true if successful; false if the account was not found
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	boolean withdraw(String accountNumber, double amount);
+
+	/**
+	 * Moves money from one account to another: either both balances change or
+	 * neither does. Checking and Regular accounts cannot be overdrawn by a
+	 * transfer; Gold accounts can.
+	 *
+	 * @param fromAccountNumber the account to take the money from
+	 * @param toAccountNumber the account to add it to
+	 * @param amount the amount to move; must be at least one cent
+	 * @return true if successful; false if either account is not found
+	 * @throws IllegalArgumentException if the amount is not positive, both account
+	 *         numbers are the same, or the source account has insufficient funds
+	 */
+	boolean transfer(String fromAccountNumber, String toAccountNumber, double amount);
+
+	/**
+	 * Applies a batch of deposits and withdrawals in row order. Bad rows do not
+	 * throw; each row gets a status code in the result instead.
+	 *
+	 * @param batch the transactions to apply
+	 * @return per-row status codes and totals
+	 */
+	BatchResult applyBatch(TransactionBatch batch);
+
+	/**
+	 * @param accountNumber the account number
+	 * @return a description of the account, or a not-found message
+	 */
+	String displayAccountInfo(String accountNumber);
+
+	/** Applies monthly interest and fees to every account. */
+	void applyMonthlyUpdates();
+
+	/** @return the number of accounts */
+	long getAccountCount();
+
+	/**
+	 * @param type the account type
+	 * @return the number of accounts of that type
+	 */
+	long getAccountCount(AccountType type);
+
+	/** @return the total combined balance of all accounts */
+	double getTotalBalance();
+
+	/**
+	 * @param type the account type
+	 * @return the total balance of accounts of that type
+	 */
+	double getTotalBalance(AccountType type);
+
+	/** @return the average balance, or 0 if there are no accounts */
+	double getAverageBalance();
+
+	/** @return the number of accounts with a zero balance */
+	int getZeroBalanceCount();
+
+	/** @return the account with the largest balance, or null if there are none */
+	AccountView getLargestAccount();
+}
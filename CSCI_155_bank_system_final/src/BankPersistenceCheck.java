@@ -0,0 +1,375 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks that a Bank reloaded from its files matches the bank that wrote them,
+ * and that its CSV export holds what the bank holds.
+ *
+ * Each check drives a bank through a scenario in a fresh temporary directory,
+ * reloads it the way {@link BankSystem} does at startup, and compares every
+ * account of the two banks: number, type, balance, transaction count and owner,
+ * and where a check says so, past balances.
+ *
+ * Usage: {@code java BankPersistenceCheck}
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankPersistenceCheck {
+
+	private BankPersistenceCheck() {
+	}
+
+	/**
+	 * A rejected create must leave no trace, neither in the next delta nor in the
+	 * customer registry.
+	 *
+	 * @return true if the reloaded bank matches the live one
+	 * @throws IOException if the files cannot be written or read
+	 */
+	static boolean duplicateCreate(Path dir) throws IOException {
+		String file = dir.resolve("bank.dat").toString();
+		Bank bank = new Bank();
+		bank.checkpoint(file);
+		bank.createAccount("checking", "A001", new Customer("C1", "Ann"));
+		bank.deposit("A001", 305);
+		try {
+			bank.createAccount("gold", "A001", new Customer("C2", "Bob"));
+			return fail("duplicate create was accepted");
+		} catch (IllegalArgumentException expected) {
+			// rejected, as it should be
+		}
+		try {
+			bank.createAccount("savings", "A002", new Customer("C3", "Cy"));
+			return fail("invalid account type was accepted");
+		} catch (IllegalArgumentException expected) {
+			// rejected, as it should be
+		}
+		if (bank.getCustomer("C2") != null || bank.getCustomer("C3") != null) {
+			return fail("owner of a rejected create was registered");
+		}
+		bank.saveChanges(file);
+		return matches("duplicate create", bank, Bank.loadFromFile(file));
+	}
+
+	/**
+	 * A checkpoint taken while its journal marker is still waiting for the
+	 * durability window must not drop or replay twice any journaled operation.
+	 *
+	 * @return true if the bank reloaded from snapshot plus journal matches the live one
+	 * @throws IOException if the files cannot be written or read
+	 */
+	static boolean checkpointWithPendingMarker(Path dir) throws IOException {
+		String file = dir.resolve("bank.dat").toString();
+		String journalFile = dir.resolve("bank.log").toString();
+		Bank bank = new Bank();
+		// A window far longer than the check, so only explicit syncs reach the disk
+		BankJournal journal = new BankJournal(journalFile, 600_000);
+		bank.attachJournal(journal);
+		bank.createAccount("checking", "A001", new Customer("C1", "Ann"));
+		bank.createAccount("regular", "A002", new Customer("C2", "Bob"));
+		bank.deposit("A001", 100);
+		bank.checkpoint(file);
+		bank.deposit("A002", 40);
+		bank.createAccount("gold", "A003", new Customer("C1", "Ann"));
+		journal.close();
+
+		Bank reloaded = Bank.loadFromFile(file);
+		try (BankJournal reopened = new BankJournal(journalFile, 0)) {
+			reloaded.attachJournal(reopened);
+		}
+		return matches("checkpoint with pending marker", bank, reloaded);
+	}
+
+	/**
+	 * A journal whose last record was damaged replays every record before it,
+	 * and keeps the damaged bytes in a separate file.
+	 *
+	 * @return true if only the damaged operation is lost
+	 * @throws IOException if the files cannot be written or read
+	 */
+	static boolean damagedJournalTail(Path dir) throws IOException {
+		String journalFile = dir.resolve("bank.log").toString();
+		Bank bank = new Bank();
+		try (BankJournal journal = new BankJournal(journalFile, 0)) {
+			bank.attachJournal(journal);
+			bank.createAccount("regular", "A001", new Customer("C1", "Ann"));
+			bank.deposit("A001", 70);
+			bank.deposit("A001", 30); // damaged below, so lost
+		}
+		Path path = Path.of(journalFile);
+		byte[] bytes = Files.readAllBytes(path);
+		bytes[bytes.length - 1] ^= 1; // flip a bit of the last record's amount
+		Files.write(path, bytes);
+		Bank expected = new Bank();
+		expected.createAccount("regular", "A001", new Customer("C1", "Ann"));
+		expected.deposit("A001", 70);
+
+		Bank reloaded = new Bank();
+		try (BankJournal reopened = new BankJournal(journalFile, 0)) {
+			reloaded.attachJournal(reopened);
+		}
+		try (Stream<Path> files = Files.list(dir)) {
+			if (files.noneMatch(p -> p.getFileName().toString().startsWith("bank.log.damaged."))) {
+				return fail("damaged journal tail was not set aside");
+			}
+		}
+		return matches("damaged journal tail", expected, reloaded);
+	}
+
+	/**
+	 * A journal newer than the snapshot it is attached to holds operations the
+	 * snapshot lacks, so it must be refused and left as it is.
+	 *
+	 * @return true if replay refused the journal without changing it
+	 * @throws IOException if the files cannot be written or read
+	 */
+	static boolean newerJournalRefused(Path dir) throws IOException {
+		String file = dir.resolve("bank.dat").toString();
+		String journalFile = dir.resolve("bank.log").toString();
+		Bank bank = new Bank();
+		try (BankJournal journal = new BankJournal(journalFile, 0)) {
+			bank.attachJournal(journal);
+			bank.createAccount("gold", "A001", new Customer("C1", "Ann"));
+			bank.checkpoint(file);
+			bank.deposit("A001", 12.5);
+		}
+		byte[] before = Files.readAllBytes(Path.of(journalFile));
+		try (BankJournal reopened = new BankJournal(journalFile, 0)) {
+			new Bank().attachJournal(reopened); // as if the snapshot were lost
+			return fail("journal newer than the snapshot was replayed or discarded");
+		} catch (IOException expected) {
+			// refused, as it should be
+		}
+		if (!Arrays.equals(before, Files.readAllBytes(Path.of(journalFile)))) {
+			return fail("refused journal was changed");
+		}
+		System.out.println("newer journal refused: journal left untouched");
+		return true;
+	}
+
+	/**
+	 * Account history must survive a snapshot, a delta and the journal after
+	 * them, with replayed changes timed as they were made, not as replayed.
+	 *
+	 * @return true if the reloaded bank reports the same past balances
+	 * @throws IOException if the files cannot be written or read
+	 */
+	static boolean historyRoundTrip(Path dir) throws IOException, InterruptedException {
+		String file = dir.resolve("bank.dat").toString();
+		String journalFile = dir.resolve("bank.log").toString();
+		Bank bank = new Bank();
+		List<Long> probes = new ArrayList<>();
+		try (BankJournal journal = new BankJournal(journalFile, 0)) {
+			bank.attachJournal(journal);
+			bank.createAccount("checking", "A001", new Customer("C1", "Ann"));
+			probes.add(probe());
+			bank.deposit("A001", 10);
+			probes.add(probe());
+			bank.checkpoint(file); // in the snapshot
+			bank.deposit("A001", 20);
+			probes.add(probe());
+			bank.saveChanges(file); // in a delta
+			bank.withdraw("A001", 5);
+			probes.add(probe());
+			bank.deposit("A001", 1); // only in the journal
+			probes.add(probe());
+		}
+		Thread.sleep(20); // replayed changes would land after this
+		Bank reloaded = Bank.loadFromFile(file);
+		try (BankJournal reopened = new BankJournal(journalFile, 0)) {
+			reloaded.attachJournal(reopened);
+			for (long time : probes) {
+				double want = bank.getBalanceAt("A001", time);
+				double got = reloaded.getBalanceAt("A001", time);
+				if (want != got) {
+					return fail("history round trip: balance at " + time + " was " + want + " but reloaded " + got);
+				}
+			}
+		}
+		System.out.printf("history round trip: %d past balances match%n", probes.size());
+		return matches("history round trip", bank, reloaded);
+	}
+
+	/**
+	 * Every kind of operation, spread over a snapshot, a delta and the journal
+	 * after them, must come back from the three together: creates of each type,
+	 * deposits, withdrawals, transfers, a removal, a number reused after its
+	 * removal, and a month-end.
+	 *
+	 * @return true if the reloaded bank matches the live one
+	 * @throws IOException if the files cannot be written or read
+	 */
+	static boolean snapshotDeltaJournal(Path dir) throws IOException {
+		String file = dir.resolve("bank.dat").toString();
+		String journalFile = dir.resolve("bank.log").toString();
+		Bank bank = new Bank();
+		try (BankJournal journal = new BankJournal(journalFile, 0)) {
+			bank.attachJournal(journal);
+			bank.createAccount("checking", "A001", new Customer("C1", "Ann"));
+			bank.createAccount("gold", "A002", new Customer("C2", "Bob"));
+			bank.createAccount("regular", "A003", new Customer("C1", "Ann"));
+			bank.deposit("A001", 500);
+			bank.deposit("A003", 80.25);
+			bank.checkpoint(file); // in the snapshot
+			bank.withdraw("A002", 120); // overdraft
+			bank.transfer("A001", "A003", 99.99);
+			bank.createAccount("checking", "A004", new Customer("C3", "Cy"));
+			bank.deposit("A004", 12);
+			bank.removeAccount("A003");
+			bank.saveChanges(file); // in a delta
+			bank.applyMonthlyUpdates();
+			bank.withdraw("A001", 1000); // capped at the balance
+			bank.createAccount("gold", "A003", new Customer("C2", "Bob"));
+			bank.deposit("A003", 7.5);
+			bank.removeAccount("A004"); // only in the journal
+		}
+		Bank reloaded = Bank.loadFromFile(file);
+		try (BankJournal reopened = new BankJournal(journalFile, 0)) {
+			reloaded.attachJournal(reopened);
+		}
+		return matches("snapshot, delta and journal", bank, reloaded);
+	}
+
+	/**
+	 * A CSV export must hold the header and one row per account in account
+	 * number order, quoted as RFC 4180 asks, across more accounts than one
+	 * export batch holds.
+	 *
+	 * @return true if the file holds exactly the expected rows
+	 * @throws IOException if the file cannot be written or read
+	 */
+	static boolean csvExport(Path dir) throws IOException {
+		String file = dir.resolve("accounts.csv").toString();
+		String[] names = { "Ann", "Doe, Jane", "Bob \"Bo\" Lee", "Line\nBreak", "Zoë Ωmega" };
+		Bank bank = new Bank();
+		int count = 20_000;
+		for (int i = 0; i < count; i++) {
+			String type = i % 3 == 0 ? "checking" : i % 3 == 1 ? "gold" : "regular";
+			bank.createAccount(type, String.format("E%06d", i), new Customer("C" + i, names[i % names.length]));
+			if (i % 5 != 0) {
+				bank.deposit(String.format("E%06d", i), i * 1.01);
+			}
+			if (i % 7 == 1) {
+				bank.withdraw(String.format("E%06d", i), 1_000_000); // gold goes negative
+			}
+		}
+		long written = bank.exportAccountsCsv(file, 4);
+
+		StringBuilder expected = new StringBuilder(AccountCsvExport.HEADER);
+		bank.getAccounts().stream()
+				.sorted(Comparator.comparing(Account::getAccountNumber))
+				.forEach(a -> expected.append(a.getAccountNumber()).append(',')
+						.append(a.getType().getDisplayName()).append(',')
+						.append(BigDecimal.valueOf(a.getBalanceCents(), 2).toPlainString()).append(',')
+						.append(csvField(a.getCustomer().getName())).append(',')
+						.append(csvField(a.getCustomer().getCustomerId())).append('\n'));
+		String got = Files.readString(Path.of(file), StandardCharsets.UTF_8);
+		if (written != count) {
+			return fail("CSV export: wrote " + written + " accounts, expected " + count);
+		}
+		if (!got.contentEquals(expected)) {
+			int at = 0;
+			while (at < got.length() && at < expected.length() && got.charAt(at) == expected.charAt(at)) {
+				at++;
+			}
+			return fail("CSV export: differs from the expected rows at character " + at);
+		}
+		System.out.printf("CSV export: %d rows match%n", count);
+		return true;
+	}
+
+	/** @return the value as an RFC 4180 field, quoted if it holds a comma, quote or line break. */
+	private static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	/** @return a time well clear of the operations just before and just after it. */
+	private static long probe() throws InterruptedException {
+		Thread.sleep(5);
+		long time = System.currentTimeMillis();
+		Thread.sleep(5);
+		return time;
+	}
+
+	/**
+	 * Compares two banks account by account.
+	 *
+	 * @return true if both hold the same accounts in the same state
+	 */
+	static boolean matches(String check, Bank expected, Bank actual) {
+		List<String> want = describe(expected);
+		List<String> got = describe(actual);
+		for (int i = 0; i < Math.max(want.size(), got.size()); i++) {
+			String w = i < want.size() ? want.get(i) : "(none)";
+			String g = i < got.size() ? got.get(i) : "(none)";
+			if (!w.equals(g)) {
+				return fail(check + ": expected " + w + " but reloaded " + g);
+			}
+		}
+		System.out.printf("%s: %d accounts match%n", check, want.size());
+		return true;
+	}
+
+	/** @return one line per account with everything that is saved, in account number order. */
+	private static List<String> describe(Bank bank) {
+		List<String> lines = new ArrayList<>();
+		bank.getAccounts().stream()
+				.sorted(Comparator.comparing(Account::getAccountNumber))
+				.forEach(a -> lines.add(String.join("|", a.getAccountNumber(), a.getType().name(),
+						Long.toString(a.getBalanceCents()),
+						a instanceof CheckingAccount c ? Integer.toString(c.getTransactionCount()) : "-",
+						a.getCustomer().getCustomerId(), a.getCustomer().getName())));
+		return lines;
+	}
+
+	private static boolean fail(String message) {
+		System.out.println("FAILED " + message);
+		return false;
+	}
+
+	/** Deletes a check's directory and everything in it. */
+	private static void deleteTree(Path dir) throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(p);
+			}
+		}
+	}
+
+	/** Runs every check and exits with status 1 if any of them fails. */
+	public static void main(String[] args) throws Exception {
+		Account.setReceiptSink(ReceiptSink.NONE);
+		boolean passed = true;
+		Path dir = Files.createTempDirectory("bank-persistence-check");
+		try {
+			passed &= duplicateCreate(Files.createDirectory(dir.resolve("duplicate-create")));
+			passed &= checkpointWithPendingMarker(Files.createDirectory(dir.resolve("pending-marker")));
+			passed &= damagedJournalTail(Files.createDirectory(dir.resolve("damaged-tail")));
+			passed &= newerJournalRefused(Files.createDirectory(dir.resolve("newer-journal")));
+			passed &= historyRoundTrip(Files.createDirectory(dir.resolve("history")));
+			passed &= snapshotDeltaJournal(Files.createDirectory(dir.resolve("snapshot-delta-journal")));
+			passed &= csvExport(Files.createDirectory(dir.resolve("csv-export")));
+		} finally {
+			deleteTree(dir);
+		}
+		if (passed) {
+			System.out.println("All persistence checks passed.");
+		} else {
+			System.out.println("PERSISTENCE CHECKS FAILED.");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,243 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Runs a script of operations on any {@link BankOperations} without prompts,
+ * one command per line:
+ * <pre>
+ *   create   &lt;checking|gold|regular&gt; &lt;accountNumber&gt; &lt;customerId&gt; &lt;customer name&gt;
+ *   deposit  &lt;accountNumber&gt; &lt;amount&gt;
+ *   withdraw &lt;accountNumber&gt; &lt;amount&gt;
+ *   transfer &lt;fromAccountNumber&gt; &lt;toAccountNumber&gt; &lt;amount&gt;
+ *   remove   &lt;accountNumber&gt;
+ *   show     &lt;accountNumber&gt;
+ *   monthly
+ *   stats
+ * </pre>
+ * Command names are case-insensitive, blank lines and lines starting with
+ * {@code #} are skipped, and the customer name is the rest of the line.
+ *
+ * Consecutive deposits and withdrawals are collected into a
+ * {@link TransactionBatch} and applied together, so a journal attached to the
+ * bank syncs once per batch rather than once per line. Any other command first
+ * applies the pending batch, so commands always take effect in script order.
+ * Receipts are not produced; failed lines are reported as
+ * {@code line N: message} and the script carries on.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankScript {
+
+	/** Maximum number of deposits and withdrawals applied as one batch. */
+	private static final int BATCH_SIZE = 8192;
+
+	private final BankOperations bank;
+
+	private TransactionBatch batch = new TransactionBatch(BATCH_SIZE);
+	private final int[] batchLines = new int[BATCH_SIZE];
+
+	private int commands;
+	private int failed;
+
+	/**
+	 * Constructs a script runner for the given bank.
+	 *
+	 * @param bank the bank the commands apply to
+	 */
+	public BankScript(BankOperations bank) {
+		if (bank == null) {
+			throw new IllegalArgumentException("Bank cannot be null.");
+		}
+		this.bank = bank;
+	}
+
+	/**
+	 * Runs every command read from {@code in}, writing results and errors to {@code out}.
+	 *
+	 * @param in the script; read to the end but not closed
+	 * @param out where results are written; flushed but not closed
+	 * @return the number of commands that failed
+	 * @throws IOException if reading the script or writing results fails
+	 */
+	public int run(BufferedReader in, Writer out) throws IOException {
+		ReceiptSink previous = Account.getReceiptSink();
+		Account.setReceiptSink(ReceiptSink.NONE);
+		try {
+			long start = System.nanoTime();
+			int lineNumber = 0;
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				lineNumber++;
+				execute(line, lineNumber, out);
+			}
+			flushBatch(out);
+			out.write(String.format("Processed %d commands, %d failed, in %d ms.%n",
+					commands, failed, (System.nanoTime() - start) / 1_000_000));
+			out.flush();
+			return failed;
+		} finally {
+			Account.setReceiptSink(previous);
+		}
+	}
+
+	/** Parses and runs one line. */
+	private void execute(String line, int lineNumber, Writer out) throws IOException {
+		int end = skipSpaces(line, 0);
+		if (end == line.length() || line.charAt(end) == '#') {
+			return;
+		}
+		commands++;
+		int start = end;
+		end = tokenEnd(line, start);
+		String command = line.substring(start, end);
+
+		try {
+			if (command.equalsIgnoreCase("deposit") || command.equalsIgnoreCase("withdraw")) {
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				String accountNumber = line.substring(start, end);
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				double amount = Double.parseDouble(line.substring(start, end));
+				requireEnd(line, end);
+				if (accountNumber.isEmpty()) {
+					throw new IllegalArgumentException("Missing account number.");
+				}
+				if (command.equalsIgnoreCase("deposit")) {
+					batch.addDeposit(accountNumber, amount);
+				} else {
+					batch.addWithdrawal(accountNumber, amount);
+				}
+				batchLines[batch.size() - 1] = lineNumber;
+				if (batch.size() == BATCH_SIZE) {
+					flushBatch(out);
+				}
+				return;
+			}
+
+			flushBatch(out);
+			if (command.equalsIgnoreCase("create")) {
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				String type = line.substring(start, end);
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				String accountNumber = line.substring(start, end);
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				String customerId = line.substring(start, end);
+				String name = line.substring(end).trim();
+				bank.createAccount(type, accountNumber, new Customer(customerId, name));
+			} else if (command.equalsIgnoreCase("transfer")) {
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				String from = line.substring(start, end);
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				String to = line.substring(start, end);
+				start = skipSpaces(line, end);
+				end = tokenEnd(line, start);
+				double amount = Double.parseDouble(line.substring(start, end));
+				requireEnd(line, end);
+				if (!bank.transfer(from, to, amount)) {
+					fail(out, lineNumber, "Account " + from + " or " + to + " not found.");
+				}
+			} else if (command.equalsIgnoreCase("remove")) {
+				String accountNumber = singleArgument(line, end);
+				if (!bank.removeAccount(accountNumber)) {
+					fail(out, lineNumber, "Account " + accountNumber + " not found.");
+				}
+			} else if (command.equalsIgnoreCase("show")) {
+				out.write(bank.displayAccountInfo(singleArgument(line, end)));
+				out.write(System.lineSeparator());
+			} else if (command.equalsIgnoreCase("monthly")) {
+				requireEnd(line, end);
+				bank.applyMonthlyUpdates();
+			} else if (command.equalsIgnoreCase("stats")) {
+				requireEnd(line, end);
+				writeStatistics(out);
+			} else {
+				fail(out, lineNumber, "Unknown command: " + command);
+			}
+		} catch (NumberFormatException e) {
+			fail(out, lineNumber, "Invalid amount.");
+		} catch (IllegalArgumentException e) {
+			fail(out, lineNumber, e.getMessage());
+		}
+	}
+
+	/** Applies the pending deposits and withdrawals and reports the rows that failed. */
+	private void flushBatch(Writer out) throws IOException {
+		if (batch.size() == 0) {
+			return;
+		}
+		BatchResult result = bank.applyBatch(batch);
+		for (int row = 0; row < result.size(); row++) {
+			switch (result.getStatus(row)) {
+			case BatchResult.ACCOUNT_NOT_FOUND:
+				fail(out, batchLines[row], "Account " + batch.accountNumberAt(row) + " not found.");
+				break;
+			case BatchResult.INVALID_AMOUNT:
+				fail(out, batchLines[row], "Amount must be positive.");
+				break;
+			default:
+				break;
+			}
+		}
+		batch = new TransactionBatch(BATCH_SIZE);
+	}
+
+	private void writeStatistics(Writer out) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Total balance: $%.2f%n", bank.getTotalBalance()));
+		sb.append(String.format("Average balance: $%.2f%n", bank.getAverageBalance()));
+		sb.append(String.format("Zero balance accounts: %d%n", bank.getZeroBalanceCount()));
+		for (AccountType type : AccountType.values()) {
+			sb.append(String.format("%s accounts: %d (total $%.2f)%n",
+					type.getDisplayName(), bank.getAccountCount(type), bank.getTotalBalance(type)));
+		}
+		AccountView largest = bank.getLargestAccount();
+		if (largest != null) {
+			sb.append(String.format("Largest balance: %s ($%.2f)%n", largest.getAccountNumber(), largest.getBalance()));
+		}
+		out.write(sb.toString());
+	}
+
+	private void fail(Writer out, int lineNumber, String message) throws IOException {
+		failed++;
+		out.write("line " + lineNumber + ": " + message + System.lineSeparator());
+	}
+
+	/** @return the only argument after position {@code from}; throws if missing or followed by more. */
+	private static String singleArgument(String line, int from) {
+		int start = skipSpaces(line, from);
+		int end = tokenEnd(line, start);
+		if (start == end) {
+			throw new IllegalArgumentException("Missing account number.");
+		}
+		requireEnd(line, end);
+		return line.substring(start, end);
+	}
+
+	private static void requireEnd(String line, int from) {
+		if (skipSpaces(line, from) != line.length()) {
+			throw new IllegalArgumentException("Unexpected text: " + line.substring(from).trim());
+		}
+	}
+
+	private static int skipSpaces(String line, int i) {
+		while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int tokenEnd(String line, int i) {
+		while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,247 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A small TCP server that lets many clients work on one bank at the same time,
+ * in any of its modes: an in-memory {@link Bank} or any other {@link BankOperations}.
+ *
+ * The protocol is line-based text. Each request line gets exactly one response
+ * line, {@code OK} or {@code OK <result>} on success and {@code ERR <message>}
+ * on failure, and responses come back in request order. Requests:
+ * <pre>
+ *   create   &lt;checking|gold|regular&gt; &lt;accountNumber&gt; &lt;customerId&gt; &lt;customer name&gt;
+ *   deposit  &lt;accountNumber&gt; &lt;amount&gt;
+ *   withdraw &lt;accountNumber&gt; &lt;amount&gt;
+ *   transfer &lt;fromAccountNumber&gt; &lt;toAccountNumber&gt; &lt;amount&gt;
+ *   show     &lt;accountNumber&gt;
+ *   stats
+ * </pre>
+ *
+ * Every connection is served by two virtual threads: one reads requests into a
+ * bounded queue, the other runs them and writes the responses. Clients may
+ * pipeline, sending many requests before reading any response. Responses are
+ * flushed whenever the queue runs empty, so a pipelined burst goes out in few
+ * packets. When a client sends faster than its requests can be run, the queue
+ * fills up, the reader stops reading, and TCP flow control slows the client down.
+ *
+ * Deposits and withdrawals send receipts to the configured
+ * {@link Account#setReceiptSink(ReceiptSink) receipt sink}; servers usually set
+ * it to {@link ReceiptSink#NONE}.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankServer implements Closeable {
+
+	/** Marks the end of a connection's request queue. */
+	private static final String END = new String("END");
+
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	private final BankOperations bank;
+	private final ServerSocket serverSocket;
+	private final int queueCapacity;
+	private final Thread acceptor;
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed;
+
+	/**
+	 * Starts a server on the given port of the loopback interface.
+	 *
+	 * @param bank the bank to serve
+	 * @param port the port to listen on, or 0 to pick a free port
+	 * @param queueCapacity maximum number of requests queued per connection; must be positive
+	 * @throws IOException if the port cannot be opened
+	 */
+	public BankServer(BankOperations bank, int port, int queueCapacity) throws IOException {
+		this(bank, new ServerSocket(port, 128, InetAddress.getLoopbackAddress()), queueCapacity);
+	}
+
+	/**
+	 * Starts a server accepting connections on an already bound socket.
+	 *
+	 * @param bank the bank to serve
+	 * @param serverSocket the bound socket; closed when the server is closed
+	 * @param queueCapacity maximum number of requests queued per connection; must be positive
+	 */
+	public BankServer(BankOperations bank, ServerSocket serverSocket, int queueCapacity) {
+		if (bank == null || serverSocket == null) {
+			throw new IllegalArgumentException("Bank and server socket cannot be null.");
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("Queue capacity must be positive.");
+		}
+		this.bank = bank;
+		this.serverSocket = serverSocket;
+		this.queueCapacity = queueCapacity;
+		this.acceptor = Thread.ofVirtual().name("bank-server-acceptor").start(this::acceptLoop);
+	}
+
+	/** @return the port the server is listening on. */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/** Accepts connections until the server is closed, starting a virtual thread for each. */
+	private void acceptLoop() {
+		while (!closed) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connections.add(socket);
+				Thread.ofVirtual().name("bank-connection-reader").start(() -> serve(socket));
+			} catch (IOException e) {
+				if (!closed) {
+					System.err.println("Accept failed: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/** Reads requests from one connection into its queue; a second thread answers them. */
+	private void serve(Socket socket) {
+		BlockingQueue<String> requests = new ArrayBlockingQueue<>(queueCapacity);
+		Thread responder = null;
+		try (socket) {
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+			Writer out = new BufferedWriter(
+					new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16);
+			Thread reader = Thread.currentThread();
+			responder = Thread.ofVirtual().name("bank-connection-writer")
+					.start(() -> respond(requests, out, socket, reader));
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				requests.put(line); // blocks when full, which stops reading from the client
+			}
+			requests.put(END);
+			responder.join();
+		} catch (IOException e) {
+			// Connection dropped by the client, or closed by close() or the responder
+		} catch (InterruptedException e) {
+			// The responder stopped early and closed the connection
+			Thread.currentThread().interrupt();
+		} finally {
+			if (responder != null) {
+				responder.interrupt();
+			}
+			connections.remove(socket);
+		}
+	}
+
+	/**
+	 * Runs queued requests in order and writes their responses. If it stops
+	 * before the end of the queue, for whatever reason, it closes the connection
+	 * and interrupts the reader, which may be waiting for queue space.
+	 */
+	private void respond(BlockingQueue<String> requests, Writer out, Socket socket, Thread reader) {
+		boolean finished = false;
+		try {
+			for (String request = requests.take(); request != END; request = requests.take()) {
+				out.write(handle(request));
+				out.write('\n');
+				if (requests.isEmpty()) {
+					out.flush();
+				}
+			}
+			out.flush();
+			finished = true;
+		} catch (IOException e) {
+			// Client went away
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (!finished) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// Already closed
+				}
+				reader.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Runs one request line.
+	 *
+	 * @param request the request line
+	 * @return the response line, without a line terminator
+	 */
+	String handle(String request) {
+		String[] words = SPACES.split(request.trim(), 5);
+		try {
+			switch (words[0].toLowerCase()) {
+			case "create":
+				requireWords(words, 5, "create <type> <accountNumber> <customerId> <name>");
+				bank.createAccount(words[1], words[2], new Customer(words[3], words[4]));
+				return "OK";
+			case "deposit":
+				requireWords(words, 3, "deposit <accountNumber> <amount>");
+				return bank.deposit(words[1], Double.parseDouble(words[2]))
+						? "OK" : "ERR Account " + words[1] + " not found.";
+			case "withdraw":
+				requireWords(words, 3, "withdraw <accountNumber> <amount>");
+				return bank.withdraw(words[1], Double.parseDouble(words[2]))
+						? "OK" : "ERR Account " + words[1] + " not found.";
+			case "transfer":
+				requireWords(words, 4, "transfer <fromAccountNumber> <toAccountNumber> <amount>");
+				return bank.transfer(words[1], words[2], Double.parseDouble(words[3]))
+						? "OK" : "ERR Account " + words[1] + " or " + words[2] + " not found.";
+			case "show":
+				requireWords(words, 2, "show <accountNumber>");
+				return "OK " + bank.displayAccountInfo(words[1]).replace("\n", "; ");
+			case "stats":
+				requireWords(words, 1, "stats");
+				return String.format("OK accounts=%d total=%.2f average=%.2f zero=%d",
+						bank.getAccountCount(), bank.getTotalBalance(),
+						bank.getAverageBalance(), bank.getZeroBalanceCount());
+			default:
+				return "ERR Unknown command: " + words[0];
+			}
+		} catch (NumberFormatException e) {
+			return "ERR Invalid amount.";
+		} catch (IllegalArgumentException e) {
+			return "ERR " + e.getMessage();
+		} catch (RuntimeException e) {
+			// Any other failure answers this request and keeps the connection serving
+			System.err.println("Request failed: " + request + ": " + e);
+			return "ERR Request failed.";
+		}
+	}
+
+	private static void requireWords(String[] words, int count, String usage) {
+		if (words.length != count) {
+			throw new IllegalArgumentException("Usage: " + usage);
+		}
+	}
+
+	/** Stops accepting connections and closes the open ones. Requests already running finish. */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for (Socket socket : connections) {
+			socket.close();
+		}
+		try {
+			acceptor.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
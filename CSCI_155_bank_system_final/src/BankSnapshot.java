@@ -0,0 +1,413 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes the compact binary snapshot format used to persist a Bank.
+ *
+ * Layout (all numbers big-endian, strings are length-prefixed modified UTF-8):
+ * <pre>
+ *   int    MAGIC ("BANK")
+ *   int    VERSION
+ *   long   journal generation (version 2+)
+ *   int    customer count, then per customer: id, name
+ *   int    account count,  then per account:
+ *          byte type, accountNumber, long balance in cents (double dollars
+ *          before version 3), int customer index,
+ *          int transactionCount (checking accounts only),
+ *          then (version 4+) boolean hasHistory and, if set, the balance history:
+ *          long start millis, long opening cents, int event count, then per
+ *          event: long millis, long change in cents
+ * </pre>
+ * Customers with the same ID and name are written once and shared on load.
+ *
+ * A snapshot may be followed by delta files, {@code <snapshot>.delta.<generation>},
+ * each holding only the accounts changed and removed since the save before it:
+ * <pre>
+ *   int    DELTA_MAGIC ("BDLT")
+ *   int    VERSION
+ *   long   generation of this delta
+ *   long   generation of the snapshot or delta it applies on top of
+ *   int    removed count, then per removed account: accountNumber
+ *   then the customer table and accounts, as in a snapshot
+ * </pre>
+ * Loading follows the chain of deltas from the snapshot's generation. Deltas at
+ * or below the snapshot's generation are already part of it and are ignored.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+final class BankSnapshot {
+
+	/** File signature, the ASCII bytes "BANK". */
+	private static final int MAGIC = 0x42414E4B;
+
+	/** Delta file signature, the ASCII bytes "BDLT". */
+	private static final int DELTA_MAGIC = 0x42444C54;
+
+	/** Current format version. */
+	private static final int VERSION = 4;
+
+	/** Account type tags. */
+	private static final byte TYPE_CHECKING = 1;
+	private static final byte TYPE_GOLD = 2;
+	private static final byte TYPE_REGULAR = 3;
+
+	/** Size of the read/write buffers. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** Writes the sections of a file after its header. */
+	@FunctionalInterface
+	private interface SectionWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private BankSnapshot() {
+	}
+
+	/**
+	 * Writes captured account states to the given file. The data is written to a
+	 * temporary file first and then moved into place, so a failed save never
+	 * corrupts the last snapshot.
+	 *
+	 * @param states The account states captured by a {@link BankCheckpoint}.
+	 * @param journalGeneration The generation to record in the file.
+	 * @param filename The destination file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	static void write(List<BankCheckpoint.AccountState> states, long journalGeneration, String filename)
+			throws IOException {
+		writeFile(Path.of(filename), out -> {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(journalGeneration);
+			writeAccounts(out, states);
+		});
+	}
+
+	/**
+	 * Writes a delta file next to the snapshot, in the same safe way as
+	 * {@link #write(List, long, String)}.
+	 *
+	 * @param states The states of accounts changed since the previous save.
+	 * @param removed The numbers of accounts removed since the previous save.
+	 * @param generation The generation of this delta.
+	 * @param baseGeneration The generation of the save this delta applies on top of.
+	 * @param filename The snapshot file the delta belongs to.
+	 * @throws IOException if the file cannot be written, or if two states share an account number.
+	 */
+	static void writeDelta(List<BankCheckpoint.AccountState> states, Collection<String> removed,
+			long generation, long baseGeneration, String filename) throws IOException {
+		// Accounts are applied in file order, so a second copy would silently win on load
+		Set<String> written = new HashSet<>();
+		for (BankCheckpoint.AccountState state : states) {
+			if (!written.add(state.account().getAccountNumber())) {
+				throw new IOException("Delta would hold account " + state.account().getAccountNumber() + " twice.");
+			}
+		}
+		writeFile(deltaPath(filename, generation), out -> {
+			out.writeInt(DELTA_MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(generation);
+			out.writeLong(baseGeneration);
+			List<String> numbers = new ArrayList<>(removed);
+			out.writeInt(numbers.size());
+			for (String accountNumber : numbers) {
+				out.writeUTF(accountNumber);
+			}
+			writeAccounts(out, states);
+		});
+	}
+
+	/** Writes a file through a temporary file that is moved into place once synced. */
+	private static void writeFile(Path target, SectionWriter sections) throws IOException {
+		Path temp = Path.of(target + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+			sections.write(out);
+			out.flush();
+			channel.force(false);
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/** Writes the customer table followed by the accounts. */
+	private static void writeAccounts(DataOutputStream out, List<BankCheckpoint.AccountState> states)
+			throws IOException {
+		// Build the deduplicated customer table; names are read once, as they may change meanwhile
+		Map<List<String>, Integer> customerIndex = new HashMap<>();
+		List<List<String>> customers = new ArrayList<>();
+		int[] customerSlots = new int[states.size()];
+		for (int i = 0; i < customerSlots.length; i++) {
+			Customer c = states.get(i).account().getCustomer();
+			List<String> key = List.of(c.getCustomerId(), c.getName());
+			Integer slot = customerIndex.putIfAbsent(key, customers.size());
+			if (slot == null) {
+				slot = customers.size();
+				customers.add(key);
+			}
+			customerSlots[i] = slot;
+		}
+
+		out.writeInt(customers.size());
+		for (List<String> c : customers) {
+			out.writeUTF(c.get(0));
+			out.writeUTF(c.get(1));
+		}
+
+		out.writeInt(states.size());
+		for (int i = 0; i < customerSlots.length; i++) {
+			BankCheckpoint.AccountState state = states.get(i);
+			Account acc = state.account();
+			out.writeByte(typeOf(acc));
+			out.writeUTF(acc.getAccountNumber());
+			out.writeLong(state.balanceCents());
+			out.writeInt(customerSlots[i]);
+			if (acc instanceof CheckingAccount) {
+				out.writeInt(state.transactionCount());
+			}
+			out.writeBoolean(state.history() != null);
+			if (state.history() != null) {
+				state.history().writeTo(out);
+			}
+		}
+	}
+
+	/**
+	 * Reads a bank from the given snapshot file and applies its chain of deltas.
+	 *
+	 * @param filename The file to read.
+	 * @return the loaded bank.
+	 * @throws IOException if the file cannot be read or is not a valid snapshot.
+	 */
+	static Bank read(String filename) throws IOException {
+		while (true) {
+			Bank bank = new Bank();
+			long baseGeneration;
+			try (DataInputStream in = open(Path.of(filename))) {
+				if (in.readInt() != MAGIC) {
+					throw new IOException("Not a bank snapshot: " + filename);
+				}
+				int version = readVersion(in);
+				baseGeneration = version >= 2 ? in.readLong() : 0;
+				readAccounts(in, version, bank, bank::addAccount);
+			}
+
+			long generation = baseGeneration;
+			try {
+				Map<Long, Path> deltas = deltasByBase(filename);
+				for (Path delta = deltas.get(generation); delta != null; delta = deltas.get(generation)) {
+					generation = applyDelta(bank, delta);
+				}
+			} catch (NoSuchFileException e) {
+				continue; // a delta was merged away while reading; start over
+			}
+			// A compaction may have replaced the snapshot and deleted its deltas meanwhile
+			if (readGeneration(filename) != baseGeneration) {
+				continue;
+			}
+			bank.setJournalGeneration(generation);
+			bank.markSaved(generation);
+			return bank;
+		}
+	}
+
+	/** Applies one delta file to a bank being loaded and returns the delta's generation. */
+	private static long applyDelta(Bank bank, Path delta) throws IOException {
+		try (DataInputStream in = open(delta)) {
+			if (in.readInt() != DELTA_MAGIC) {
+				throw new IOException("Not a bank delta: " + delta);
+			}
+			int version = readVersion(in);
+			long generation = in.readLong();
+			in.readLong(); // base generation, already matched
+			int removed = in.readInt();
+			for (int i = 0; i < removed; i++) {
+				bank.removeAccountUnmetered(in.readUTF());
+			}
+			readAccounts(in, version, bank, acc -> {
+				bank.removeAccountUnmetered(acc.getAccountNumber()); // replaced by its newer state
+				bank.addAccount(acc);
+			});
+			return generation;
+		}
+	}
+
+	/**
+	 * Reads the customer table and accounts, passing each account on. Customers
+	 * are shared with those the bank already has, taking the newer name.
+	 */
+	private static void readAccounts(DataInputStream in, int version, Bank bank, Consumer<Account> sink)
+			throws IOException {
+		Customer[] customers = new Customer[in.readInt()];
+		for (int i = 0; i < customers.length; i++) {
+			Customer read = new Customer(in.readUTF(), in.readUTF());
+			Customer registered = bank.getCustomer(read.getCustomerId());
+			if (registered != null && !registered.getName().equals(read.getName())) {
+				registered.setName(read.getName());
+			}
+			customers[i] = registered != null ? registered : read;
+		}
+
+		int accountCount = in.readInt();
+		for (int i = 0; i < accountCount; i++) {
+			byte type = in.readByte();
+			String accountNumber = in.readUTF();
+			long balanceCents = version >= 3 ? in.readLong() : Math.round(in.readDouble() * 100);
+			Customer customer = customers[in.readInt()];
+
+			Account acc;
+			switch (type) {
+			case TYPE_CHECKING:
+				CheckingAccount checking = new CheckingAccount(accountNumber, customer);
+				checking.restoreTransactionCount(in.readInt());
+				acc = checking;
+				break;
+			case TYPE_GOLD:
+				acc = new GoldAccount(accountNumber, customer);
+				break;
+			case TYPE_REGULAR:
+				acc = new RegularAccount(accountNumber, customer);
+				break;
+			default:
+				throw new IOException("Unknown account type tag: " + type);
+			}
+			acc.restoreBalanceCents(balanceCents);
+			if (version >= 4 && in.readBoolean()) {
+				bank.restoreHistory(acc, AccountHistory.readFrom(in));
+			}
+			sink.accept(acc);
+		}
+	}
+
+	/**
+	 * Reads the generation recorded in a snapshot file.
+	 *
+	 * @param filename The snapshot file.
+	 * @return its generation, or -1 if the file does not exist.
+	 * @throws IOException if the file cannot be read or is not a valid snapshot.
+	 */
+	static long readGeneration(String filename) throws IOException {
+		Path path = Path.of(filename);
+		if (!Files.exists(path)) {
+			return -1;
+		}
+		try (DataInputStream in = open(path)) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a bank snapshot: " + filename);
+			}
+			return readVersion(in) >= 2 ? in.readLong() : 0;
+		}
+	}
+
+	/**
+	 * Deletes the deltas already contained in a snapshot of the given generation.
+	 *
+	 * @param filename The snapshot file.
+	 * @param generation The snapshot's generation.
+	 * @throws IOException if a delta cannot be deleted.
+	 */
+	static void deleteDeltas(String filename, long generation) throws IOException {
+		for (Map.Entry<Path, Long> delta : deltaGenerations(filename).entrySet()) {
+			if (delta.getValue() <= generation) {
+				Files.deleteIfExists(delta.getKey());
+			}
+		}
+	}
+
+	/** @return the number of delta files next to the snapshot. */
+	static int countDeltas(String filename) throws IOException {
+		return deltaGenerations(filename).size();
+	}
+
+	/** @return the delta files next to the snapshot, by the generation they apply on top of. */
+	private static Map<Long, Path> deltasByBase(String filename) throws IOException {
+		Map<Path, Long> generations = deltaGenerations(filename);
+		Map<Long, Path> byBase = new HashMap<>();
+		for (Map.Entry<Path, Long> delta : generations.entrySet()) {
+			long base;
+			try (DataInputStream in = open(delta.getKey())) {
+				if (in.readInt() != DELTA_MAGIC) {
+					throw new IOException("Not a bank delta: " + delta.getKey());
+				}
+				readVersion(in);
+				in.readLong(); // generation, also in the file name
+				base = in.readLong();
+			}
+			// Of two deltas on the same base, the later one supersedes the other
+			Path other = byBase.get(base);
+			if (other == null || delta.getValue() > generations.get(other)) {
+				byBase.put(base, delta.getKey());
+			}
+		}
+		return byBase;
+	}
+
+	/** @return the delta files next to the snapshot, with their generations from the file names. */
+	private static Map<Path, Long> deltaGenerations(String filename) throws IOException {
+		Path snapshot = Path.of(filename).toAbsolutePath();
+		Map<Path, Long> deltas = new HashMap<>();
+		String prefix = snapshot.getFileName() + ".delta.";
+		try (DirectoryStream<Path> dir = Files.newDirectoryStream(snapshot.getParent(), prefix + "*")) {
+			for (Path path : dir) {
+				String suffix = path.getFileName().toString().substring(prefix.length());
+				if (suffix.chars().allMatch(Character::isDigit) && !suffix.isEmpty()) {
+					deltas.put(path, Long.parseLong(suffix));
+				}
+			}
+		}
+		return deltas;
+	}
+
+	private static Path deltaPath(String filename, long generation) {
+		return Path.of(filename + ".delta." + generation);
+	}
+
+	private static DataInputStream open(Path path) throws IOException {
+		return new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ)), BUFFER_SIZE));
+	}
+
+	private static int readVersion(DataInputStream in) throws IOException {
+		int version = in.readInt();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported snapshot version: " + version);
+		}
+		return version;
+	}
+
+	/** Maps an account to its type tag. */
+	private static byte typeOf(Account acc) {
+		switch (acc.getType()) {
+		case CHECKING:
+			return TYPE_CHECKING;
+		case GOLD:
+			return TYPE_GOLD;
+		case REGULAR:
+			return TYPE_REGULAR;
+		default:
+			throw new IllegalArgumentException("Unsupported account type: " + acc.getType());
+		}
+	}
+}
@@ -0,0 +1,218 @@
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bank-wide statistics kept up to date as balances change, so reports never
+ * need to scan every account.
+ *
+ * Totals, counts and the zero-balance count are striped counters, adjusted by
+ * the exact old and new balance of every compare-and-set on an account, so
+ * updates take no lock. The largest account is kept lazily: a change only
+ * compares the new balance with the remembered largest one, and the remembered
+ * account is forgotten when its own balance drops. Queries are O(1), except
+ * that {@link #getLargestAccount()} scans the accounts once after such a drop.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankStatistics {
+
+	/** Total balance in cents, per account type. */
+	private final LongAdder[] totalCents = newAdders();
+
+	/** Number of accounts, per account type. */
+	private final LongAdder[] counts = newAdders();
+
+	/** Number of accounts with a balance of exactly zero. */
+	private final LongAdder zeroBalanceCount = new LongAdder();
+
+	/** The accounts tracked, scanned when the largest one is not known. */
+	private final Collection<Account> accounts;
+
+	/** The largest account as far as it is known; replaced, never changed. */
+	private final AtomicReference<Largest> largest = new AtomicReference<>(Largest.NONE);
+
+	/**
+	 * An account and the balance it had when it became the largest seen.
+	 *
+	 * @param complete true if every tracked account has been compared with it,
+	 *        either by a scan or by offering its balance since
+	 */
+	private record Largest(Account account, long cents, boolean complete) {
+
+		/** Known: there are no accounts. */
+		static final Largest NONE = new Largest(null, Long.MIN_VALUE, true);
+
+		/** Not known: only accounts whose balance rose since are candidates. */
+		static final Largest UNKNOWN = new Largest(null, Long.MIN_VALUE, false);
+	}
+
+	/**
+	 * @param accounts live view of the accounts that will be tracked
+	 */
+	BankStatistics(Collection<Account> accounts) {
+		this.accounts = accounts;
+	}
+
+	private static LongAdder[] newAdders() {
+		LongAdder[] adders = new LongAdder[AccountType.values().length];
+		for (int i = 0; i < adders.length; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	// -------- Updates, called by Bank and Account --------
+
+	/** Starts tracking an account with its current balance. */
+	void accountAdded(Account acc) {
+		acc.setStatistics(this);
+		long cents = acc.getBalanceCents();
+		int type = acc.getType().ordinal();
+		counts[type].increment();
+		totalCents[type].add(cents);
+		if (cents == 0) {
+			zeroBalanceCount.increment();
+		}
+		offerLargest(acc, cents);
+	}
+
+	/** Stops tracking an account. */
+	void accountRemoved(Account acc) {
+		acc.setStatistics(null);
+		long cents = acc.getBalanceCents();
+		int type = acc.getType().ordinal();
+		counts[type].decrement();
+		totalCents[type].add(-cents);
+		if (cents == 0) {
+			zeroBalanceCount.decrement();
+		}
+		forgetLargest(acc);
+	}
+
+	/** Records one atomic balance change of a tracked account. */
+	void balanceChanged(Account acc, long oldCents, long newCents) {
+		totalCents[acc.getType().ordinal()].add(newCents - oldCents);
+		if (oldCents == 0) {
+			zeroBalanceCount.decrement();
+		}
+		if (newCents == 0) {
+			zeroBalanceCount.increment();
+		}
+		if (newCents > oldCents) {
+			offerLargest(acc, newCents);
+		} else {
+			forgetLargest(acc);
+		}
+	}
+
+	/** Makes the account the largest if its balance beats the largest seen; usually one read. */
+	private void offerLargest(Account acc, long cents) {
+		Largest current = largest.get();
+		while (cents > current.cents()) {
+			if (largest.compareAndSet(current, new Largest(acc, cents, current.complete()))) {
+				return;
+			}
+			current = largest.get();
+		}
+	}
+
+	/** Forgets the largest account if it is this one, whose balance dropped or which left. */
+	private void forgetLargest(Account acc) {
+		Largest current = largest.get();
+		while (current.account() == acc) {
+			if (largest.compareAndSet(current, Largest.UNKNOWN)) {
+				return;
+			}
+			current = largest.get();
+		}
+	}
+
+	// -------- Queries --------
+
+	/** @return the number of accounts. */
+	public long getAccountCount() {
+		long sum = 0;
+		for (LongAdder count : counts) {
+			sum += count.sum();
+		}
+		return sum;
+	}
+
+	/** @return the total combined balance of all accounts, in cents. */
+	public long getTotalCents() {
+		long sum = 0;
+		for (LongAdder total : totalCents) {
+			sum += total.sum();
+		}
+		return sum;
+	}
+
+	/** @return the total combined balance of all accounts. */
+	public double getTotalBalance() {
+		return getTotalCents() / 100.0;
+	}
+
+	/** @return the average balance of all accounts (0 if none exist). */
+	public double getAverageBalance() {
+		long count = getAccountCount();
+		return count == 0 ? 0.0 : getTotalBalance() / count;
+	}
+
+	/** @return the number of accounts with zero balance. */
+	public int getZeroBalanceCount() {
+		return zeroBalanceCount.intValue();
+	}
+
+	/**
+	 * Returns the account with the largest balance. Scans the accounts only if
+	 * the last known largest one has lost money since; balances that rose during
+	 * the scan are counted too.
+	 *
+	 * @return the account with the largest balance, or null if no accounts exist.
+	 */
+	public Account getLargestAccount() {
+		Largest current = largest.get();
+		// A remembered balance that no longer matches was changed after it was offered
+		if (current.complete() && (current.account() == null || current.account().getBalanceCents() == current.cents())) {
+			return current.account();
+		}
+		Account best = null;
+		long bestCents = Long.MIN_VALUE;
+		for (Account acc : accounts) {
+			long cents = acc.getBalanceCents();
+			if (cents > bestCents) {
+				best = acc;
+				bestCents = cents;
+			}
+		}
+		Largest scanned = new Largest(best, bestCents, true);
+		while (true) {
+			current = largest.get();
+			Largest merged = current.cents() > scanned.cents()
+					? new Largest(current.account(), current.cents(), true)
+					: scanned;
+			if (largest.compareAndSet(current, merged)) {
+				return merged.account();
+			}
+		}
+	}
+
+	/**
+	 * @param type the account type
+	 * @return the number of accounts of that type.
+	 */
+	public long getAccountCount(AccountType type) {
+		return counts[type.ordinal()].sum();
+	}
+
+	/**
+	 * @param type the account type
+	 * @return the combined balance of accounts of that type.
+	 */
+	public double getTotalBalance(AccountType type) {
+		return totalCents[type.ordinal()].sum() / 100.0;
+	}
+}
@@ -1,5 +1,31 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import javax.management.JMException;
 
 /**
  * Provide a command-line interface for interacting with the Bank system.
@@ -7,6 +33,19 @@ import java.util.Scanner;
  * 
  * This class serves as the entry point and user-facing component of the program.
  * 
+ * The {@code bank.mode} property picks where the accounts are kept. In
+ * {@code memory} mode, the default, they are a {@link Bank} loaded from
+ * {@value #DATA_FILE} and kept by its journal. In {@code mapped} mode they are
+ * the records of a {@link MappedAccountStore} in {@code bank.store.file}, so
+ * startup only maps the file and takes the same time however many accounts
+ * there are. In {@code paged} mode they are the records of a
+ * {@link PagedAccountStore}, of which only {@code bank.store.cacheMB} megabytes
+ * are in memory, so the bank can hold more accounts than fit in the heap. In
+ * {@code sharded} mode they are in a {@link ShardedBank}, one writer thread per
+ * shard, loaded from and saved on exit to a snapshot in {@code bank.store.file}.
+ * The menu items that need Bank's indexes or balance history are only
+ * available in memory mode. Each mode keeps its own files.
+ * 
  * @author Red Team
  * @version 1.0 
  * @since 2025-08-08
@@ -15,22 +54,231 @@ import java.util.Scanner;
 
 public class BankSystem {
 
-	private static final String DATA_FILE = "bank_data.ser";
-	private final Bank bank;
+	private static final String DATA_FILE = "bank_data.dat";
+	private static final String JOURNAL_FILE = "bank_journal.log";
+	
+	/** Where the first version of this program saved the bank; imported once if no data file exists. */
+	private static final String LEGACY_DATA_FILE = "bank_data.ser";
+	
+	/** Maximum milliseconds an operation may stay unsynced; 0 syncs every operation. */
+	private static final long JOURNAL_WINDOW_MILLIS = Long.getLong("bank.journal.windowMillis", 0);
+	
+	/** Days of balance changes kept for looking up past balances. */
+	private static final long HISTORY_RETENTION_DAYS = Long.getLong("bank.history.retentionDays",
+			Bank.DEFAULT_HISTORY_RETENTION.toDays());
+	
+	/** Seconds between background saves of changed accounts while running; 0 saves only on exit. */
+	private static final long CHECKPOINT_INTERVAL_SECONDS = Long.getLong("bank.checkpoint.intervalSeconds", 0);
+	
+	/** Maximum requests queued per connection when serving over TCP. */
+	private static final int SERVER_QUEUE_CAPACITY = 1024;
+	
+	/** File receipts are appended to while serving; receipts are not kept if unset. */
+	private static final String SERVER_RECEIPTS_FILE = System.getProperty("bank.server.receiptsFile");
+	
+	/** Maximum receipts waiting to be written to {@link #SERVER_RECEIPTS_FILE}. */
+	private static final int SERVER_RECEIPTS_QUEUE_CAPACITY = 8192;
+	
+	/** Number of accounts shown per page when listing accounts. */
+	private static final int PAGE_SIZE = 20;
+	
+	/** Where the accounts are kept: "memory", "mapped", "paged" or "sharded". */
+	private static final String MODE = System.getProperty("bank.mode", "memory");
+	
+	/** The values {@link #MODE} may take. */
+	private static final List<String> MODES = List.of("memory", "mapped", "paged", "sharded");
+	
+	/** The account store file of the mapped and paged modes, or the snapshot of the sharded mode. */
+	private static final String STORE_FILE = System.getProperty("bank.store.file", "bank_accounts." + MODE);
+	
+	/** Accounts a new store file has room for; fixed when the file is created. */
+	private static final int STORE_CAPACITY = Integer.getInteger("bank.store.capacity", 1_000_000);
+	
+	/** Megabytes of pages the paged mode keeps in memory. */
+	private static final long STORE_CACHE_MB = Long.getLong("bank.store.cacheMB", 64);
+	
+	/** Shards, each with its writer thread, of the sharded mode. */
+	private static final int SHARD_COUNT = Integer.getInteger("bank.shards", Runtime.getRuntime().availableProcessors());
+	
+	private final BankOperations bank;
+	/** The bank in memory mode, for what only it offers; null in the other modes. */
+	private final Bank memoryBank;
+	/** The bank in the store-backed modes; null in the other modes. */
+	private final AccountStoreBank storeBank;
+	/** The bank in sharded mode; null in the other modes. */
+	private final ShardedBank shardedBank;
 	private final Scanner scanner;
+	private BankJournal journal;
+	private ScheduledExecutorService checkpointer;
 	
-	/** Constructs a BankSystem and loads any previously saved state. */
-	public BankSystem() {
+	/**
+	 * Constructs a BankSystem in the mode the {@code bank.mode} property names.
+	 * In memory mode loads any previously saved state and replays the journal;
+	 * in the mapped and paged modes opens the store file, or creates it if there
+	 * is none; in sharded mode loads the snapshot, if there is one.
+	 * 
+	 * @throws IOException if the mode is unknown, saved data exists but cannot be
+	 *         loaded, or the journal cannot be replayed; the files are left as they are.
+	 */
+	public BankSystem() throws IOException {
 		this.scanner = new Scanner(System.in);
+		switch (MODE) {
+		case "memory" -> {
+			memoryBank = loadMemoryBank();
+			storeBank = null;
+			shardedBank = null;
+			bank = memoryBank;
+		}
+		case "mapped", "paged" -> {
+			memoryBank = null;
+			storeBank = new AccountStoreBank(openStore());
+			shardedBank = null;
+			bank = storeBank;
+		}
+		case "sharded" -> {
+			memoryBank = null;
+			storeBank = null;
+			shardedBank = loadShardedBank();
+			bank = shardedBank.asBankOperations();
+		}
+		default -> throw new IOException("Unknown bank.mode: " + MODE + " (expected one of " + String.join(", ", MODES) + ").");
+		}
+		
+		// A sharded snapshot is exact only while nothing runs, so that mode saves on exit alone
+		if (CHECKPOINT_INTERVAL_SECONDS > 0 && shardedBank == null) {
+			checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+				Thread thread = new Thread(task, "bank-checkpointer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			checkpointer.scheduleWithFixedDelay(this::checkpointQuietly,
+					CHECKPOINT_INTERVAL_SECONDS, CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+	
+	/**
+	 * Loads the saved bank, replays the journal into it and attaches the journal,
+	 * so later changes are logged.
+	 * 
+	 * @return the loaded bank
+	 * @throws IOException if saved data exists but cannot be loaded, or the journal
+	 *         cannot be replayed
+	 */
+	private Bank loadMemoryBank() throws IOException {
 		Bank loaded;
 		try {
 			loaded = Bank.loadFromFile(DATA_FILE);
 			System.out.println("Bank data loaded successfully.");
-		} catch (Exception e) {
+		} catch (NoSuchFileException e) {
+			loaded = importLegacyData();
+		} catch (IOException | RuntimeException e) {
+			// Starting empty would let the journal and the next save overwrite the saved accounts
+			throw new IOException("Cannot load " + DATA_FILE + ": " + e.getMessage(), e);
+		}
+		journal = new BankJournal(JOURNAL_FILE, JOURNAL_WINDOW_MILLIS);
+		try {
+			int replayed = loaded.attachJournal(journal, Duration.ofDays(HISTORY_RETENTION_DAYS));
+			if (replayed > 0) {
+				System.out.println("Recovered " + replayed + " operations from the journal.");
+			}
+		} catch (IOException | RuntimeException e) {
+			journal.close();
+			throw new IOException("Cannot replay " + JOURNAL_FILE + ": " + e.getMessage(), e);
+		}
+		
+		// Count only live operations, not the ones just replayed
+		loaded.getMetrics().reset();
+		try {
+			loaded.getMetrics().register("BankSystem");
+		} catch (JMException e) {
+			System.err.println("Operation metrics are not available over JMX: " + e.getMessage());
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Opens the store file of the mapped or paged mode, or creates it with room
+	 * for {@link #STORE_CAPACITY} accounts if it does not exist yet.
+	 * 
+	 * @return the open store
+	 * @throws IOException if the file exists but cannot be opened, or cannot be created
+	 */
+	private static AccountRecordStore openStore() throws IOException {
+		boolean paged = MODE.equals("paged");
+		long cacheBytes = STORE_CACHE_MB << 20;
+		try {
+			if (Files.exists(Path.of(STORE_FILE))) {
+				AccountRecordStore store = paged ? PagedAccountStore.open(STORE_FILE, cacheBytes)
+						: MappedAccountStore.open(STORE_FILE);
+				System.out.println("Opened " + STORE_FILE + " (" + store.size() + " accounts).");
+				return store;
+			}
+			AccountRecordStore store = paged ? PagedAccountStore.create(STORE_FILE, STORE_CAPACITY, cacheBytes)
+					: MappedAccountStore.create(STORE_FILE, STORE_CAPACITY);
+			System.out.println("Created " + STORE_FILE + " with room for " + STORE_CAPACITY + " accounts.");
+			return store;
+		} catch (IOException | RuntimeException e) {
+			throw new IOException("Cannot open " + STORE_FILE + ": " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Imports the bank saved by the first version of this program, if there is
+	 * one, and saves it in the current format so the import happens only once.
+	 * The old file is left in place.
+	 * 
+	 * @return the imported bank, or a new one if there is no old save file
+	 * @throws IOException if the old file exists but cannot be imported or saved
+	 */
+	private static Bank importLegacyData() throws IOException {
+		if (!Files.exists(Path.of(LEGACY_DATA_FILE))) {
 			System.out.println("Starting with a new bank (no saved data found).");
-			loaded = new Bank();
+			return new Bank();
+		}
+		Bank imported;
+		try {
+			imported = LegacyBankImport.read(LEGACY_DATA_FILE);
+			imported.saveToFile(DATA_FILE);
+		} catch (IOException e) {
+			throw new IOException("Cannot import " + LEGACY_DATA_FILE + ": " + e.getMessage(), e);
+		}
+		System.out.println("Imported " + imported.getAccounts().size() + " accounts from " + LEGACY_DATA_FILE
+				+ " into " + DATA_FILE + ".");
+		return imported;
+	}
+	
+	/**
+	 * Loads the sharded mode's snapshot into a new ShardedBank with
+	 * {@link #SHARD_COUNT} shards, or starts it empty if there is no snapshot.
+	 * 
+	 * @return the started bank
+	 * @throws IOException if the snapshot exists but cannot be loaded
+	 */
+	private static ShardedBank loadShardedBank() throws IOException {
+		if (!Files.exists(Path.of(STORE_FILE))) {
+			System.out.println("Starting with a new bank of " + SHARD_COUNT + " shards (no " + STORE_FILE + " found).");
+			return new ShardedBank(SHARD_COUNT);
+		}
+		try {
+			ShardedBank loaded = ShardedBank.loadFromFile(STORE_FILE, SHARD_COUNT);
+			System.out.println("Loaded " + STORE_FILE + " into " + SHARD_COUNT + " shards.");
+			return loaded;
+		} catch (IOException | RuntimeException e) {
+			throw new IOException("Cannot load " + STORE_FILE + ": " + e.getMessage(), e);
+		}
+	}
+	
+	/** Runs one periodic save of the changed accounts; failures are reported and retried next time. */
+	private void checkpointQuietly() {
+		try {
+			if (memoryBank != null) {
+				memoryBank.saveChanges(DATA_FILE);
+			} else {
+				storeBank.flush();
+			}
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Background checkpoint failed: " + e.getMessage());
 		}
-		this.bank = loaded;
 	}
 	
 	/** Starts the main menu loop. */
@@ -50,11 +298,14 @@ public class BankSystem {
 			case "8" -> applyMonthlyUpdates();
 			case "9" -> displayStatistics();
 			case "10" -> listAllAccounts();
-			case "11" -> {
+			case "11" -> findAccountsByName();
+			case "12" -> transfer();
+			case "13" -> displayBalanceAt();
+			case "14" -> {
 				saveAndExit();
 				running = false;
 			}
-			default -> System.out.println("\nInvalid selection. Please enter a number between 1 and 10.");
+			default -> System.out.println("\nInvalid selection. Please enter a number between 1 and 14.");
 			}
 		}
 	}
@@ -72,7 +323,10 @@ public class BankSystem {
         System.out.println("8. Apply end-of-month updates");
         System.out.println("9. Display bank statistics");
         System.out.println("10. List all accounts");
-        System.out.println("11. Exit");
+        System.out.println("11. Find accounts by owner name");
+        System.out.println("12. Transfer between accounts");
+        System.out.println("13. Show balance at a past time");
+        System.out.println("14. Exit");
         System.out.print("Choose an option: ");
 	}
 	
@@ -84,11 +338,22 @@ public class BankSystem {
 		String customerId = promptForNonEmptyString("\nEnter customer ID");
 		if (customerId == null) return; // User canceled - return to main menu
 		
-		String name = promptForNonEmptyString("\nEnter customer name");
-		if (name == null) return; // User canceled - return to main menu
+		// Only the memory mode keeps a customer registry; elsewhere each account keeps its own customer
+		Customer customer = memoryBank != null ? memoryBank.getCustomer(customerId.trim()) : null;
+		if (customer != null) {
+			System.out.println("Existing customer: " + customer);
+		} else {
+			String name = promptForNonEmptyString("\nEnter customer name");
+			if (name == null) return; // User canceled - return to main menu
+			try {
+				customer = new Customer(customerId, name);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Error creating account: " + e.getMessage());
+				return;
+			}
+		}
 		
 		try {
-			Customer customer = new Customer(customerId, name);
 			bank.createAccount(type, accNum, customer);
 			System.out.println(type + " account created.");
 		} catch (IllegalArgumentException e) {
@@ -126,6 +391,59 @@ public class BankSystem {
 		}
 	}
 	
+	/** Prompts for two account numbers and an amount and transfers it, or reports a failure. */
+	private void transfer() {
+		String from = promptForNonEmptyString("\nEnter account number to transfer from");
+		if (from == null) return; // User canceled - return to main menu
+		
+		String to = promptForNonEmptyString("\nEnter account number to transfer to");
+		if (to == null) return; // User canceled - return to main menu
+		
+		double amount = promptForPositiveDouble("\nEnter transfer amount");
+		if (amount < 0) return; // User canceled - return to main menu
+		
+		try {
+			if (!bank.transfer(from, to, amount)) {
+				System.out.println("\nWarning: Transfer failed. Account " + from + " or " + to + " not found.");
+			} else {
+				System.out.println("\nTransfer successful.");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println("Transfer failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Prompts for an account number and a local date, optionally with a time, and
+	 * shows the balance the account had then. A date alone means the end of that day.
+	 */
+	private void displayBalanceAt() {
+		if (!memoryModeOnly()) return;
+		String accNum = promptForNonEmptyString("\nEnter account number");
+		if (accNum == null) return; // User canceled - return to main menu
+		
+		while (true) {
+			String when = promptForNonEmptyString("\nEnter date as yyyy-MM-dd, optionally followed by HH:mm[:ss],");
+			if (when == null) return; // User canceled - return to main menu
+			long epochMillis;
+			try {
+				LocalDateTime time = when.length() <= 10
+						? LocalDate.parse(when).atTime(LocalTime.MAX)
+						: LocalDateTime.parse(when.replace(' ', 'T'));
+				epochMillis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			} catch (DateTimeParseException e) {
+				System.out.println("Invalid date or time.");
+				continue;
+			}
+			try {
+				System.out.printf("%nBalance of %s at %s: $%.2f%n", accNum, when, memoryBank.getBalanceAt(accNum, epochMillis));
+			} catch (IllegalArgumentException e) {
+				System.out.println("\n" + e.getMessage());
+			}
+			return;
+		}
+	}
+	
 	/** Prompts user for account number and displays information, or reports account not found.*/
 	private void displayAccount() {
 		String accNum = promptForNonEmptyString("\nEnter account number");
@@ -144,24 +462,65 @@ public class BankSystem {
 		System.out.println(removed ? "\nAccount removed." : "\nAccount not found.");
 	}
 	
-	/** Applies monthly updates to all accounts*/
+	/**
+	 * Applies monthly updates to all accounts, using every available processor,
+	 * and shows the partitions finishing.
+	 */
 	private void applyMonthlyUpdates() {
-		bank.applyMonthlyUpdates();
-		System.out.println("\nMonthly updates applied.");
+		long start = System.nanoTime();
+		if (memoryBank == null) {
+			bank.applyMonthlyUpdates();
+			System.out.printf("%nMonthly updates applied (%d ms).%n", (System.nanoTime() - start) / 1_000_000);
+			return;
+		}
+		AtomicInteger finished = new AtomicInteger();
+		LongAccumulator slowestNanos = new LongAccumulator(Math::max, 0);
+		memoryBank.applyMonthlyUpdates(Runtime.getRuntime().availableProcessors(), (partition, partitions, accounts, elapsedNanos) -> {
+			slowestNanos.accumulate(elapsedNanos);
+			System.out.printf("\rMonth-end: %d of %d partitions done", finished.incrementAndGet(), partitions);
+		});
+		System.out.printf("%nMonthly updates applied (%d ms; slowest partition %d ms).%n",
+				(System.nanoTime() - start) / 1_000_000, slowestNanos.get() / 1_000_000);
 	}
 	
 	/** Displays all account numbers in bank, or a friendly message if none exists. */
 	private void listAllAccounts() {
-		var rows = bank.getAllAccountSummaries();
-		if (rows.isEmpty()) {
+		if (!memoryModeOnly()) return;
+		AccountPage page = memoryBank.getAccountSummaries(null, PAGE_SIZE);
+		if (page.getRows().isEmpty()) {
+			System.out.println("No accounts found.");
+			return;
+		}
+		System.out.println("\nAccount #      Balance       Owner (ID)");
+	    System.out.println("------------------------------------------------");
+		while (true) {
+			for (String r : page.getRows()) {
+				System.out.println(r);
+			}
+			if (!page.hasNext()) return;
+			System.out.print("Press Enter for more, or Q to stop: ");
+			if (scanner.nextLine().trim().equalsIgnoreCase("q")) return;
+			page = memoryBank.getAccountSummaries(page.getNextAccountNumber(), PAGE_SIZE);
+		}
+	}
+	
+	/** Prompts for the start of an owner's name and lists that owner's accounts, or reports none found. */
+	private void findAccountsByName() {
+		if (!memoryModeOnly()) return;
+		String prefix = promptForNonEmptyString("\nEnter owner name (or its beginning)");
+		if (prefix == null) return; // User canceled - return to main menu
+		
+		var matches = memoryBank.findAccountsByCustomerName(prefix, PAGE_SIZE);
+		if (matches.isEmpty()) {
 			System.out.println("No accounts found.");
 			return;
 		}
 		System.out.println("\nAccount #      Balance       Owner (ID)");
 	    System.out.println("------------------------------------------------");
-		for (String r : rows) {
-			System.out.println(r);
-		}		
+		for (Account a : matches) {
+			System.out.printf("%-12s %10.2f      %s (%s)%n", a.getAccountNumber(), a.getBalance(),
+					a.getCustomer().getName(), a.getCustomer().getCustomerId());
+		}
 	}
 	
 	/** Displays the bank statistics for all accounts, or a message no accounts found. */ 
@@ -170,7 +529,11 @@ public class BankSystem {
 		System.out.printf("Total balance: $%.2f%n", bank.getTotalBalance());
 		System.out.printf("Average balance: $%.2f%n", bank.getAverageBalance());
 		System.out.printf("Zero balance accounts: %d%n", bank.getZeroBalanceCount());
-		Account largest = bank.getLargestAccount();
+		for (AccountType type : AccountType.values()) {
+			System.out.printf("%s accounts: %d (total $%.2f)%n",
+					type.getDisplayName(), bank.getAccountCount(type), bank.getTotalBalance(type));
+		}
+		AccountView largest = bank.getLargestAccount();
 		if (largest != null) {
 			System.out.println("Account with largest balance:\n" + largest);
 		} else {
@@ -180,8 +543,19 @@ public class BankSystem {
 	
 	/** Saves the current state of bank data or states saving failed. */
 	private void saveAndExit() {
+		if (checkpointer != null) {
+			checkpointer.shutdown();
+		}
 		try {
-			bank.saveToFile(DATA_FILE);
+			if (memoryBank != null) {
+				memoryBank.saveChanges(DATA_FILE);
+				journal.close();
+			} else if (storeBank != null) {
+				storeBank.close();
+			} else {
+				shardedBank.saveToFile(STORE_FILE);
+				shardedBank.close();
+			}
 			System.out.println("\nBank data saved. Goodbye!");
 		} catch (IOException e) {
 			System.err.println("\nFailed to save bank data: " + e.getMessage());
@@ -189,6 +563,14 @@ public class BankSystem {
 	}
 	
 	
+	/** @return true in memory mode; otherwise says the chosen item needs it. */
+	private boolean memoryModeOnly() {
+		if (memoryBank != null) return true;
+		System.out.println("\nNot available in " + MODE + " mode; run with -Dbank.mode=memory.");
+		return false;
+	}
+	
+	
 	// -------- Input helpers methods with retry and cancel support for user --------
 	
 	/** Continuously prompts user for input until correct string is provided or user quits */
@@ -218,8 +600,94 @@ public class BankSystem {
 		}
 	}
 	
-	/** Main entry point for the application. */
+	/**
+	 * Runs a script of commands (see {@link BankScript}) instead of the menu, then
+	 * saves and exits. Exits with status 1 if any command failed.
+	 * 
+	 * @param path the script file, or "-" to read standard input.
+	 */
+	public void runScript(String path) {
+		int failed;
+		try (BufferedReader in = path.equals("-")
+					? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+					: Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8)) {
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+			failed = new BankScript(bank).run(in, out);
+		} catch (IOException e) {
+			System.err.println("Failed to run script: " + e.getMessage());
+			failed = 1;
+		}
+		saveAndExit();
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Serves the bank over TCP (see {@link BankServer}) until Enter is pressed,
+	 * then saves and exits. Receipts are not printed while serving; if the
+	 * {@code bank.server.receiptsFile} property names a file, they are appended
+	 * to it by a background writer so requests never wait on the disk.
+	 * 
+	 * @param port the port to listen on.
+	 */
+	public void runServer(int port) {
+		Account.setReceiptSink(ReceiptSink.NONE);
+		// Closed in reverse order: the server stops first, so no receipt arrives after its sink
+		try (OutputStream receiptFile = SERVER_RECEIPTS_FILE == null ? null
+					: Files.newOutputStream(Path.of(SERVER_RECEIPTS_FILE), StandardOpenOption.CREATE,
+							StandardOpenOption.APPEND);
+				AsyncReceiptSink receipts = receiptFile == null ? null
+					: new AsyncReceiptSink(receiptFile, SERVER_RECEIPTS_QUEUE_CAPACITY);
+				BankServer server = new BankServer(bank, port, SERVER_QUEUE_CAPACITY)) {
+			if (receipts != null) {
+				Account.setReceiptSink(receipts);
+			}
+			System.out.println("Serving on port " + server.getPort() + ". Press Enter to stop.");
+			scanner.nextLine();
+		} catch (IOException e) {
+			System.err.println("Server failed: " + e.getMessage());
+		} catch (NoSuchElementException e) {
+			// Standard input closed; stop as if Enter was pressed
+		} finally {
+			Account.setReceiptSink(ReceiptSink.NONE);
+		}
+		saveAndExit();
+	}
+	
+	/**
+	 * Main entry point for the application. With {@code --script <file>} (or
+	 * {@code --script -} for standard input) runs the commands without the menu;
+	 * with {@code --serve <port>} serves the bank over TCP. Exits with status 1,
+	 * changing nothing, if the saved data, journal or store file cannot be loaded.
+	 */
 	public static void main(String[] args) {
-		new BankSystem().run();
+		boolean script = args.length == 2 && args[0].equals("--script");
+		boolean serve = args.length == 2 && args[0].equals("--serve");
+		if (!script && !serve && args.length != 0) {
+			System.err.println("Usage: java BankSystem [--script <file> | --script - | --serve <port>]");
+			System.exit(2);
+		}
+		if (!MODES.contains(MODE)) {
+			System.err.println("Unknown bank.mode: " + MODE + " (expected one of " + String.join(", ", MODES) + ").");
+			System.exit(2);
+		}
+		BankSystem system;
+		try {
+			system = new BankSystem();
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Nothing was changed. Restore or move aside "
+					+ (MODE.equals("memory") ? DATA_FILE + " and " + JOURNAL_FILE : STORE_FILE) + " to start over.");
+			System.exit(1);
+			return;
+		}
+		if (script) {
+			system.runScript(args[1]);
+		} else if (serve) {
+			system.runServer(Integer.parseInt(args[1]));
+		} else {
+			system.run();
+		}
 	}
 }
@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test and benchmark for {@link Bank#transfer(String, String, double)}.
+ *
+ * Many threads move random amounts between random accounts, in both directions,
+ * while a saver thread repeatedly snapshots the bank. Transfers only move money,
+ * so the total must stay the same: the run fails if the final total, or the
+ * total of any snapshot taken during the run, differs from the starting total.
+ * A deadlock shows up as the run never finishing.
+ *
+ * Usage: {@code java BankTransferStress [threads] [accounts] [transfersPerThread]}
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BankTransferStress {
+
+	/** Starting balance of every account, in dollars. */
+	private static final int OPENING_BALANCE = 1000;
+
+	private BankTransferStress() {
+	}
+
+	/**
+	 * Runs the stress test.
+	 *
+	 * @param threads number of transferring threads
+	 * @param accountCount number of accounts; few accounts means more contention
+	 * @param transfersPerThread transfers each thread attempts
+	 * @return true if money was conserved throughout
+	 * @throws Exception if a thread or a snapshot fails
+	 */
+	static boolean run(int threads, int accountCount, int transfersPerThread) throws Exception {
+		Account.setReceiptSink(ReceiptSink.NONE);
+		Bank bank = new Bank();
+		String[] accounts = new String[accountCount];
+		String[] types = { "checking", "gold", "regular" };
+		for (int i = 0; i < accountCount; i++) {
+			accounts[i] = String.format("T%07d", i);
+			bank.createAccount(types[i % types.length], accounts[i], new Customer("S" + i, "Stress " + i));
+			bank.deposit(accounts[i], OPENING_BALANCE);
+		}
+		long expectedCents = (long) accountCount * OPENING_BALANCE * 100;
+
+		AtomicLong completed = new AtomicLong();
+		AtomicLong refused = new AtomicLong();
+		CountDownLatch startSignal = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>(threads);
+		for (int t = 0; t < threads; t++) {
+			long seed = t;
+			workers.add(Thread.ofPlatform().name("transfer-" + t).start(() -> {
+				SplittableRandom random = new SplittableRandom(seed);
+				try {
+					startSignal.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < transfersPerThread; i++) {
+					String from = accounts[random.nextInt(accountCount)];
+					String to = accounts[random.nextInt(accountCount)];
+					if (from.equals(to)) {
+						continue;
+					}
+					try {
+						bank.transfer(from, to, 1 + random.nextInt(500));
+						completed.incrementAndGet();
+					} catch (IllegalArgumentException e) {
+						refused.incrementAndGet(); // insufficient funds
+					}
+				}
+			}));
+		}
+
+		// Snapshots taken mid-run must also see every transfer whole or not at all
+		Path file = Files.createTempFile("bank-transfer-stress", ".dat");
+		int[] snapshots = { 0 };
+		boolean[] snapshotsConserved = { true };
+		Thread saver = Thread.ofPlatform().name("transfer-saver").start(() -> {
+			try {
+				while (completed.get() + refused.get() < (long) threads * transfersPerThread / 2) {
+					bank.saveToFile(file.toString());
+					long saved = totalCents(Bank.loadFromFile(file.toString()));
+					snapshots[0]++;
+					if (saved != expectedCents) {
+						System.err.printf("Snapshot %d holds %d cents, expected %d%n", snapshots[0], saved, expectedCents);
+						snapshotsConserved[0] = false;
+					}
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Snapshot failed: " + e.getMessage(), e);
+			}
+		});
+
+		long start = System.nanoTime();
+		startSignal.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		saver.join();
+		Files.deleteIfExists(file);
+
+		long finalCents = totalCents(bank);
+		long attempted = completed.get() + refused.get();
+		System.out.printf("%d threads, %d accounts: %d transfers (%d refused for insufficient funds) in %d ms, %.0f transfers/s%n",
+				threads, accountCount, attempted, refused.get(), elapsed / 1_000_000, attempted * 1e9 / elapsed);
+		System.out.printf("Total %d cents, expected %d; statistics report %.2f; %d snapshots checked%n",
+				finalCents, expectedCents, bank.getTotalBalance(), snapshots[0]);
+		return finalCents == expectedCents && Math.round(bank.getTotalBalance() * 100) == expectedCents
+				&& snapshotsConserved[0];
+	}
+
+	/** @return the sum of all balances, counted account by account. */
+	private static long totalCents(Bank bank) {
+		long total = 0;
+		for (Account acc : bank.getAccounts()) {
+			total += acc.getBalanceCents();
+		}
+		return total;
+	}
+
+	/** Runs the stress test and exits with status 1 if money was not conserved. */
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 4;
+		int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int transfers = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+		if (run(threads, accounts, transfers)) {
+			System.out.println("Money conserved.");
+		} else {
+			System.out.println("MONEY NOT CONSERVED.");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Outcome of {@link Bank#applyBatch(TransactionBatch)}: one status code per row
+ * plus summary totals.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class BatchResult {
+
+	/** The row was applied in full. */
+	public static final byte OK = 0;
+
+	/** No account with the row's account number exists; nothing was applied. */
+	public static final byte ACCOUNT_NOT_FOUND = 1;
+
+	/** The amount was not positive (or rounded to zero cents); nothing was applied. */
+	public static final byte INVALID_AMOUNT = 2;
+
+	/** A no-overdraft withdrawal was capped at the available balance. */
+	public static final byte PARTIAL_WITHDRAWAL = 3;
+
+	private final byte[] statuses;
+	private final long depositedCents;
+	private final long withdrawnCents;
+	private final int failedCount;
+
+	BatchResult(byte[] statuses, long depositedCents, long withdrawnCents, int failedCount) {
+		this.statuses = statuses;
+		this.depositedCents = depositedCents;
+		this.withdrawnCents = withdrawnCents;
+		this.failedCount = failedCount;
+	}
+
+	/**
+	 * @param row zero-based row index in the batch
+	 * @return the status code of the row: {@link #OK}, {@link #ACCOUNT_NOT_FOUND},
+	 *         {@link #INVALID_AMOUNT}, or {@link #PARTIAL_WITHDRAWAL}
+	 */
+	public byte getStatus(int row) {
+		return statuses[row];
+	}
+
+	/** @return the number of rows in the batch. */
+	public int size() {
+		return statuses.length;
+	}
+
+	/** @return the number of rows that were applied, fully or partially. */
+	public int getAppliedCount() {
+		return statuses.length - failedCount;
+	}
+
+	/** @return the number of rows that were rejected. */
+	public int getFailedCount() {
+		return failedCount;
+	}
+
+	/** @return the total amount deposited. */
+	public double getTotalDeposited() {
+		return depositedCents / 100.0;
+	}
+
+	/** @return the total amount actually withdrawn. */
+	public double getTotalWithdrawn() {
+		return withdrawnCents / 100.0;
+	}
+
+	@Override
+	public String toString() {
+		return "Batch of " + statuses.length + " rows: " + getAppliedCount() + " applied, " +
+				failedCount + " failed" +
+				String.format("%n---> $%.2f deposited%n---> $%.2f withdrawn", getTotalDeposited(), getTotalWithdrawn());
+	}
+}
@@ -1,4 +1,6 @@
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * A checking account with transaction fees after a set number of free transactions.
@@ -17,11 +19,21 @@ public class CheckingAccount extends Account implements Serializable {
 	/** Number of free transactions per month. */
 	private static final int FREE_TRANSACTIONS = 2;
 	
-	/** Fee charged for each transaction beyond the free limit. */
-	private static final double TRANSACTION_FEE = 3.0;
+	/** Fee charged for each transaction beyond the free limit, in cents ($3). */
+	private static final long TRANSACTION_FEE_CENTS = 300;
 	
-	/** Counter for transaction this month (deposit or withdrawal). */
-	private int transactionCount;
+	/** Counter for transaction this month (deposit or withdrawal). Updated only through {@link #TRANSACTIONS}. */
+	private volatile int transactionCount;
+	
+	/** Atomic access to {@link #transactionCount}. */
+	private static final VarHandle TRANSACTIONS;
+	static {
+		try {
+			TRANSACTIONS = MethodHandles.lookup().findVarHandle(CheckingAccount.class, "transactionCount", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 
 	/**
 	 * Constructs a CheckingAccount for a given customer. 
@@ -36,6 +48,22 @@ public class CheckingAccount extends Account implements Serializable {
 		this.transactionCount = 0;
 	}
 	
+	/** @return the number of transactions made this month */
+	@Override
+	public int getTransactionCount() {
+		return transactionCount;
+	}
+	
+	/**
+	 * Restores a previously saved monthly transaction count.
+	 * Used only when loading a snapshot.
+	 * 
+	 * @param transactionCount the saved transaction count
+	 */
+	void restoreTransactionCount(int transactionCount) {
+		this.transactionCount = transactionCount;
+	}
+	
 	/**
 	 * Deposits a specified positive amount into the account. 
 	 * Increments the monthly transaction count.
@@ -45,17 +73,18 @@ public class CheckingAccount extends Account implements Serializable {
 	 */
 	@Override
 	public void deposit(double amount) {
-		if (amount <= 0) {
-			throw new IllegalArgumentException("Deposit amount must be positive.");
-		}
-		balance += amount;
-		transactionCount ++;
+		long cents = requirePositiveCents(amount, "Deposit amount must be positive.");
+		long newBalance = addCents(cents);
+		int count = (int) TRANSACTIONS.getAndAdd(this, 1) + 1;
 		
 		// Transaction receipt
-		System.out.println("\nTransaction completed:\n" + 
-				"---> " + String.format("$%.2f", amount) + " deposited" +
-				"\n---> " + String.format("$%.2f", balance) + " balance" +
-				"\n---> " + transactionCount + " transactions this month");
+		ReceiptSink sink = getReceiptSink();
+		if (sink.isEnabled()) {
+			sink.accept("\nTransaction completed:\n" + 
+					"---> " + formatCents(cents) + " deposited" +
+					"\n---> " + formatCents(newBalance) + " balance" +
+					"\n---> " + count + " transactions this month");
+		}
 	}
 	
 	/**
@@ -68,21 +97,47 @@ public class CheckingAccount extends Account implements Serializable {
 	 */
 	@Override
 	public void withdraw(double amount) {
-		if (amount <= 0) {
-			throw new IllegalArgumentException("Withdrawal amount must be positive.");
+		long requested = requirePositiveCents(amount, "Withdrawal amount must be positive.");
+		long before = withdrawUpToBalance(requested); // can't withdraw more than available
+		long withdrawn = cappedWithdrawal(requested, before);
+		int count = (int) TRANSACTIONS.getAndAdd(this, 1) + 1;
+		ReceiptSink sink = getReceiptSink();
+		if (!sink.isEnabled()) {
+			return;
 		}
-		double amountToWithdraw = Math.min(amount, balance); // can't withdraw more than available
-		if (amountToWithdraw < amount) {
-			System.out.println("\nNote: Insufficient funds; only " + String.format("$%.2f", amountToWithdraw) + " withdrawn.");
+		if (withdrawn < requested) {
+			sink.accept("\nNote: Insufficient funds; only " + formatCents(withdrawn) + " withdrawn.");
 		}
-		balance -= amountToWithdraw;
-		transactionCount ++;
 		
 		// Transaction receipt
-		System.out.println("\nTransaction completed:\n" + 
-				"---> " + String.format("$%.2f", amountToWithdraw) + " withdrawn" +
-				"\n---> " + String.format("$%.2f", balance) + " balance" +
-				"\n---> " + transactionCount + " transactions this month");
+		sink.accept("\nTransaction completed:\n" + 
+				"---> " + formatCents(withdrawn) + " withdrawn" +
+				"\n---> " + formatCents(before - withdrawn) + " balance" +
+				"\n---> " + count + " transactions this month");
+	}
+	
+	@Override
+	long depositCents(long cents) {
+		long newBalance = addCents(cents);
+		TRANSACTIONS.getAndAdd(this, 1);
+		return newBalance;
+	}
+	
+	@Override
+	long withdrawCents(long cents) {
+		long withdrawn = cappedWithdrawal(cents, withdrawUpToBalance(cents));
+		TRANSACTIONS.getAndAdd(this, 1);
+		return withdrawn;
+	}
+	
+	/** A transfer out counts as a transaction only if it goes through. */
+	@Override
+	boolean transferOutCents(long cents) {
+		if (!super.transferOutCents(cents)) {
+			return false;
+		}
+		TRANSACTIONS.getAndAdd(this, 1);
+		return true;
 	}
 	
 	/**
@@ -93,13 +148,28 @@ public class CheckingAccount extends Account implements Serializable {
 	 */
 	@Override 
 	public void applyMonthlyUpdate() {
-		if (transactionCount > FREE_TRANSACTIONS) {
-			int extraTransactions = transactionCount - FREE_TRANSACTIONS;
-			double totalFees = extraTransactions * TRANSACTION_FEE;
-			
-			balance -= totalFees;
+		int count = (int) TRANSACTIONS.getAndSet(this, 0);
+		long totalFees = monthlyFeeCents(count);
+		if (totalFees > 0) {
+			addCents(-totalFees);
 		}
-		transactionCount = 0;
+	}
+	
+	/**
+	 * @param transactionCount transactions made during the month
+	 * @return the month's transaction fees in cents
+	 */
+	static long monthlyFeeCents(int transactionCount) {
+		if (transactionCount <= FREE_TRANSACTIONS) {
+			return 0;
+		}
+		int extraTransactions = transactionCount - FREE_TRANSACTIONS;
+		return extraTransactions * TRANSACTION_FEE_CENTS;
+	}
+	
+	@Override
+	public AccountType getType() {
+		return AccountType.CHECKING;
 	}
 	
 	@Override
@@ -0,0 +1,413 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, column-oriented account store for very large books.
+ *
+ * Instead of one Account object per account, each field lives in a primitive
+ * array indexed by slot: balance in cents, type tag, monthly transaction count
+ * and an index into a shared customer table. Accounts are found through an
+ * open-addressing hash table of slot numbers, so there are no per-account map
+ * entries either. This keeps the store at a few dozen bytes per account plus the
+ * account number string, with almost nothing for the garbage collector to trace.
+ *
+ * Deposits, withdrawals and monthly updates apply the rules of
+ * CheckingAccount, GoldAccount and RegularAccount through {@link AccountType}.
+ * {@link #getAccount(String)} returns a live {@link AccountView} of one account
+ * for display, reporting or further changes, as the record stores do.
+ *
+ * Each customer ID is stored once, with the name most recently given for it.
+ *
+ * This store is not thread-safe; use it from a single thread, such as a
+ * nightly batch job.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class ColumnarAccountStore {
+
+	private static final AccountType[] TYPES = AccountType.values();
+
+	/** Number of accounts in use; slots 0..size-1 are occupied. */
+	private int size;
+
+	private String[] accountNumbers;
+	private long[] balancesCents;
+	private byte[] types;
+	private int[] transactionCounts;
+	private int[] customerSlots;
+
+	/** Open-addressing hash table holding slot + 1 (0 means empty), linear probing. */
+	private int[] table;
+
+	/** Shared customer table of the store's own Customer objects, one per customer ID. */
+	private final List<Customer> customers = new ArrayList<>();
+	private final Map<String, Integer> customerIndex = new HashMap<>();
+
+	/** A live view of one account, reading and writing the store's columns; see {@link AccountView}. */
+	private final class ColumnView implements AccountView {
+		private final String accountNumber;
+
+		/** Last known slot; accounts move when others are removed, so it is checked on each use. */
+		private int slot;
+
+		private ColumnView(String accountNumber, int slot) {
+			this.accountNumber = accountNumber;
+			this.slot = slot;
+		}
+
+		/** @return the account's current slot. */
+		private int slot() {
+			if (slot >= size || !accountNumbers[slot].equals(accountNumber)) {
+				slot = find(accountNumber);
+				if (slot < 0) {
+					throw new IllegalStateException("Account " + accountNumber + " has been removed.");
+				}
+			}
+			return slot;
+		}
+
+		@Override
+		public String getAccountNumber() {
+			return accountNumber;
+		}
+
+		@Override
+		public AccountType getType() {
+			return TYPES[types[slot()]];
+		}
+
+		/** @return the owner, shared by every account of that customer ID in the store */
+		@Override
+		public Customer getCustomer() {
+			return customers.get(customerSlots[slot()]);
+		}
+
+		@Override
+		public double getBalance() {
+			return balancesCents[slot()] / 100.0;
+		}
+
+		@Override
+		public long getBalanceCents() {
+			return balancesCents[slot()];
+		}
+
+		@Override
+		public int getTransactionCount() {
+			return transactionCounts[slot()];
+		}
+
+		/** Deposits into the account; see {@link ColumnarAccountStore#deposit(String, double)}. */
+		@Override
+		public void deposit(double amount) {
+			depositCents(slot(), Account.requirePositiveCents(amount, "Deposit amount must be positive."));
+		}
+
+		/** Withdraws from the account; see {@link ColumnarAccountStore#withdraw(String, double)}. */
+		@Override
+		public void withdraw(double amount) {
+			withdrawCents(slot(), Account.requirePositiveCents(amount, "Withdrawal amount must be positive."));
+		}
+
+		@Override
+		public String toString() {
+			return "Account: " + accountNumber +
+					"\nAccount Owner: " + getCustomer() +
+					"\nBalance: " + Account.formatCents(getBalanceCents());
+		}
+	}
+
+	/** Constructs an empty store. */
+	public ColumnarAccountStore() {
+		this(16);
+	}
+
+	/**
+	 * Constructs an empty store sized for the expected number of accounts.
+	 *
+	 * @param expectedAccounts expected number of accounts; must not be negative
+	 */
+	public ColumnarAccountStore(int expectedAccounts) {
+		if (expectedAccounts < 0) {
+			throw new IllegalArgumentException("Expected accounts cannot be negative.");
+		}
+		int capacity = Math.max(expectedAccounts, 16);
+		accountNumbers = new String[capacity];
+		balancesCents = new long[capacity];
+		types = new byte[capacity];
+		transactionCounts = new int[capacity];
+		customerSlots = new int[capacity];
+		table = new int[tableSizeFor(capacity)];
+	}
+
+	/**
+	 * Copies every account of a bank into a new columnar store.
+	 *
+	 * @param bank the bank to copy
+	 * @return the new store
+	 */
+	public static ColumnarAccountStore of(Bank bank) {
+		ColumnarAccountStore store = new ColumnarAccountStore(bank.getAccounts().size());
+		for (Account acc : bank.getAccounts()) {
+			int slot = store.add(acc.getType(), acc.getAccountNumber(), acc.getCustomer());
+			store.balancesCents[slot] = acc.getBalanceCents();
+			if (acc instanceof CheckingAccount checking) {
+				store.transactionCounts[slot] = checking.getTransactionCount();
+			}
+		}
+		return store;
+	}
+
+	/** @return the number of accounts in the store. */
+	public int size() {
+		return size;
+	}
+
+	// -------- Account operations --------
+
+	/**
+	 * Creates a new account with a zero balance.
+	 *
+	 * @param type the account type
+	 * @param accountNumber the unique account number
+	 * @param customer the account owner
+	 * @throws IllegalArgumentException if inputs are null/empty or the account number is in use
+	 */
+	public void createAccount(AccountType type, String accountNumber, Customer customer) {
+		if (type == null || accountNumber == null || accountNumber.isBlank() || customer == null) {
+			throw new IllegalArgumentException("Type, account number, and customer cannot be empty or null.");
+		}
+		add(type, accountNumber.trim(), customer);
+	}
+
+	/**
+	 * Removes an account.
+	 *
+	 * @param accountNumber the account number
+	 * @return true if removed, false if not found
+	 */
+	public boolean removeAccount(String accountNumber) {
+		int slot = find(accountNumber);
+		if (slot < 0) {
+			return false;
+		}
+		unindex(slot);
+		int last = --size;
+		if (slot != last) {
+			// Move the last account into the freed slot to keep the columns dense
+			unindex(last);
+			accountNumbers[slot] = accountNumbers[last];
+			balancesCents[slot] = balancesCents[last];
+			types[slot] = types[last];
+			transactionCounts[slot] = transactionCounts[last];
+			customerSlots[slot] = customerSlots[last];
+			index(slot);
+		}
+		accountNumbers[last] = null;
+		return true;
+	}
+
+	/**
+	 * Deposits into an account, with the same rules as {@link Account#deposit(double)}
+	 * but without a receipt.
+	 *
+	 * @param accountNumber the account number
+	 * @param amount the amount; must be positive
+	 * @return true if successful; false if the account was not found
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	public boolean deposit(String accountNumber, double amount) {
+		long cents = Account.requirePositiveCents(amount, "Deposit amount must be positive.");
+		int slot = find(accountNumber);
+		if (slot < 0) {
+			return false;
+		}
+		depositCents(slot, cents);
+		return true;
+	}
+
+	/**
+	 * Withdraws from an account, with the same rules as the account type's
+	 * {@code withdraw} method but without a receipt.
+	 *
+	 * @param accountNumber the account number
+	 * @param amount the amount; must be positive
+	 * @return true if successful; false if the account was not found
+	 * @throws IllegalArgumentException if amount is non-positive
+	 */
+	public boolean withdraw(String accountNumber, double amount) {
+		long cents = Account.requirePositiveCents(amount, "Withdrawal amount must be positive.");
+		int slot = find(accountNumber);
+		if (slot < 0) {
+			return false;
+		}
+		withdrawCents(slot, cents);
+		return true;
+	}
+
+	private void depositCents(int slot, long cents) {
+		balancesCents[slot] += cents;
+		if (TYPES[types[slot]].countsTransactions()) {
+			transactionCounts[slot]++;
+		}
+	}
+
+	private void withdrawCents(int slot, long cents) {
+		AccountType type = TYPES[types[slot]];
+		balancesCents[slot] -= type.withdrawalCents(cents, balancesCents[slot]);
+		if (type.countsTransactions()) {
+			transactionCounts[slot]++;
+		}
+	}
+
+	/** Applies monthly interest and fees to every account in one pass over the columns. */
+	public void applyMonthlyUpdates() {
+		for (int slot = 0; slot < size; slot++) {
+			balancesCents[slot] = TYPES[types[slot]].monthlyBalance(balancesCents[slot], transactionCounts[slot]);
+			transactionCounts[slot] = 0;
+		}
+	}
+
+	/**
+	 * @param accountNumber the account number
+	 * @return the balance of the account, or NaN if not found
+	 */
+	public double getBalance(String accountNumber) {
+		int slot = find(accountNumber);
+		return slot < 0 ? Double.NaN : balancesCents[slot] / 100.0;
+	}
+
+	/** @return the total combined balance of all accounts. */
+	public double getTotalBalance() {
+		long total = 0;
+		for (int slot = 0; slot < size; slot++) {
+			total += balancesCents[slot];
+		}
+		return total / 100.0;
+	}
+
+	/**
+	 * Returns a live view of one account; see {@link AccountView}. Creating one
+	 * copies nothing. The view shares the store's customer, so renaming it
+	 * renames the customer for all its accounts in the store.
+	 *
+	 * @param accountNumber the account number
+	 * @return the view, or null if not found
+	 */
+	public AccountView getAccount(String accountNumber) {
+		int slot = find(accountNumber);
+		return slot < 0 ? null : new ColumnView(accountNumbers[slot], slot);
+	}
+
+	// -------- Slot management and hash index --------
+
+	/** Appends a new account and returns its slot. */
+	private int add(AccountType type, String accountNumber, Customer customer) {
+		if (find(accountNumber) >= 0) {
+			throw new IllegalArgumentException("Account number already exists: " + accountNumber);
+		}
+		if (size == accountNumbers.length) {
+			grow();
+		}
+		int slot = size++;
+		accountNumbers[slot] = accountNumber;
+		balancesCents[slot] = 0;
+		types[slot] = (byte) type.ordinal();
+		transactionCounts[slot] = 0;
+		customerSlots[slot] = customerSlot(customer);
+		index(slot);
+		return slot;
+	}
+
+	/**
+	 * Returns the shared customer table slot for a customer ID, adding it if new.
+	 * A known ID given with a different name is renamed in place, so every
+	 * account of that customer shows the new name.
+	 */
+	private int customerSlot(Customer customer) {
+		Integer slot = customerIndex.get(customer.getCustomerId());
+		if (slot != null) {
+			Customer stored = customers.get(slot);
+			if (!stored.getName().equals(customer.getName())) {
+				stored.setName(customer.getName());
+			}
+			return slot;
+		}
+		slot = customers.size();
+		// A copy, so renaming the caller's customer later cannot change the store unseen
+		customers.add(new Customer(customer.getCustomerId(), customer.getName()));
+		customerIndex.put(customer.getCustomerId(), slot);
+		return slot;
+	}
+
+	private void grow() {
+		int capacity = accountNumbers.length * 2;
+		accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+		balancesCents = Arrays.copyOf(balancesCents, capacity);
+		types = Arrays.copyOf(types, capacity);
+		transactionCounts = Arrays.copyOf(transactionCounts, capacity);
+		customerSlots = Arrays.copyOf(customerSlots, capacity);
+		table = new int[tableSizeFor(capacity)];
+		for (int slot = 0; slot < size; slot++) {
+			index(slot);
+		}
+	}
+
+	/** @return a power-of-two table size keeping the load factor at or below 1/2. */
+	private static int tableSizeFor(int capacity) {
+		return Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) * 2;
+	}
+
+	private int bucket(String accountNumber) {
+		int h = accountNumber.hashCode();
+		return (h ^ (h >>> 16)) & (table.length - 1);
+	}
+
+	/** @return the slot holding the account, or -1 if not found. */
+	private int find(String accountNumber) {
+		if (accountNumber == null) {
+			return -1;
+		}
+		int mask = table.length - 1;
+		for (int i = bucket(accountNumber); table[i] != 0; i = (i + 1) & mask) {
+			int slot = table[i] - 1;
+			if (accountNumbers[slot].equals(accountNumber)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private void index(int slot) {
+		int mask = table.length - 1;
+		int i = bucket(accountNumbers[slot]);
+		while (table[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		table[i] = slot + 1;
+	}
+
+	/** Removes a slot from the hash table, shifting later entries back to keep probes intact. */
+	private void unindex(int slot) {
+		int mask = table.length - 1;
+		int i = bucket(accountNumbers[slot]);
+		while (table[i] != slot + 1) {
+			i = (i + 1) & mask;
+		}
+		int hole = i;
+		for (int j = (hole + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+			int home = bucket(accountNumbers[table[j] - 1]);
+			// Move the entry back if the hole lies between its home bucket and its position
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				table[hole] = table[j];
+				hole = j;
+			}
+		}
+		table[hole] = 0;
+	}
+}
@@ -1,4 +1,6 @@
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents a bank customer.
@@ -16,7 +18,14 @@ public class Customer implements Serializable {
     private final String customerId;
 
     /** Customer display name. */
-    private String name;
+    private volatile String name;
+
+    /**
+     * Name indexes of the banks this customer is registered with, kept in step with
+     * name changes; null if none. One customer may be registered with several banks.
+     * Guarded by this customer's monitor.
+     */
+    private transient List<CustomerNameIndex> nameIndexes;
 
     /**
      * Constructs a Customer with the given ID and name.
@@ -56,7 +65,30 @@ public class Customer implements Serializable {
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Customer name cannot be null or empty.");
         }
-        this.name = name.trim();
+        synchronized (this) {
+            String oldName = this.name;
+            this.name = name.trim();
+            if (nameIndexes != null) {
+                for (CustomerNameIndex index : nameIndexes) {
+                    index.renamed(this, oldName, this.name);
+                }
+            }
+        }
+    }
+
+    /** Adds a name index to notify on name changes; called by the index with this customer's monitor held. */
+    void addNameIndex(CustomerNameIndex nameIndex) {
+        if (nameIndexes == null) {
+            nameIndexes = new ArrayList<>(1);
+        }
+        nameIndexes.add(nameIndex);
+    }
+
+    /** Stops notifying a name index; called by the index with this customer's monitor held. */
+    void removeNameIndex(CustomerNameIndex nameIndex) {
+        if (nameIndexes != null && nameIndexes.remove(nameIndex) && nameIndexes.isEmpty()) {
+            nameIndexes = null;
+        }
     }
 
     @Override
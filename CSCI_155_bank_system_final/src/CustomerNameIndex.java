@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted index of customers by name, for case-insensitive prefix search.
+ *
+ * Keys are the lower-cased name followed by the customer ID, so customers who
+ * share a name are kept apart and all names starting with a prefix form one
+ * contiguous range of the index. A lookup is O(log n + matches). Customers tell
+ * every index they are in when {@link Customer#setName(String)} changes their
+ * name, so one customer can be registered with several banks.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+final class CustomerNameIndex {
+
+	/** Separates the name from the customer ID in a key; sorts before any name character. */
+	private static final char SEPARATOR = '\u0000';
+
+	private final ConcurrentSkipListMap<String, Customer> byName = new ConcurrentSkipListMap<>();
+
+	/** Adds a customer and starts following their name changes. */
+	void add(Customer customer) {
+		synchronized (customer) {
+			customer.addNameIndex(this);
+			byName.put(key(customer.getName(), customer), customer);
+		}
+	}
+
+	/** Removes a customer and stops following their name changes. */
+	void remove(Customer customer) {
+		synchronized (customer) {
+			customer.removeNameIndex(this);
+			byName.remove(key(customer.getName(), customer));
+		}
+	}
+
+	/** Moves a customer to their new name; called by Customer while holding its monitor. */
+	void renamed(Customer customer, String oldName, String newName) {
+		byName.remove(key(oldName, customer));
+		byName.put(key(newName, customer), customer);
+	}
+
+	/**
+	 * Finds customers whose name starts with the prefix, ignoring case.
+	 *
+	 * @param prefix the name prefix
+	 * @param limit maximum number of customers to return
+	 * @return matching customers in name order
+	 */
+	List<Customer> find(String prefix, int limit) {
+		String from = normalize(prefix);
+		List<Customer> matches = new ArrayList<>();
+		for (var entry : byName.tailMap(from, true).entrySet()) {
+			if (matches.size() == limit || !entry.getKey().startsWith(from)) {
+				break;
+			}
+			matches.add(entry.getValue());
+		}
+		return matches;
+	}
+
+	private static String key(String name, Customer customer) {
+		return normalize(name) + SEPARATOR + customer.getCustomerId();
+	}
+
+	private static String normalize(String name) {
+		return name.trim().toLowerCase(Locale.ROOT);
+	}
+}
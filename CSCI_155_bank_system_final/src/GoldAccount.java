@@ -38,26 +38,51 @@ public class GoldAccount extends Account implements Serializable {
 	 */
 	@Override
 	public void withdraw(double amount) {
-		if (amount <= 0) {
-			throw new IllegalArgumentException("Withdrawal amount must be positive.");
-		}
-		balance -= amount;
+		long cents = requirePositiveCents(amount, "Withdrawal amount must be positive.");
+		long newBalance = addCents(-cents);
 		
 		// Transaction receipt
-		System.out.println("\nTransaction completed:\n" + 
-				"---> " + String.format("$%.2f", amount) + " withdrawn" +
-				"\n---> " + String.format("$%.2f", balance) + " balance");
+		ReceiptSink sink = getReceiptSink();
+		if (sink.isEnabled()) {
+			sink.accept("\nTransaction completed:\n" + 
+					"---> " + formatCents(cents) + " withdrawn" +
+					"\n---> " + formatCents(newBalance) + " balance");
+		}
+	}
+	
+	@Override
+	long withdrawCents(long cents) {
+		addCents(-cents);
+		return cents;
+	}
+	
+	/** Gold accounts allow overdrafts, so a transfer out always succeeds. */
+	@Override
+	boolean transferOutCents(long cents) {
+		addCents(-cents);
+		return true;
 	}
 	
 	/**
 	 * Applies monthly interest to the current balance.
-	 * Interest is only applied if the balance is positive. 
+	 * Interest is only applied if the balance is positive, and is rounded to the nearest cent. 
 	 */
 	@Override
 	public void applyMonthlyUpdate() {
-		if (balance > 0) {
-			balance += balance * INTEREST_RATE;
-		}
+		updateBalance(GoldAccount::monthlyBalance);
+	}
+	
+	/**
+	 * @param cents balance before the monthly update
+	 * @return the balance after interest, in cents
+	 */
+	static long monthlyBalance(long cents) {
+		return cents > 0 ? cents + Math.round(cents * INTEREST_RATE) : cents;
+	}
+	
+	@Override
+	public AccountType getType() {
+		return AccountType.GOLD;
 	}
 	
 	@Override
@@ -0,0 +1,161 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of latencies in nanoseconds, in the style of
+ * HdrHistogram. Values below 64 ns are counted exactly; above that, every power
+ * of two is split into 32 equal buckets, so any recorded value is reported
+ * within about 3% of its true value, from nanoseconds up to days.
+ *
+ * Recording is thread-safe and allocation-free, and takes no lock. The counts
+ * are striped: each thread records into one of several stripes, picked by its
+ * thread ID, each holding its own bucket counters, sum and maximum. Threads on
+ * different stripes never touch the same counters, so recording from many
+ * threads does not contend on one cache line. Reading merges the stripes
+ * without stopping writers, so a result taken while values are being recorded
+ * may miss the most recent ones.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+final class LatencyHistogram {
+
+	/** Values below this are counted in their own bucket. */
+	private static final int EXACT_BUCKETS = 64;
+
+	/** Buckets per power of two above {@link #EXACT_BUCKETS}. */
+	private static final int SUB_BUCKETS = 32;
+
+	/** Enough buckets for every non-negative long. */
+	private static final int BUCKETS = EXACT_BUCKETS + (63 - 6) * SUB_BUCKETS;
+
+	// Each stripe holds the bucket counts, then the sum and the maximum
+	private static final int SUM = BUCKETS;
+	private static final int MAX = BUCKETS + 1;
+	private static final int STRIPE_LENGTH = BUCKETS + 2;
+
+	/** Number of stripes: the next power of two at or above the processor count, at most 16. */
+	private static final int STRIPES = Math.min(16,
+			Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+	private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+	LatencyHistogram() {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new AtomicLongArray(STRIPE_LENGTH);
+		}
+	}
+
+	/**
+	 * Records one value.
+	 *
+	 * @param nanos the latency; negative values count as 0
+	 */
+	void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		AtomicLongArray stripe = stripe();
+		stripe.incrementAndGet(bucketOf(nanos));
+		stripe.addAndGet(SUM, nanos);
+		long max = stripe.get(MAX);
+		while (nanos > max && !stripe.compareAndSet(MAX, max, nanos)) {
+			max = stripe.get(MAX);
+		}
+	}
+
+	/** @return the stripe the current thread records into. */
+	private AtomicLongArray stripe() {
+		// Spread consecutive thread IDs across the stripes
+		long id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+		return stripes[(int) (id >>> 32) & (STRIPES - 1)];
+	}
+
+	/** @return the given counter summed over every stripe. */
+	private long sum(int index) {
+		long sum = 0;
+		for (AtomicLongArray stripe : stripes) {
+			sum += stripe.get(index);
+		}
+		return sum;
+	}
+
+	/** @return the number of values recorded. */
+	long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += sum(i);
+		}
+		return count;
+	}
+
+	/** @return the mean of the recorded values in nanoseconds, or 0 if none. */
+	double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) sum(SUM) / count;
+	}
+
+	/** @return the largest value recorded, or 0 if none. */
+	long getMax() {
+		long max = 0;
+		for (AtomicLongArray stripe : stripes) {
+			max = Math.max(max, stripe.get(MAX));
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the value below which the given fraction of recorded values fall.
+	 *
+	 * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+	 * @return the upper end of the bucket holding that value, or 0 if none were recorded
+	 */
+	long getPercentile(double fraction) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = sum(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(highestValueIn(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/** Clears all recorded values. Values recorded during the reset may be partly kept. */
+	void reset() {
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < STRIPE_LENGTH; i++) {
+				stripe.set(i, 0);
+			}
+		}
+	}
+
+	private static int bucketOf(long value) {
+		if (value < EXACT_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+		int sub = (int) (value >>> shift) - SUB_BUCKETS;
+		return EXACT_BUCKETS + (shift - 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long highestValueIn(int bucket) {
+		if (bucket < EXACT_BUCKETS) {
+			return bucket;
+		}
+		int k = bucket - EXACT_BUCKETS;
+		int shift = k / SUB_BUCKETS + 1;
+		long sub = SUB_BUCKETS + k % SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+}
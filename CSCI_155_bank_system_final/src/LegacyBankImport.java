@@ -0,0 +1,175 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamException;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Reads a bank saved by the first version of this program, which wrote the
+ * whole Bank to {@code bank_data.ser} with Java serialization.
+ *
+ * Bank and the account classes have changed shape since and Bank is no longer
+ * serializable, so the file is read into private copies of the classes as they
+ * were then, and the accounts are rebuilt from those. Each class in the file
+ * must match its copy field for field, and a filter rejects every class except
+ * those copies, String and ArrayList with its Object array, so a crafted file
+ * cannot make the reader build other objects.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+final class LegacyBankImport {
+
+	/** The copy standing in for each class of the old format, by the name it was written under. */
+	private static final Map<String, Class<?>> OLD_CLASSES = Map.of(
+			"Bank", OldBank.class,
+			"Account", OldAccount.class,
+			"CheckingAccount", OldCheckingAccount.class,
+			"GoldAccount", OldGoldAccount.class,
+			"RegularAccount", OldRegularAccount.class,
+			"Customer", OldCustomer.class);
+
+	private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+			"maxdepth=16;java.lang.String;java.lang.Object;java.util.ArrayList;LegacyBankImport$Old*;!*");
+
+	private LegacyBankImport() {
+	}
+
+	/**
+	 * Reads a bank saved in the old format.
+	 *
+	 * @param filename the old save file
+	 * @return a new bank holding its accounts, with no journal attached
+	 * @throws IOException if the file cannot be read or is not an old save file
+	 */
+	static Bank read(String filename) throws IOException {
+		OldBank old;
+		try (ObjectInputStream in = new OldFormatStream(
+				new BufferedInputStream(Files.newInputStream(Path.of(filename)), 1 << 16))) {
+			in.setObjectInputFilter(FILTER);
+			old = (OldBank) in.readObject();
+		} catch (ClassNotFoundException | ClassCastException | ObjectStreamException | EOFException e) {
+			throw new IOException("Not a complete bank saved by the first version: " + filename + " (" + e + ")", e);
+		}
+		if (old.accounts == null) {
+			throw new IOException("Damaged old save file, no account list: " + filename);
+		}
+		Bank bank = new Bank();
+		try {
+			for (OldAccount acc : old.accounts) {
+				Customer owner = bank.registerCustomer(new Customer(acc.customer.customerId, acc.customer.name));
+				bank.addAccount(acc.toAccount(owner));
+			}
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw new IOException("Damaged old save file: " + filename + ": " + e.getMessage(), e);
+		}
+		return bank;
+	}
+
+	/** Reads each class of the old format into its copy here. */
+	private static final class OldFormatStream extends ObjectInputStream {
+
+		OldFormatStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+			ObjectStreamClass written = super.readClassDescriptor();
+			Class<?> copy = OLD_CLASSES.get(written.getName());
+			if (copy == null) {
+				return written;
+			}
+			ObjectStreamClass local = ObjectStreamClass.lookup(copy);
+			if (written.getSerialVersionUID() != local.getSerialVersionUID() || !sameFields(written, local)) {
+				throw new InvalidClassException(written.getName(), "does not match the first version's class");
+			}
+			return local;
+		}
+
+		/** @return true if both have the same field names and kinds, in the same order. */
+		private static boolean sameFields(ObjectStreamClass written, ObjectStreamClass local) {
+			ObjectStreamField[] a = written.getFields();
+			ObjectStreamField[] b = local.getFields();
+			if (a.length != b.length) {
+				return false;
+			}
+			for (int i = 0; i < a.length; i++) {
+				if (!a[i].getName().equals(b[i].getName()) || a[i].getTypeCode() != b[i].getTypeCode()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// -------- The classes of the old format, by their serialized fields --------
+
+	private static final class OldBank implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private ArrayList<OldAccount> accounts;
+	}
+
+	private abstract static class OldAccount implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private String accountNumber;
+		private double balance;
+		private OldCustomer customer;
+
+		/** @return the account in today's form, owned by the given customer. */
+		abstract Account toAccount(Customer owner);
+
+		/** Gives an account this one's balance, rounded to whole cents as every balance now is. */
+		<T extends Account> T withBalance(T account) {
+			account.restoreBalanceCents(Math.round(balance * 100));
+			return account;
+		}
+	}
+
+	private static final class OldCheckingAccount extends OldAccount {
+		private static final long serialVersionUID = 1L;
+		private int transactionCount;
+
+		@Override
+		Account toAccount(Customer owner) {
+			CheckingAccount account = withBalance(new CheckingAccount(super.accountNumber, owner));
+			account.restoreTransactionCount(transactionCount);
+			return account;
+		}
+	}
+
+	private static final class OldGoldAccount extends OldAccount {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		Account toAccount(Customer owner) {
+			return withBalance(new GoldAccount(super.accountNumber, owner));
+		}
+	}
+
+	private static final class OldRegularAccount extends OldAccount {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		Account toAccount(Customer owner) {
+			return withBalance(new RegularAccount(super.accountNumber, owner));
+		}
+	}
+
+	private static final class OldCustomer implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private String customerId;
+		private String name;
+	}
+}
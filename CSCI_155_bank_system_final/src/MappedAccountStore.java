@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An account table stored in a memory-mapped file.
+ *
+ * Opening a store only maps the file: nothing is deserialized, so startup takes
+ * the same time however many accounts there are. Deposits, withdrawals and
+ * monthly updates read and write the mapped records directly, and the operating
+ * system writes changed pages back to the file. Call {@link #force()} to make
+ * changes durable at a known point.
+ *
+ * The header, hash index, records and account rules are those of
+ * {@link AccountRecordStore}; the table follows a 256-byte header. The
+ * capacity is fixed when the file is created, and text fields have maximum
+ * lengths (see {@link #MAX_ACCOUNT_NUMBER_BYTES} and friends).
+ *
+ * Because every write lands in the file as it is made, each change is first
+ * staged in the header: the record bytes, the new account count and the
+ * month-end progress, then a pending flag. Only then is it applied and the flag
+ * cleared. The header also notes whether the store was closed cleanly. Opening
+ * a store that was not redoes a pending change, rebuilds the hash index from
+ * the records, checking each one, and finishes a month-end that was stopped
+ * part way. So a process that dies at any point leaves a store that opens to
+ * the state after its last complete operation. After a power loss only what
+ * the last {@link #force()} wrote is certain; if that leaves the records
+ * inconsistent, opening fails rather than returning wrong balances.
+ *
+ * {@code BankSystem} runs on one in its mapped mode ({@code -Dbank.mode=mapped}),
+ * through {@link AccountStoreBank}, so the program starts in the same time
+ * however many accounts there are. This store is not thread-safe;
+ * AccountStoreBank serializes access to it.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class MappedAccountStore extends AccountRecordStore {
+
+	/** File signature, the ASCII bytes "BMAP". */
+	private static final int MAGIC = 0x424D4150;
+	private static final int VERSION = 2;
+
+	private static final int MAPPED_HEADER_SIZE = 256;
+
+	// Header fields after those of AccountRecordStore
+	private static final int H_OPEN = 64;        // 1 from open until a clean close
+	private static final int H_MONTH_END = 68;   // records done by an unfinished month-end; 0 if none
+	private static final int H_PENDING = 72;     // 1 while a staged change may not be fully applied
+	private static final int H_P_POSITION = 80;  // staged change: file position of its bytes
+	private static final int H_P_LENGTH = 88;    //   number of bytes
+	private static final int H_P_SIZE = 92;      //   account count after it
+	private static final int H_P_MONTH_END = 96; //   month-end progress after it
+	private static final int H_P_BYTES = 128;    //   the bytes, at most one record
+
+	private final FileChannel channel;
+	private final MappedByteBuffer map;
+
+	/**
+	 * Maps the file, extending a new one to its full size.
+	 *
+	 * @param filename the file of an existing store, whose length is checked first; null for a new one
+	 */
+	private MappedAccountStore(FileChannel channel, int capacity, int tableLength, String filename) throws IOException {
+		super(capacity, tableLength, MAPPED_HEADER_SIZE, MAPPED_HEADER_SIZE + (long) tableLength * Integer.BYTES);
+		if (recordsEnd() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Capacity too large for a single mapping: " + capacity);
+		}
+		if (filename != null) {
+			checkLength(channel.size(), filename);
+		}
+		this.channel = channel;
+		this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsEnd());
+	}
+
+	/**
+	 * Creates a new, empty store file.
+	 *
+	 * @param filename The file to create; an existing file is replaced.
+	 * @param capacity Maximum number of accounts; must be positive and fit in one mapping.
+	 * @return the open store.
+	 * @throws IOException if the file cannot be created.
+	 * @throws IllegalArgumentException if the capacity is not positive or too large
+	 */
+	public static MappedAccountStore create(String filename, int capacity) throws IOException {
+		int tableLength = tableLength(capacity);
+		FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			MappedAccountStore store = new MappedAccountStore(channel, capacity, tableLength, null);
+			store.writeHeader(MAGIC, VERSION);
+			store.putInt(H_OPEN, 1);
+			return store;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens an existing store file by mapping it. The header is checked, and the
+	 * file must be long enough for every record slot it declares. If the store
+	 * was closed cleanly no records are read; otherwise it is recovered first.
+	 *
+	 * @param filename The store file.
+	 * @return the open store.
+	 * @throws IOException if the file cannot be opened, is not a store file, or is damaged.
+	 */
+	public static MappedAccountStore open(String filename) throws IOException {
+		FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = readHeader(channel, MAGIC, VERSION, "an account store", filename);
+			MappedAccountStore store = new MappedAccountStore(channel, header.getInt(H_CAPACITY),
+					header.getInt(H_TABLE_LENGTH), filename);
+			store.recover(filename);
+			return store;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/** Writes all changes made so far to the storage device. */
+	public void force() {
+		map.force();
+	}
+
+	/** Same as {@link #force()}. */
+	@Override
+	void flush() {
+		force();
+	}
+
+	/** Forces changes to disk, marks the store closed cleanly and closes the file. */
+	@Override
+	public void close() throws IOException {
+		force();
+		putInt(H_OPEN, 0);
+		force();
+		channel.close();
+	}
+
+	/**
+	 * Brings a store that was not closed cleanly back to the state after its
+	 * last complete operation, then marks it open.
+	 *
+	 * @throws IOException if the header or records are damaged
+	 */
+	private void recover(String filename) throws IOException {
+		boolean clean = getInt(H_OPEN) == 0;
+		if (getInt(H_PENDING) != 0) {
+			long position = getLong(H_P_POSITION);
+			int length = getInt(H_P_LENGTH);
+			int size = getInt(H_P_SIZE);
+			if (length < 0 || length > RECORD_SIZE || position < MAPPED_HEADER_SIZE
+					|| position + length > recordsEnd() || size < 0 || size > getCapacity()) {
+				throw new IOException("Account store has a damaged pending change: " + filename);
+			}
+			applyPending();
+			clean = false;
+		}
+		int monthEnd = getInt(H_MONTH_END);
+		if (monthEnd < 0 || monthEnd > size()) {
+			throw new IOException("Account store has damaged month-end progress " + monthEnd + ": " + filename);
+		}
+		if (!clean) {
+			rebuildIndex(filename);
+		}
+		putInt(H_OPEN, 1);
+		if (monthEnd != 0) {
+			applyMonthlyUpdates();
+		}
+	}
+
+	// -------- Staged changes --------
+
+	@Override
+	void update(long position, byte[] bytes, int newSize, int monthEnd) {
+		map.put(H_P_BYTES, bytes, 0, bytes.length);
+		putLong(H_P_POSITION, position);
+		putInt(H_P_LENGTH, bytes.length);
+		putInt(H_P_SIZE, newSize);
+		putInt(H_P_MONTH_END, monthEnd);
+		VarHandle.storeStoreFence(); // the change is staged before it is marked pending
+		putInt(H_PENDING, 1);
+		VarHandle.storeStoreFence();
+		applyPending();
+	}
+
+	/** Copies the staged change into place and clears the pending flag. */
+	private void applyPending() {
+		int length = getInt(H_P_LENGTH);
+		map.put((int) getLong(H_P_POSITION), map, H_P_BYTES, length);
+		putInt(H_SIZE, getInt(H_P_SIZE));
+		putInt(H_MONTH_END, getInt(H_P_MONTH_END));
+		VarHandle.storeStoreFence(); // applied before the flag is cleared
+		putInt(H_PENDING, 0);
+	}
+
+	@Override
+	int monthEndProgress() {
+		return getInt(H_MONTH_END);
+	}
+
+	@Override
+	void monthEndDone() {
+		putInt(H_MONTH_END, 0);
+	}
+
+	// -------- Byte access --------
+
+	@Override
+	byte getByte(long position) {
+		return map.get((int) position);
+	}
+
+	@Override
+	int getInt(long position) {
+		return map.getInt((int) position);
+	}
+
+	@Override
+	void putInt(long position, int value) {
+		map.putInt((int) position, value);
+	}
+
+	@Override
+	long getLong(long position) {
+		return map.getLong((int) position);
+	}
+
+	@Override
+	void putLong(long position, long value) {
+		map.putLong((int) position, value);
+	}
+
+	@Override
+	void getBytes(long position, byte[] bytes) {
+		map.get((int) position, bytes);
+	}
+
+	@Override
+	void putBytes(long position, byte[] bytes, int length) {
+		map.put((int) position, bytes, 0, length);
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * Receives progress reports from a parallel month-end run,
+ * {@link Bank#applyMonthlyUpdates(int, MonthEndProgress)}.
+ *
+ * Reports arrive from worker threads as partitions finish, so implementations
+ * must be thread-safe.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+@FunctionalInterface
+public interface MonthEndProgress {
+
+	/**
+	 * Called once per partition when it finishes.
+	 *
+	 * @param partition     zero-based index of the finished partition
+	 * @param partitions    total number of partitions
+	 * @param accounts      number of accounts updated in this partition
+	 * @param elapsedNanos  time this partition took, in nanoseconds
+	 */
+	void partitionCompleted(int partition, int partitions, int accounts, long elapsedNanos);
+}
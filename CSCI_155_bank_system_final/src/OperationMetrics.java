@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call count, error count and latency histogram of one kind of bank operation.
+ * Latencies are measured from the call to its return, so they include waiting
+ * for locks and for the journal to reach the disk.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final AtomicLong errors = new AtomicLong();
+
+	/**
+	 * Records one call. Allocation-free, so it can stay on in production.
+	 *
+	 * @param startNanos {@link System#nanoTime()} when the call began
+	 * @param succeeded false if the call failed
+	 */
+	void record(long startNanos, boolean succeeded) {
+		latencies.record(System.nanoTime() - startNanos);
+		if (!succeeded) {
+			errors.incrementAndGet();
+		}
+	}
+
+	@Override
+	public long getCount() {
+		return latencies.getCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return latencies.getMean() / 1e6;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return latencies.getPercentile(0.50) / 1e6;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return latencies.getPercentile(0.99) / 1e6;
+	}
+
+	@Override
+	public double getP999Millis() {
+		return latencies.getPercentile(0.999) / 1e6;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return latencies.getMax() / 1e6;
+	}
+
+	@Override
+	public void reset() {
+		latencies.reset();
+		errors.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d errors=%d mean=%.3fms p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+				getCount(), getErrorCount(), getMeanMillis(), getP50Millis(), getP99Millis(), getP999Millis(),
+				getMaxMillis());
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * Management interface of {@link OperationMetrics}, as seen over JMX.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public interface OperationMetricsMBean {
+
+	/** @return the number of calls, including failed ones. */
+	long getCount();
+
+	/** @return the number of calls that failed, by exception or by finding no account. */
+	long getErrorCount();
+
+	/** @return the mean latency in milliseconds. */
+	double getMeanMillis();
+
+	/** @return the median latency in milliseconds. */
+	double getP50Millis();
+
+	/** @return the 99th percentile latency in milliseconds. */
+	double getP99Millis();
+
+	/** @return the 99.9th percentile latency in milliseconds. */
+	double getP999Millis();
+
+	/** @return the largest latency in milliseconds. */
+	double getMaxMillis();
+
+	/** Clears the counts and latencies. */
+	void reset();
+}
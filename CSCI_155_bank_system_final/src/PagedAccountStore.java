@@ -0,0 +1,510 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * An account table kept on disk in a paged file, with only a bounded cache of
+ * pages in memory, so a store can hold far more accounts than fit on the heap.
+ *
+ * The file is read and written in {@link #PAGE_SIZE}-byte pages through a
+ * FileChannel. A fixed number of pages are cached in direct buffers; when the
+ * cache is full, the CLOCK policy picks a page not used recently to evict.
+ * Memory use is the cache size plus four bytes per page of the file, plus an
+ * entry per page logged since the last flush. Cache hits, misses, evictions
+ * and write-backs are counted.
+ *
+ * The header, hash index, records and account rules are those of
+ * {@link AccountRecordStore}, each part starting on a page boundary: the header
+ * takes the first page, then the table, then the records. Records and index
+ * entries never cross a page boundary.
+ *
+ * Changed pages never go straight to the store file. An evicted page is
+ * appended to a redo log, {@code <file>.wal}, and read back from there until the
+ * next {@link #flush()}, which logs the remaining changed pages, syncs a commit
+ * record, and only then copies the logged pages into the store file and empties
+ * the log. Opening a store redoes a committed log left by a crash and discards
+ * an uncommitted one, so the file always holds the accounts as of the last
+ * completed flush. The log is also flushed between operations once it reaches
+ * {@link #WAL_CHECKPOINT_BYTES}.
+ *
+ * {@code BankSystem} runs on one in its paged mode ({@code -Dbank.mode=paged}),
+ * through {@link AccountStoreBank}, so the bank is limited by disk space
+ * rather than by {@code -Xmx}. This store is not thread-safe; AccountStoreBank
+ * serializes access to it.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class PagedAccountStore extends AccountRecordStore {
+
+	/** File signature, the ASCII bytes "BPAG". */
+	private static final int MAGIC = 0x42504147;
+	private static final int VERSION = 1;
+
+	/** Redo log signature, the ASCII bytes "BWAL". */
+	private static final int WAL_MAGIC = 0x4257414C;
+
+	/** Size of a page, the unit of reading, writing and caching. */
+	public static final int PAGE_SIZE = 8192;
+	private static final int PAGE_SHIFT = 13;
+
+	/** Size of the redo log after which it is flushed into the store file between operations. */
+	public static final long WAL_CHECKPOINT_BYTES = 64L << 20;
+
+	/** Size of the redo log's header: its signature. */
+	private static final int WAL_HEADER_SIZE = Integer.BYTES;
+
+	/** Size of the framing before each logged page: page number + checksum. */
+	private static final int WAL_ENTRY_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+	/** Page number of the commit record, which carries the number of pages logged before it. */
+	private static final long WAL_COMMIT = -1;
+
+	/** Largest direct buffer allocated for cache frames. */
+	private static final int MAX_FRAME_BLOCK = 1 << 30;
+
+	private final FileChannel channel;
+	private final FileChannel wal;
+
+	/** Log position of the newest image of each page logged since the last flush. */
+	private final Map<Long, Long> walPages = new HashMap<>();
+
+	/** Length of the redo log. */
+	private long walSize = WAL_HEADER_SIZE;
+
+	/** Number of page images in the redo log. */
+	private int walEntries;
+
+	// -------- Page cache --------
+
+	/** Frame holding each page of the file, plus one; 0 if the page is not cached. */
+	private final int[] pageFrames;
+
+	/** Page held by each frame, or -1 if the frame is free. */
+	private final long[] framePages;
+	private final ByteBuffer[] frames;
+	private final boolean[] referenced;
+	private final boolean[] dirty;
+
+	/** Next frame the CLOCK hand looks at. */
+	private int hand;
+
+	/** The page used last, looked up without counting, since one operation touches it repeatedly. */
+	private long lastPage = -1;
+	private int lastFrame;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long writeBacks;
+
+	private PagedAccountStore(FileChannel channel, FileChannel wal, int capacity, int tableLength, long cacheBytes) {
+		super(capacity, tableLength, PAGE_SIZE, PAGE_SIZE + roundUpToPage((long) tableLength * Integer.BYTES));
+		this.channel = channel;
+		this.wal = wal;
+		long pages = roundUpToPage(recordsEnd()) >>> PAGE_SHIFT;
+		this.pageFrames = new int[Math.toIntExact(pages)];
+
+		int frameCount = (int) Math.max(2, Math.min(pages, cacheBytes / PAGE_SIZE));
+		this.framePages = new long[frameCount];
+		this.frames = new ByteBuffer[frameCount];
+		this.referenced = new boolean[frameCount];
+		this.dirty = new boolean[frameCount];
+		Arrays.fill(framePages, -1);
+		int perBlock = MAX_FRAME_BLOCK / PAGE_SIZE;
+		for (int first = 0; first < frameCount; first += perBlock) {
+			int count = Math.min(perBlock, frameCount - first);
+			ByteBuffer block = ByteBuffer.allocateDirect(count * PAGE_SIZE);
+			for (int i = 0; i < count; i++) {
+				frames[first + i] = block.slice(i * PAGE_SIZE, PAGE_SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new, empty store file. The file is sparse: pages take disk space
+	 * only once written.
+	 *
+	 * @param filename The file to create; an existing file and its redo log are replaced.
+	 * @param capacity Maximum number of accounts; must be positive and at most {@link #MAX_CAPACITY}.
+	 * @param cacheBytes Memory for cached pages; at least two pages are cached.
+	 * @return the open store.
+	 * @throws IOException if the file cannot be created.
+	 * @throws IllegalArgumentException if the capacity is not positive or too large
+	 */
+	public static PagedAccountStore create(String filename, int capacity, long cacheBytes) throws IOException {
+		int tableLength = tableLength(capacity);
+		FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SPARSE);
+		FileChannel wal = null;
+		try {
+			wal = openWal(filename, true);
+			PagedAccountStore store = new PagedAccountStore(channel, wal, capacity, tableLength, cacheBytes);
+			// Extend the file to its full size; the unwritten pages read as zeros
+			channel.write(ByteBuffer.allocate(1), (long) store.pageFrames.length * PAGE_SIZE - 1);
+			store.writeHeader(MAGIC, VERSION);
+			store.flush();
+			return store;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			if (wal != null) {
+				wal.close();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens an existing store file. A committed redo log left by a crash is
+	 * copied into the file first, and an uncommitted one is discarded. Then only
+	 * the header is read, and checked against the file's length.
+	 *
+	 * @param filename The store file.
+	 * @param cacheBytes Memory for cached pages; at least two pages are cached.
+	 * @return the open store.
+	 * @throws IOException if the file cannot be opened, is not a store file, or is damaged.
+	 */
+	public static PagedAccountStore open(String filename, long cacheBytes) throws IOException {
+		FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		FileChannel wal = null;
+		try {
+			wal = openWal(filename, false);
+			recover(channel, wal, filename);
+			ByteBuffer header = readHeader(channel, MAGIC, VERSION, "a paged account store", filename);
+			PagedAccountStore store = new PagedAccountStore(channel, wal, header.getInt(H_CAPACITY),
+					header.getInt(H_TABLE_LENGTH), cacheBytes);
+			store.checkLength(channel.size(), filename);
+			return store;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			if (wal != null) {
+				wal.close();
+			}
+			throw e;
+		}
+	}
+
+	// -------- Cache statistics --------
+
+	/** @return the number of page lookups answered from the cache. */
+	public long getCacheHits() {
+		return hits;
+	}
+
+	/** @return the number of page lookups that had to read the file. */
+	public long getCacheMisses() {
+		return misses;
+	}
+
+	/** @return the number of pages evicted to make room for others. */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/** @return the number of changed pages written to the redo log. */
+	public long getWriteBacks() {
+		return writeBacks;
+	}
+
+	/** @return the number of pages the cache can hold. */
+	public int getCachePages() {
+		return frames.length;
+	}
+
+	/** Sets the hit, miss, eviction and write-back counters to zero. */
+	public void resetCacheStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		writeBacks = 0;
+	}
+
+	// -------- Durability --------
+
+	/**
+	 * Makes every change so far durable: logs the changed pages and a commit
+	 * record, syncs the log, copies the logged pages into the store file, syncs
+	 * it, and empties the log. A crash at any point leaves either the previous
+	 * flush or this one for {@link #open(String, long)} to find.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	@Override
+	public void flush() throws IOException {
+		for (int f = 0; f < frames.length; f++) {
+			if (dirty[f]) {
+				writeBack(f);
+			}
+		}
+		if (walEntries == 0) {
+			return;
+		}
+		ByteBuffer commit = ByteBuffer.allocate(WAL_ENTRY_HEADER_SIZE).putLong(WAL_COMMIT).putInt(walEntries).flip();
+		writeFully(wal, commit, walSize);
+		walSize += WAL_ENTRY_HEADER_SIZE;
+		wal.force(false);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE);
+		for (Map.Entry<Long, Long> logged : walPages.entrySet()) {
+			readFully(wal, buffer.clear(), logged.getValue() + WAL_ENTRY_HEADER_SIZE);
+			writeFully(channel, buffer.flip(), logged.getKey() << PAGE_SHIFT);
+		}
+		channel.force(false);
+		resetWal(wal);
+		walPages.clear();
+		walSize = WAL_HEADER_SIZE;
+		walEntries = 0;
+	}
+
+	/** Flushes changes and closes the file. */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+			wal.close();
+		}
+	}
+
+	/** Flushes the redo log into the store file between operations once it has grown large. */
+	@Override
+	void changed() {
+		if (walSize >= WAL_CHECKPOINT_BYTES) {
+			try {
+				flush();
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot flush account store: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	// -------- Redo log --------
+
+	/** Opens the redo log next to a store file, emptying it if the store is new. */
+	private static FileChannel openWal(String filename, boolean empty) throws IOException {
+		FileChannel wal = FileChannel.open(Path.of(filename + ".wal"), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if (empty || wal.size() < WAL_HEADER_SIZE) {
+			resetWal(wal);
+		}
+		return wal;
+	}
+
+	/** Truncates the redo log to just its header, on disk. */
+	private static void resetWal(FileChannel wal) throws IOException {
+		wal.truncate(0);
+		writeFully(wal, ByteBuffer.allocate(WAL_HEADER_SIZE).putInt(WAL_MAGIC).flip(), 0);
+		wal.force(true);
+	}
+
+	/**
+	 * Copies the pages of a committed redo log into the store file, or discards
+	 * a log that never reached its commit record.
+	 */
+	private static void recover(FileChannel channel, FileChannel wal, String filename) throws IOException {
+		ByteBuffer magic = ByteBuffer.allocate(WAL_HEADER_SIZE);
+		readFully(wal, magic, 0);
+		if (magic.getInt(0) != WAL_MAGIC) {
+			throw new IOException("Not a paged account store redo log: " + filename + ".wal");
+		}
+		Map<Long, Long> pages = new HashMap<>();
+		ByteBuffer entry = ByteBuffer.allocate(WAL_ENTRY_HEADER_SIZE);
+		ByteBuffer page = ByteBuffer.allocateDirect(PAGE_SIZE);
+		boolean committed = false;
+		int entries = 0;
+		long size = wal.size();
+		for (long position = WAL_HEADER_SIZE; position + WAL_ENTRY_HEADER_SIZE <= size; ) {
+			readFully(wal, entry.clear(), position);
+			long pageNumber = entry.getLong(0);
+			if (pageNumber == WAL_COMMIT) {
+				committed = entry.getInt(Long.BYTES) == entries;
+				break;
+			}
+			if (pageNumber < 0 || position + WAL_ENTRY_HEADER_SIZE + PAGE_SIZE > size) {
+				break; // cut short by the crash
+			}
+			readFully(wal, page.clear(), position + WAL_ENTRY_HEADER_SIZE);
+			if (checksum(pageNumber, page.flip()) != entry.getInt(Long.BYTES)) {
+				break;
+			}
+			pages.put(pageNumber, position);
+			entries++;
+			position += WAL_ENTRY_HEADER_SIZE + PAGE_SIZE;
+		}
+		if (committed) {
+			for (Map.Entry<Long, Long> logged : pages.entrySet()) {
+				readFully(wal, page.clear(), logged.getValue() + WAL_ENTRY_HEADER_SIZE);
+				writeFully(channel, page.flip(), logged.getKey() << PAGE_SHIFT);
+			}
+			channel.force(false);
+			System.err.println("Account store " + filename + ": redid " + pages.size() + " pages of the last flush.");
+		}
+		if (wal.size() > WAL_HEADER_SIZE) {
+			resetWal(wal);
+		}
+	}
+
+	private static int checksum(long pageNumber, ByteBuffer page) {
+		CRC32C crc = new CRC32C();
+		crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, pageNumber));
+		crc.update(page.duplicate());
+		return (int) crc.getValue();
+	}
+
+	private static void readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (file.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file.");
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+		int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			file.write(buffer, position + buffer.position() - start);
+		}
+	}
+
+	// -------- Page cache --------
+
+	/**
+	 * Returns the cached page holding a file position, reading it in first if
+	 * needed, and marks it changed if it is about to be written.
+	 */
+	private ByteBuffer page(long position, boolean write) {
+		long page = position >>> PAGE_SHIFT;
+		int f;
+		if (page == lastPage) {
+			f = lastFrame;
+		} else {
+			f = pageFrames[(int) page] - 1;
+			if (f >= 0) {
+				hits++;
+			} else {
+				misses++;
+				f = load(page);
+			}
+			referenced[f] = true;
+			lastPage = page;
+			lastFrame = f;
+		}
+		if (write) {
+			dirty[f] = true;
+		}
+		return frames[f];
+	}
+
+	/**
+	 * Reads a page into a frame chosen by the CLOCK policy, evicting the frame's
+	 * page. A page logged since the last flush is read from the log.
+	 */
+	private int load(long page) {
+		int f = victim();
+		if (framePages[f] >= 0) {
+			if (dirty[f]) {
+				writeBack(f);
+			}
+			pageFrames[(int) framePages[f]] = 0;
+			evictions++;
+		}
+		ByteBuffer buffer = frames[f].clear();
+		try {
+			Long logged = walPages.get(page);
+			if (logged != null) {
+				readFully(wal, buffer, logged + WAL_ENTRY_HEADER_SIZE);
+			} else {
+				readFully(channel, buffer, page << PAGE_SHIFT);
+			}
+		} catch (IOException e) {
+			framePages[f] = -1;
+			throw new IllegalStateException("Cannot read account store page " + page + ": " + e.getMessage(), e);
+		}
+		framePages[f] = page;
+		pageFrames[(int) page] = f + 1;
+		dirty[f] = false;
+		return f;
+	}
+
+	/** Moves the CLOCK hand to a frame that is free or has not been used since the hand last passed. */
+	private int victim() {
+		while (true) {
+			int f = hand;
+			hand = hand + 1 == frames.length ? 0 : hand + 1;
+			if (framePages[f] < 0) {
+				return f;
+			}
+			if (referenced[f]) {
+				referenced[f] = false;
+			} else if (framePages[f] != lastPage) {
+				return f;
+			}
+		}
+	}
+
+	/** Appends a changed page to the redo log; the store file is written only by {@link #flush()}. */
+	private void writeBack(int f) {
+		long page = framePages[f];
+		ByteBuffer buffer = frames[f].clear();
+		ByteBuffer entry = ByteBuffer.allocate(WAL_ENTRY_HEADER_SIZE).putLong(page).putInt(checksum(page, buffer)).flip();
+		try {
+			writeFully(wal, entry, walSize);
+			writeFully(wal, buffer, walSize + WAL_ENTRY_HEADER_SIZE);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot log account store page " + page + ": " + e.getMessage(), e);
+		}
+		walPages.put(page, walSize);
+		walSize += WAL_ENTRY_HEADER_SIZE + PAGE_SIZE;
+		walEntries++;
+		dirty[f] = false;
+		writeBacks++;
+	}
+
+	private static long roundUpToPage(long bytes) {
+		return (bytes + PAGE_SIZE - 1) & -PAGE_SIZE;
+	}
+
+	// -------- Byte access --------
+
+	@Override
+	byte getByte(long position) {
+		return page(position, false).get((int) (position & (PAGE_SIZE - 1)));
+	}
+
+	@Override
+	int getInt(long position) {
+		return page(position, false).getInt((int) (position & (PAGE_SIZE - 1)));
+	}
+
+	@Override
+	void putInt(long position, int value) {
+		page(position, true).putInt((int) (position & (PAGE_SIZE - 1)), value);
+	}
+
+	@Override
+	long getLong(long position) {
+		return page(position, false).getLong((int) (position & (PAGE_SIZE - 1)));
+	}
+
+	@Override
+	void putLong(long position, long value) {
+		page(position, true).putLong((int) (position & (PAGE_SIZE - 1)), value);
+	}
+
+	@Override
+	void getBytes(long position, byte[] bytes) {
+		page(position, false).get((int) (position & (PAGE_SIZE - 1)), bytes);
+	}
+
+	@Override
+	void putBytes(long position, byte[] bytes, int length) {
+		page(position, true).put((int) (position & (PAGE_SIZE - 1)), bytes, 0, length);
+	}
+}
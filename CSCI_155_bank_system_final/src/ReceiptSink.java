@@ -0,0 +1,40 @@
+/**
+ * Destination for the transaction receipts produced by account deposits and
+ * withdrawals.
+ *
+ * Accounts check {@link #isEnabled()} before formatting a receipt, so a disabled
+ * sink such as {@link #NONE} costs nothing on the balance update path.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public interface ReceiptSink {
+
+	/** Discards receipts; accounts skip building them altogether. */
+	ReceiptSink NONE = new ReceiptSink() {
+		@Override
+		public void accept(String receipt) {
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+	};
+
+	/** Prints each receipt to standard output as soon as it is produced. */
+	ReceiptSink CONSOLE = receipt -> System.out.println(receipt);
+
+	/**
+	 * Receives one receipt.
+	 *
+	 * @param receipt the formatted receipt text
+	 */
+	void accept(String receipt);
+
+	/** @return true if receipts should be built and passed to {@link #accept(String)} */
+	default boolean isEnabled() {
+		return true;
+	}
+}
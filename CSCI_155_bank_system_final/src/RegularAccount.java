@@ -15,8 +15,8 @@ public class RegularAccount extends Account implements Serializable {
 	/** Monthly interest rate for Regular accounts, 6%. */
 	private static final double INTEREST_RATE = 0.06;
 	
-	/** Monthly maintenance fee for Regular accounts. */
-	private static final double MAINTENANCE_FEE = 10.0;
+	/** Monthly maintenance fee for Regular accounts, in cents ($10). */
+	private static final long MAINTENANCE_FEE_CENTS = 1000;
 
 	/**
 	 * Constructs a RegaularAccount for a given customer.
@@ -38,32 +38,49 @@ public class RegularAccount extends Account implements Serializable {
 	 */
 	@Override
 	public void withdraw(double amount) {
-		if (amount <=0) {
-			throw new IllegalArgumentException("Withdrawal amount must be positive.");
+		long requested = requirePositiveCents(amount, "Withdrawal amount must be positive.");
+		long before = withdrawUpToBalance(requested);
+		long withdrawn = cappedWithdrawal(requested, before);
+		ReceiptSink sink = getReceiptSink();
+		if (!sink.isEnabled()) {
+			return;
 		}
-		double amountToWithdraw = Math.min(amount, balance);
-		if (amountToWithdraw < amount) {
-			System.out.println("\nNote: Insufficient funds; only " + String.format("$%.2f", amountToWithdraw) + " withdrawn.");
+		if (withdrawn < requested) {
+			sink.accept("\nNote: Insufficient funds; only " + formatCents(withdrawn) + " withdrawn.");
 		}
-		balance -= amountToWithdraw;
 		
 		// Transaction receipt
-		System.out.println("\nTransaction completed:\n" + 
-				"---> " + String.format("$%.2f", amountToWithdraw) + " withdrawn" +
-				"\n---> " + String.format("$%.2f", balance) + " balance");
+		sink.accept("\nTransaction completed:\n" + 
+				"---> " + formatCents(withdrawn) + " withdrawn" +
+				"\n---> " + formatCents(before - withdrawn) + " balance");
+	}
+	
+	@Override
+	long withdrawCents(long cents) {
+		return cappedWithdrawal(cents, withdrawUpToBalance(cents));
 	}
 	
 	/**
 	 * Applies monthly interest and deducts the maintenance fee.
-	 * Interest is only applied if balance is positive.
+	 * Interest is only applied if balance is positive, and is rounded to the nearest cent.
 	 * The maintenance fee is always deducted and may drive the balance negative.
 	 */
 	@Override
 	public void applyMonthlyUpdate() {
-		if (balance > 0) {
-			balance += balance * INTEREST_RATE;
-		}
-		balance -= MAINTENANCE_FEE;
+		updateBalance(RegularAccount::monthlyBalance);
+	}
+	
+	/**
+	 * @param cents balance before the monthly update
+	 * @return the balance after interest and the maintenance fee, in cents
+	 */
+	static long monthlyBalance(long cents) {
+		return (cents > 0 ? cents + Math.round(cents * INTEREST_RATE) : cents) - MAINTENANCE_FEE_CENTS;
+	}
+	
+	@Override
+	public AccountType getType() {
+		return AccountType.REGULAR;
 	}
 	
 	@Override
@@ -71,6 +88,6 @@ public class RegularAccount extends Account implements Serializable {
 		return super.toString() + 
 				"\nAccount type: Regular Account" +
 				"\nInterest: " + (INTEREST_RATE * 100) + "%" + 
-				"\nMaintenance Fee: $" + MAINTENANCE_FEE;
+				"\nMaintenance Fee: " + formatCents(MAINTENANCE_FEE_CENTS);
 	}
 }
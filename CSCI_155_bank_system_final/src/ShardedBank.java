@@ -0,0 +1,1018 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+/**
+ * A bank engine that splits accounts into shards by hash of account number.
+ * Each shard is owned by one writer thread, the only thread that ever touches
+ * its accounts, so no account is shared between cores and nothing on the hot
+ * path takes a lock.
+ *
+ * Callers submit commands to a shard's lock-free inbox and get a
+ * CompletableFuture back; the writer runs its commands in arrival order, so
+ * commands a caller submits for one account take effect in submission order.
+ * Aggregate queries such as {@link #getTotalBalance()} go to every shard and
+ * merge the answers; each shard keeps its own running totals, so only
+ * {@link #getLargestAccount()} scans accounts. Arguments are checked before
+ * submission and rejected with IllegalArgumentException; failures found by the
+ * shard, such as a duplicate account number, complete the future exceptionally.
+ *
+ * A transfer between accounts of two shards runs as steps on each: the target
+ * is checked, the full amount is taken from the source or the transfer fails,
+ * and then it is added to the target. Each step is atomic, but the transfer is
+ * not: totals read in between miss the amount, and if the target is removed
+ * before the last step the amount goes back to the source.
+ *
+ * {@link #asBankOperations()} presents the engine as {@link BankOperations},
+ * waiting for each command, so {@code BankSystem}, {@link BankScript} and
+ * {@link BankServer} can run on it. Accounts are kept in memory; there is no
+ * journal, balance history or receipts, and {@link #saveToFile(String)} writes
+ * a snapshot in Bank's format only when asked.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class ShardedBank implements Closeable {
+
+	/** Polls of an empty inbox before the writer parks. */
+	private static final int SPINS_BEFORE_PARK = 100;
+
+	private static final AccountType[] TYPES = AccountType.values();
+
+	private final Shard[] shards;
+
+	private volatile boolean closed;
+
+	/**
+	 * Starts a sharded bank with one writer thread per shard.
+	 *
+	 * @param shardCount number of shards; usually the number of cores
+	 * @throws IllegalArgumentException if shardCount is not positive
+	 */
+	public ShardedBank(int shardCount) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("Shard count must be positive.");
+		}
+		shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard();
+			shards[i].writer = Thread.ofPlatform().name("bank-shard-" + i).daemon().start(shards[i]);
+		}
+	}
+
+	/** @return the number of shards. */
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	// -------- Account operations --------
+
+	/**
+	 * Creates an account in the shard that owns its number.
+	 *
+	 * @param type "checking", "gold", "regular" (case-insensitive)
+	 * @param accountNumber the unique account number
+	 * @param customer the customer who owns the account
+	 * @return completes when the account exists, or exceptionally with
+	 *         IllegalArgumentException if the number is already in use
+	 * @throws IllegalArgumentException if the type is invalid or inputs are null/empty
+	 */
+	public CompletableFuture<Void> createAccount(String type, String accountNumber, Customer customer) {
+		if (type == null || accountNumber == null || accountNumber.isBlank() || customer == null) {
+			throw new IllegalArgumentException("Type, account number, and customer cannot be empty or null.");
+		}
+		Account account;
+		switch (type.toLowerCase()) {
+		case "checking":
+			account = new CheckingAccount(accountNumber, customer);
+			break;
+		case "gold":
+			account = new GoldAccount(accountNumber, customer);
+			break;
+		case "regular":
+			account = new RegularAccount(accountNumber, customer);
+			break;
+		default:
+			throw new IllegalArgumentException("Invalid account type: " + type);
+		}
+		return submit(shardOf(account.getAccountNumber()), new Create(account));
+	}
+
+	/**
+	 * Removes an account.
+	 *
+	 * @param accountNumber the account number
+	 * @return completes with true if removed, false if not found
+	 */
+	public CompletableFuture<Boolean> removeAccount(String accountNumber) {
+		requireAccountNumber(accountNumber);
+		return submit(shardOf(accountNumber), new Remove(accountNumber));
+	}
+
+	/**
+	 * Deposits into an account.
+	 *
+	 * @param accountNumber the account number
+	 * @param amount the amount; must be at least one cent
+	 * @return completes with true if deposited, false if the account is not found
+	 * @throws IllegalArgumentException if the amount is not positive
+	 */
+	public CompletableFuture<Boolean> deposit(String accountNumber, double amount) {
+		requireAccountNumber(accountNumber);
+		long cents = Account.requirePositiveCents(amount, "Deposit amount must be positive.");
+		return submit(shardOf(accountNumber), new Change(accountNumber, cents, true));
+	}
+
+	/**
+	 * Withdraws from an account, with the same rules as {@link Account#withdraw(double)}.
+	 *
+	 * @param accountNumber the account number
+	 * @param amount the amount; must be at least one cent
+	 * @return completes with true if the withdrawal ran, false if the account is not found
+	 * @throws IllegalArgumentException if the amount is not positive
+	 */
+	public CompletableFuture<Boolean> withdraw(String accountNumber, double amount) {
+		requireAccountNumber(accountNumber);
+		long cents = Account.requirePositiveCents(amount, "Withdrawal amount must be positive.");
+		return submit(shardOf(accountNumber), new Change(accountNumber, cents, false));
+	}
+
+	/**
+	 * Describes an account, as {@link Bank#displayAccountInfo(String)} does.
+	 *
+	 * @param accountNumber the account number
+	 * @return completes with the description, or a not-found message
+	 */
+	public CompletableFuture<String> displayAccountInfo(String accountNumber) {
+		requireAccountNumber(accountNumber);
+		return submit(shardOf(accountNumber), new Display(accountNumber));
+	}
+
+	/**
+	 * Applies monthly updates to every account, all shards working in parallel.
+	 *
+	 * @return completes when every shard is done
+	 */
+	public CompletableFuture<Void> applyMonthlyUpdates() {
+		List<CompletableFuture<Void>> parts = new ArrayList<>(shards.length);
+		for (Shard shard : shards) {
+			parts.add(submit(shard, new Monthly()));
+		}
+		return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * Moves money from one account to another; see the class comment for how
+	 * this differs from {@link Bank#transfer(String, String, double)} when the
+	 * accounts are in different shards. Checking and Regular accounts cannot be
+	 * overdrawn by a transfer; Gold accounts can.
+	 *
+	 * @param fromAccountNumber the account to take the money from
+	 * @param toAccountNumber the account to add it to
+	 * @param amount the amount to move; must be at least one cent
+	 * @return completes with true if moved, false if either account is not found,
+	 *         or exceptionally with IllegalArgumentException if the source account
+	 *         has insufficient funds
+	 * @throws IllegalArgumentException if the amount is not positive or both account
+	 *         numbers are the same
+	 */
+	public CompletableFuture<Boolean> transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+		requireAccountNumber(fromAccountNumber);
+		requireAccountNumber(toAccountNumber);
+		long cents = Account.requirePositiveCents(amount, "Transfer amount must be positive.");
+		if (fromAccountNumber.trim().equals(toAccountNumber.trim())) {
+			throw new IllegalArgumentException("Cannot transfer to the same account.");
+		}
+		Shard source = shardOf(fromAccountNumber);
+		Shard target = shardOf(toAccountNumber);
+		return submit(target, new Exists(toAccountNumber)).thenCompose(targetExists -> {
+			if (!targetExists) {
+				return CompletableFuture.completedFuture(false);
+			}
+			return submit(source, new TransferOut(fromAccountNumber, cents)).thenCompose(taken -> {
+				if (!taken) {
+					return CompletableFuture.completedFuture(false);
+				}
+				return submit(target, new Change(toAccountNumber, cents, true)).thenCompose(added -> added
+						? CompletableFuture.completedFuture(true)
+						: submit(source, new Refund(fromAccountNumber, cents)).thenApply(refunded -> false));
+			});
+		});
+	}
+
+	/**
+	 * Applies a batch of deposits and withdrawals. Rows for one account take
+	 * effect in row order; rows for different shards run in parallel. Bad rows
+	 * get a status code instead of failing the batch.
+	 *
+	 * @param batch the transactions to apply
+	 * @return completes with per-row status codes and totals
+	 */
+	public CompletableFuture<BatchResult> applyBatch(TransactionBatch batch) {
+		int size = batch.size();
+		List<CompletableFuture<Long>> rows = new ArrayList<>(size);
+		for (int row = 0; row < size; row++) {
+			String accountNumber = batch.accountNumberAt(row);
+			rows.add(accountNumber == null ? CompletableFuture.completedFuture(-1L)
+					: submit(shardOf(accountNumber), new BatchChange(accountNumber, batch.amountCentsAt(row),
+							batch.typeAt(row) == TransactionBatch.DEPOSIT)));
+		}
+		return CompletableFuture.allOf(rows.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			byte[] statuses = new byte[size];
+			long deposited = 0;
+			long withdrawn = 0;
+			int failed = 0;
+			for (int row = 0; row < size; row++) {
+				long moved = rows.get(row).join();
+				long cents = batch.amountCentsAt(row);
+				if (moved < 0) {
+					statuses[row] = BatchResult.ACCOUNT_NOT_FOUND;
+					failed++;
+				} else if (cents <= 0) {
+					statuses[row] = BatchResult.INVALID_AMOUNT;
+					failed++;
+				} else if (batch.typeAt(row) == TransactionBatch.DEPOSIT) {
+					deposited += moved;
+				} else {
+					withdrawn += moved;
+					if (moved < cents) {
+						statuses[row] = BatchResult.PARTIAL_WITHDRAWAL;
+					}
+				}
+			}
+			return new BatchResult(statuses, deposited, withdrawn, failed);
+		});
+	}
+
+	// -------- Aggregates --------
+
+	/** @return completes with the number of accounts in all shards. */
+	public CompletableFuture<Long> getAccountCount() {
+		return totals().thenApply(Totals::count);
+	}
+
+	/**
+	 * @param type the account type
+	 * @return completes with the number of accounts of that type
+	 */
+	public CompletableFuture<Long> getAccountCount(AccountType type) {
+		return totals().thenApply(t -> t.typeCounts()[type.ordinal()]);
+	}
+
+	/** @return completes with the combined balance of all accounts. */
+	public CompletableFuture<Double> getTotalBalance() {
+		return totals().thenApply(t -> t.totalCents() / 100.0);
+	}
+
+	/**
+	 * @param type the account type
+	 * @return completes with the combined balance of accounts of that type
+	 */
+	public CompletableFuture<Double> getTotalBalance(AccountType type) {
+		return totals().thenApply(t -> t.typeCents()[type.ordinal()] / 100.0);
+	}
+
+	/** @return completes with the average balance (0 if there are no accounts). */
+	public CompletableFuture<Double> getAverageBalance() {
+		return totals().thenApply(t -> t.count() == 0 ? 0.0 : t.totalCents() / 100.0 / t.count());
+	}
+
+	/** @return completes with the number of accounts with a zero balance. */
+	public CompletableFuture<Integer> getZeroBalanceCount() {
+		return totals().thenApply(t -> (int) t.zeroCount());
+	}
+
+	/**
+	 * Finds the account with the largest balance. Each shard scans its own
+	 * accounts, in parallel; ties go to the lowest account number.
+	 *
+	 * @return completes with that account's number, or null if there are no accounts
+	 */
+	public CompletableFuture<String> getLargestAccount() {
+		List<CompletableFuture<Top>> parts = new ArrayList<>(shards.length);
+		for (Shard shard : shards) {
+			parts.add(submit(shard, new Largest()));
+		}
+		return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			Top best = null;
+			for (CompletableFuture<Top> part : parts) {
+				Top top = part.join();
+				if (top.accountNumber() != null && (best == null || top.isLargerThan(best))) {
+					best = top;
+				}
+			}
+			return best == null ? null : best.accountNumber();
+		});
+	}
+
+	/**
+	 * Returns a live view of an account. Each call on the view runs as a command
+	 * in the account's shard and waits for it; calls fail with
+	 * IllegalStateException once the account has been removed.
+	 *
+	 * @param accountNumber the account number
+	 * @return the view; the account need not exist yet
+	 */
+	public AccountView getAccount(String accountNumber) {
+		requireAccountNumber(accountNumber);
+		return new ShardAccountView(accountNumber.trim());
+	}
+
+	/**
+	 * @return this bank as {@link BankOperations}, each call waiting for its
+	 *         commands; a failed command throws its exception
+	 */
+	public BankOperations asBankOperations() {
+		return new Operations();
+	}
+
+	// -------- Persistence --------
+
+	/**
+	 * Starts a sharded bank holding the accounts of a snapshot written by
+	 * {@link #saveToFile(String)} or {@link Bank#saveToFile(String)}. Balance
+	 * history in the snapshot is not kept.
+	 *
+	 * @param filename the snapshot file
+	 * @param shardCount number of shards
+	 * @return the loaded bank
+	 * @throws IOException if the file cannot be read
+	 */
+	public static ShardedBank loadFromFile(String filename, int shardCount) throws IOException {
+		Bank saved = Bank.loadFromFile(filename);
+		ShardedBank bank = new ShardedBank(shardCount);
+		List<CompletableFuture<Void>> parts = new ArrayList<>();
+		for (Account acc : saved.getAccounts()) {
+			// The shards keep their own totals; the loaded bank's are left behind
+			acc.setStatistics(null);
+			acc.setHistory(null);
+			parts.add(bank.submit(bank.shardOf(acc.getAccountNumber()), new Create(acc)));
+		}
+		try {
+			CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+		} catch (CompletionException e) {
+			bank.close();
+			throw new IOException("Cannot load " + filename + ": " + e.getCause().getMessage(), e.getCause());
+		}
+		return bank;
+	}
+
+	/**
+	 * Saves every account to a snapshot file in {@link Bank}'s format. Each
+	 * shard hands over its accounts at one point in its command order, but the
+	 * shards are not paused together, so the file is exact only if no commands
+	 * run meanwhile, as when a program saves on exit.
+	 *
+	 * @param filename the snapshot file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveToFile(String filename) throws IOException {
+		List<CompletableFuture<List<Account>>> parts = new ArrayList<>(shards.length);
+		for (Shard shard : shards) {
+			parts.add(submit(shard, new Collect()));
+		}
+		Bank snapshot = new Bank();
+		List<Account> all = new ArrayList<>();
+		for (CompletableFuture<List<Account>> part : parts) {
+			all.addAll(Operations.await(part));
+		}
+		try {
+			for (Account acc : all) {
+				snapshot.addAccount(acc);
+			}
+			snapshot.saveToFile(filename);
+		} finally {
+			for (Account acc : all) {
+				acc.setStatistics(null);
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer threads after they finish the commands already submitted.
+	 * Commands submitted afterwards fail with IllegalStateException.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (Shard shard : shards) {
+			shard.inbox.offer(Stop.INSTANCE);
+			LockSupport.unpark(shard.writer);
+		}
+		for (Shard shard : shards) {
+			try {
+				shard.writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	// -------- Submission --------
+
+	private Shard shardOf(String accountNumber) {
+		int h = accountNumber.trim().hashCode();
+		return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+	}
+
+	private static void requireAccountNumber(String accountNumber) {
+		if (accountNumber == null) {
+			throw new IllegalArgumentException("Account number cannot be null.");
+		}
+	}
+
+	/** Queues a command for a shard's writer and wakes the writer if it is parked. */
+	private <T> Command<T> submit(Shard shard, Command<T> command) {
+		if (closed) {
+			command.completeExceptionally(new IllegalStateException("Bank is closed."));
+			return command;
+		}
+		shard.inbox.offer(command);
+		if (shard.parked) {
+			LockSupport.unpark(shard.writer);
+		}
+		if (shard.stopped) {
+			shard.failPending(); // the writer may have exited before seeing this command
+		}
+		return command;
+	}
+
+	/** Asks every shard for its running totals and adds them up. */
+	private CompletableFuture<Totals> totals() {
+		List<CompletableFuture<Totals>> parts = new ArrayList<>(shards.length);
+		for (Shard shard : shards) {
+			parts.add(submit(shard, new ReadTotals()));
+		}
+		return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			long count = 0;
+			long totalCents = 0;
+			long zeroCount = 0;
+			long[] typeCounts = new long[TYPES.length];
+			long[] typeCents = new long[TYPES.length];
+			for (CompletableFuture<Totals> part : parts) {
+				Totals t = part.join();
+				count += t.count();
+				totalCents += t.totalCents();
+				zeroCount += t.zeroCount();
+				for (int i = 0; i < TYPES.length; i++) {
+					typeCounts[i] += t.typeCounts()[i];
+					typeCents[i] += t.typeCents()[i];
+				}
+			}
+			return new Totals(count, totalCents, zeroCount, typeCounts, typeCents);
+		});
+	}
+
+	// -------- Blocking access --------
+
+	/** The bank as {@link BankOperations}, waiting for each command. */
+	private final class Operations implements BankOperations {
+
+		/** Waits for a command and returns its result, throwing the exception it failed with. */
+		static <T> T await(CompletableFuture<T> future) {
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw e;
+			}
+		}
+
+		@Override
+		public void createAccount(String type, String accountNumber, Customer customer) {
+			await(ShardedBank.this.createAccount(type, accountNumber, customer));
+		}
+
+		@Override
+		public boolean removeAccount(String accountNumber) {
+			return await(ShardedBank.this.removeAccount(accountNumber));
+		}
+
+		@Override
+		public boolean deposit(String accountNumber, double amount) {
+			return await(ShardedBank.this.deposit(accountNumber, amount));
+		}
+
+		@Override
+		public boolean withdraw(String accountNumber, double amount) {
+			return await(ShardedBank.this.withdraw(accountNumber, amount));
+		}
+
+		@Override
+		public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+			return await(ShardedBank.this.transfer(fromAccountNumber, toAccountNumber, amount));
+		}
+
+		@Override
+		public BatchResult applyBatch(TransactionBatch batch) {
+			return await(ShardedBank.this.applyBatch(batch));
+		}
+
+		@Override
+		public String displayAccountInfo(String accountNumber) {
+			return await(ShardedBank.this.displayAccountInfo(accountNumber));
+		}
+
+		@Override
+		public void applyMonthlyUpdates() {
+			await(ShardedBank.this.applyMonthlyUpdates());
+		}
+
+		@Override
+		public long getAccountCount() {
+			return await(ShardedBank.this.getAccountCount());
+		}
+
+		@Override
+		public long getAccountCount(AccountType type) {
+			return await(ShardedBank.this.getAccountCount(type));
+		}
+
+		@Override
+		public double getTotalBalance() {
+			return await(ShardedBank.this.getTotalBalance());
+		}
+
+		@Override
+		public double getTotalBalance(AccountType type) {
+			return await(ShardedBank.this.getTotalBalance(type));
+		}
+
+		@Override
+		public double getAverageBalance() {
+			return await(ShardedBank.this.getAverageBalance());
+		}
+
+		@Override
+		public int getZeroBalanceCount() {
+			return await(ShardedBank.this.getZeroBalanceCount());
+		}
+
+		@Override
+		public AccountView getLargestAccount() {
+			String accountNumber = await(ShardedBank.this.getLargestAccount());
+			return accountNumber == null ? null : getAccount(accountNumber);
+		}
+	}
+
+	/** A live view of one account; every call is a command in the account's shard. */
+	private final class ShardAccountView implements AccountView {
+		private final String accountNumber;
+
+		ShardAccountView(String accountNumber) {
+			this.accountNumber = accountNumber;
+		}
+
+		private <T> T inspect(BiFunction<Shard, Account, T> action) {
+			return Operations.await(submit(shardOf(accountNumber), new Inspect<>(accountNumber, action)));
+		}
+
+		@Override
+		public String getAccountNumber() {
+			return accountNumber;
+		}
+
+		@Override
+		public AccountType getType() {
+			return inspect((shard, acc) -> acc.getType());
+		}
+
+		@Override
+		public Customer getCustomer() {
+			return inspect((shard, acc) -> acc.getCustomer());
+		}
+
+		@Override
+		public double getBalance() {
+			return getBalanceCents() / 100.0;
+		}
+
+		@Override
+		public long getBalanceCents() {
+			return inspect((shard, acc) -> acc.getBalanceCents());
+		}
+
+		@Override
+		public int getTransactionCount() {
+			return inspect((shard, acc) -> acc.getTransactionCount());
+		}
+
+		@Override
+		public void deposit(double amount) {
+			long cents = Account.requirePositiveCents(amount, "Deposit amount must be positive.");
+			inspect((shard, acc) -> {
+				long before = acc.getBalanceCents();
+				acc.depositCents(cents);
+				shard.balanceChanged(acc, before);
+				return null;
+			});
+		}
+
+		@Override
+		public void withdraw(double amount) {
+			long cents = Account.requirePositiveCents(amount, "Withdrawal amount must be positive.");
+			inspect((shard, acc) -> {
+				long before = acc.getBalanceCents();
+				acc.withdrawCents(cents);
+				shard.balanceChanged(acc, before);
+				return null;
+			});
+		}
+
+		@Override
+		public String toString() {
+			return inspect((shard, acc) -> acc.toString());
+		}
+	}
+
+	// -------- Shards --------
+
+	/** One partition of the accounts and the thread that owns it. */
+	private static final class Shard implements Runnable {
+		final ConcurrentLinkedQueue<Command<?>> inbox = new ConcurrentLinkedQueue<>();
+		final Map<String, Account> accounts = new HashMap<>();
+		Thread writer;
+
+		/** Set while the writer is about to park or parked, so submitters know to wake it. */
+		volatile boolean parked;
+
+		/** Set once the writer has stopped taking commands. */
+		volatile boolean stopped;
+
+		/** Running totals of this shard's accounts; touched only by the writer. */
+		long totalCents;
+		long zeroCount;
+		final long[] typeCounts = new long[TYPES.length];
+		final long[] typeCents = new long[TYPES.length];
+
+		@Override
+		public void run() {
+			int idle = 0;
+			while (true) {
+				Command<?> command = inbox.poll();
+				if (command == null) {
+					if (++idle < SPINS_BEFORE_PARK) {
+						Thread.onSpinWait();
+						continue;
+					}
+					parked = true;
+					// Recheck after publishing the flag, so a command offered meanwhile is not missed
+					if (inbox.isEmpty()) {
+						LockSupport.park(this);
+					}
+					parked = false;
+					idle = 0;
+					continue;
+				}
+				idle = 0;
+				if (command == Stop.INSTANCE) {
+					break;
+				}
+				command.execute(this);
+			}
+			stopped = true;
+			failPending();
+		}
+
+		/** Fails every command still queued; used once the writer has stopped. */
+		void failPending() {
+			for (Command<?> command = inbox.poll(); command != null; command = inbox.poll()) {
+				command.completeExceptionally(new IllegalStateException("Bank is closed."));
+			}
+		}
+
+		/** Counts a new account in the running totals. */
+		void added(Account acc) {
+			long cents = acc.getBalanceCents();
+			totalCents += cents;
+			typeCounts[acc.getType().ordinal()]++;
+			typeCents[acc.getType().ordinal()] += cents;
+			if (cents == 0) {
+				zeroCount++;
+			}
+		}
+
+		/** Takes a removed account out of the running totals. */
+		void removed(Account acc) {
+			long cents = acc.getBalanceCents();
+			totalCents -= cents;
+			typeCounts[acc.getType().ordinal()]--;
+			typeCents[acc.getType().ordinal()] -= cents;
+			if (cents == 0) {
+				zeroCount--;
+			}
+		}
+
+		/** Updates the running totals after an account's balance changed from before. */
+		void balanceChanged(Account acc, long before) {
+			long after = acc.getBalanceCents();
+			totalCents += after - before;
+			typeCents[acc.getType().ordinal()] += after - before;
+			if (before == 0) {
+				zeroCount--;
+			}
+			if (after == 0) {
+				zeroCount++;
+			}
+		}
+	}
+
+	/** A command run by a shard's writer; also the future its caller waits on. */
+	private abstract static class Command<T> extends CompletableFuture<T> {
+
+		/** Runs the command on the writer thread and completes it. */
+		final void execute(Shard shard) {
+			try {
+				complete(run(shard));
+			} catch (RuntimeException e) {
+				completeExceptionally(e);
+			}
+		}
+
+		abstract T run(Shard shard);
+	}
+
+	/** Tells a writer to stop; never completed. */
+	private static final class Stop extends Command<Void> {
+		static final Stop INSTANCE = new Stop();
+
+		@Override
+		Void run(Shard shard) {
+			return null;
+		}
+	}
+
+	private static final class Create extends Command<Void> {
+		private final Account account;
+
+		Create(Account account) {
+			this.account = account;
+		}
+
+		@Override
+		Void run(Shard shard) {
+			if (shard.accounts.putIfAbsent(account.getAccountNumber(), account) != null) {
+				throw new IllegalArgumentException("Account number already exists: " + account.getAccountNumber());
+			}
+			shard.added(account);
+			return null;
+		}
+	}
+
+	private static final class Remove extends Command<Boolean> {
+		private final String accountNumber;
+
+		Remove(String accountNumber) {
+			this.accountNumber = accountNumber;
+		}
+
+		@Override
+		Boolean run(Shard shard) {
+			Account acc = shard.accounts.remove(accountNumber);
+			if (acc == null) {
+				return false;
+			}
+			shard.removed(acc);
+			return true;
+		}
+	}
+
+	/** A deposit or a withdrawal. */
+	private static final class Change extends Command<Boolean> {
+		private final String accountNumber;
+		private final long cents;
+		private final boolean deposit;
+
+		Change(String accountNumber, long cents, boolean deposit) {
+			this.accountNumber = accountNumber;
+			this.cents = cents;
+			this.deposit = deposit;
+		}
+
+		@Override
+		Boolean run(Shard shard) {
+			Account acc = shard.accounts.get(accountNumber);
+			if (acc == null) {
+				return false;
+			}
+			long before = acc.getBalanceCents();
+			if (deposit) {
+				acc.depositCents(cents);
+			} else {
+				acc.withdrawCents(cents);
+			}
+			shard.balanceChanged(acc, before);
+			return true;
+		}
+	}
+
+	/**
+	 * One row of a batch: a deposit or a withdrawal, doing nothing if the
+	 * amount is not positive. Completes with the cents moved, or -1 if the
+	 * account is not found.
+	 */
+	private static final class BatchChange extends Command<Long> {
+		private final String accountNumber;
+		private final long cents;
+		private final boolean deposit;
+
+		BatchChange(String accountNumber, long cents, boolean deposit) {
+			this.accountNumber = accountNumber;
+			this.cents = cents;
+			this.deposit = deposit;
+		}
+
+		@Override
+		Long run(Shard shard) {
+			Account acc = shard.accounts.get(accountNumber);
+			if (acc == null) {
+				return -1L;
+			}
+			if (cents <= 0) {
+				return 0L;
+			}
+			long before = acc.getBalanceCents();
+			long moved = deposit ? acc.depositCents(cents) - before : acc.withdrawCents(cents);
+			shard.balanceChanged(acc, before);
+			return moved;
+		}
+	}
+
+	private static final class Exists extends Command<Boolean> {
+		private final String accountNumber;
+
+		Exists(String accountNumber) {
+			this.accountNumber = accountNumber;
+		}
+
+		@Override
+		Boolean run(Shard shard) {
+			return shard.accounts.containsKey(accountNumber);
+		}
+	}
+
+	/** Takes the full amount of a transfer from its source account, or nothing. */
+	private static final class TransferOut extends Command<Boolean> {
+		private final String accountNumber;
+		private final long cents;
+
+		TransferOut(String accountNumber, long cents) {
+			this.accountNumber = accountNumber;
+			this.cents = cents;
+		}
+
+		@Override
+		Boolean run(Shard shard) {
+			Account acc = shard.accounts.get(accountNumber);
+			if (acc == null) {
+				return false;
+			}
+			long before = acc.getBalanceCents();
+			if (!acc.transferOutCents(cents)) {
+				throw new IllegalArgumentException("Insufficient funds in account " + accountNumber + ".");
+			}
+			shard.balanceChanged(acc, before);
+			return true;
+		}
+	}
+
+	/**
+	 * Puts back the amount of a transfer whose target was removed. A checking
+	 * source keeps the transaction the transfer counted; a removed source has
+	 * nothing to put it back into.
+	 */
+	private static final class Refund extends Command<Void> {
+		private final String accountNumber;
+		private final long cents;
+
+		Refund(String accountNumber, long cents) {
+			this.accountNumber = accountNumber;
+			this.cents = cents;
+		}
+
+		@Override
+		Void run(Shard shard) {
+			Account acc = shard.accounts.get(accountNumber);
+			if (acc != null) {
+				long before = acc.getBalanceCents();
+				acc.addCents(cents);
+				shard.balanceChanged(acc, before);
+			}
+			return null;
+		}
+	}
+
+	/** Runs an action on an account of the shard, failing if the account does not exist. */
+	private static final class Inspect<T> extends Command<T> {
+		private final String accountNumber;
+		private final BiFunction<Shard, Account, T> action;
+
+		Inspect(String accountNumber, BiFunction<Shard, Account, T> action) {
+			this.accountNumber = accountNumber;
+			this.action = action;
+		}
+
+		@Override
+		T run(Shard shard) {
+			Account acc = shard.accounts.get(accountNumber);
+			if (acc == null) {
+				throw new IllegalStateException("Account " + accountNumber + " has been removed.");
+			}
+			return action.apply(shard, acc);
+		}
+	}
+
+	/** Hands over a shard's accounts, for saving. */
+	private static final class Collect extends Command<List<Account>> {
+
+		@Override
+		List<Account> run(Shard shard) {
+			return new ArrayList<>(shard.accounts.values());
+		}
+	}
+
+	private static final class Display extends Command<String> {
+		private final String accountNumber;
+
+		Display(String accountNumber) {
+			this.accountNumber = accountNumber;
+		}
+
+		@Override
+		String run(Shard shard) {
+			Account acc = shard.accounts.get(accountNumber);
+			return acc == null ? "Account " + accountNumber + " not found." : acc.toString();
+		}
+	}
+
+	/**
+	 * Account count, total balance and zero-balance count of one shard, or of
+	 * all of them, and the count and balance of each type, indexed by ordinal.
+	 */
+	private record Totals(long count, long totalCents, long zeroCount, long[] typeCounts, long[] typeCents) {
+	}
+
+	/** Reads a shard's running totals, all as of the same point in its command order. */
+	private static final class ReadTotals extends Command<Totals> {
+
+		@Override
+		Totals run(Shard shard) {
+			return new Totals(shard.accounts.size(), shard.totalCents, shard.zeroCount,
+					shard.typeCounts.clone(), shard.typeCents.clone());
+		}
+	}
+
+	private static final class Monthly extends Command<Void> {
+
+		@Override
+		Void run(Shard shard) {
+			for (Account acc : shard.accounts.values()) {
+				long before = acc.getBalanceCents();
+				acc.applyMonthlyUpdate();
+				shard.balanceChanged(acc, before);
+			}
+			return null;
+		}
+	}
+
+	/** A shard's largest balance and its account number, or a null number if the shard is empty. */
+	private record Top(String accountNumber, long balanceCents) {
+
+		/** @return true if this is larger, ties going to the lower account number. */
+		boolean isLargerThan(Top other) {
+			return balanceCents > other.balanceCents
+					|| (balanceCents == other.balanceCents && accountNumber.compareTo(other.accountNumber) < 0);
+		}
+	}
+
+	/** Finds a shard's largest account. */
+	private static final class Largest extends Command<Top> {
+
+		@Override
+		Top run(Shard shard) {
+			String bestNumber = null;
+			long bestCents = 0;
+			for (Account acc : shard.accounts.values()) {
+				long cents = acc.getBalanceCents();
+				if (bestNumber == null || cents > bestCents
+						|| (cents == bestCents && acc.getAccountNumber().compareTo(bestNumber) < 0)) {
+					bestNumber = acc.getAccountNumber();
+					bestCents = cents;
+				}
+			}
+			return new Top(bestNumber, bestCents);
+		}
+	}
+}
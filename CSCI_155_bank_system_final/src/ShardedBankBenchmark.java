@@ -0,0 +1,143 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+/**
+ * Measures how {@link ShardedBank} throughput grows with the number of shards,
+ * next to a shared {@link Bank} driven by the same client threads.
+ *
+ * Client threads send random deposits and withdrawals to random Gold accounts,
+ * each keeping up to {@code WINDOW} commands in flight. Withdrawals from Gold
+ * accounts always go through in full, so afterwards the total balance must
+ * equal deposits minus withdrawals; the run reports a mismatch if it does not.
+ *
+ * Usage: {@code java ShardedBankBenchmark [accounts] [clients] [operationsPerClient] [shardCounts]}
+ * where shardCounts is a comma-separated list, by default 1,2,4,... up to the
+ * number of processors.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class ShardedBankBenchmark {
+
+	/** Commands each client keeps in flight before waiting for the oldest. */
+	private static final int WINDOW = 256;
+
+	private ShardedBankBenchmark() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int processors = Runtime.getRuntime().availableProcessors();
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : processors;
+		int operations = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+		List<Integer> shardCounts = new ArrayList<>();
+		if (args.length > 3) {
+			for (String count : args[3].split(",")) {
+				shardCounts.add(Integer.parseInt(count));
+			}
+		} else {
+			for (int count = 1; count <= processors; count *= 2) {
+				shardCounts.add(count);
+			}
+		}
+		Account.setReceiptSink(ReceiptSink.NONE);
+		String[] numbers = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			numbers[i] = String.format("S%09d", i);
+		}
+
+		System.out.printf("%d accounts, %d clients x %d operations, %d processors%n",
+				accounts, clients, operations, processors);
+		runBank(numbers, clients, operations);
+		for (int shards : shardCounts) {
+			runSharded(numbers, clients, operations, shards);
+		}
+	}
+
+	/** Runs the workload against a shared Bank, each client calling it directly. */
+	private static void runBank(String[] numbers, int clients, int operations) throws InterruptedException {
+		Bank bank = new Bank();
+		for (String number : numbers) {
+			bank.createAccount("gold", number, new Customer(number, "Benchmark"));
+		}
+		long[] net = new long[clients];
+		long elapsed = runClients(clients, client -> {
+			SplittableRandom random = new SplittableRandom(client);
+			for (int i = 0; i < operations; i++) {
+				int cents = 1 + random.nextInt(10_000);
+				if (random.nextBoolean()) {
+					bank.deposit(numbers[random.nextInt(numbers.length)], cents / 100.0);
+					net[client] += cents;
+				} else {
+					bank.withdraw(numbers[random.nextInt(numbers.length)], cents / 100.0);
+					net[client] -= cents;
+				}
+			}
+		});
+		report("Bank", clients, operations, elapsed, Math.round(bank.getTotalBalance() * 100), net);
+	}
+
+	/** Runs the workload against a ShardedBank with the given number of shards. */
+	private static void runSharded(String[] numbers, int clients, int operations, int shards)
+			throws InterruptedException {
+		try (ShardedBank bank = new ShardedBank(shards)) {
+			List<CompletableFuture<Void>> created = new ArrayList<>(numbers.length);
+			for (String number : numbers) {
+				created.add(bank.createAccount("gold", number, new Customer(number, "Benchmark")));
+			}
+			CompletableFuture.allOf(created.toArray(new CompletableFuture<?>[0])).join();
+			long[] net = new long[clients];
+			long elapsed = runClients(clients, client -> {
+				SplittableRandom random = new SplittableRandom(client);
+				ArrayDeque<CompletableFuture<Boolean>> inFlight = new ArrayDeque<>(WINDOW);
+				for (int i = 0; i < operations; i++) {
+					if (inFlight.size() == WINDOW) {
+						inFlight.poll().join();
+					}
+					int cents = 1 + random.nextInt(10_000);
+					if (random.nextBoolean()) {
+						inFlight.add(bank.deposit(numbers[random.nextInt(numbers.length)], cents / 100.0));
+						net[client] += cents;
+					} else {
+						inFlight.add(bank.withdraw(numbers[random.nextInt(numbers.length)], cents / 100.0));
+						net[client] -= cents;
+					}
+				}
+				for (CompletableFuture<Boolean> f : inFlight) {
+					f.join();
+				}
+			});
+			report(shards + (shards == 1 ? " shard" : " shards"), clients, operations, elapsed,
+					Math.round(bank.getTotalBalance().join() * 100), net);
+		}
+	}
+
+	/** Runs one body per client thread and returns the elapsed nanoseconds. */
+	private static long runClients(int clients, IntConsumer body) throws InterruptedException {
+		List<Thread> threads = new ArrayList<>(clients);
+		long start = System.nanoTime();
+		for (int c = 0; c < clients; c++) {
+			int client = c;
+			threads.add(Thread.ofPlatform().start(() -> body.accept(client)));
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String engine, int clients, int operations, long elapsed, long totalCents, long[] net) {
+		long expected = 0;
+		for (long n : net) {
+			expected += n;
+		}
+		long total = (long) clients * operations;
+		System.out.printf("%-10s %12.0f ops/s%s%n", engine, total * 1e9 / elapsed,
+				totalCents == expected ? "" : "  TOTAL MISMATCH: " + totalCents + " != " + expected);
+	}
+}
@@ -0,0 +1,101 @@
+import java.util.Arrays;
+
+/**
+ * A batch of deposits and withdrawals to be applied in one pass by
+ * {@link Bank#applyBatch(TransactionBatch)}.
+ *
+ * Rows are stored in parallel primitive arrays rather than one object per row,
+ * so batches of millions of transactions stay compact. Amounts are converted
+ * to cents when added; invalid amounts are kept and reported per row instead
+ * of throwing.
+ *
+ * @author Red Team
+ * @version 1.0
+ * @since 2025-08-08
+ */
+public final class TransactionBatch {
+
+	/** Row type for a deposit. */
+	static final byte DEPOSIT = 1;
+
+	/** Row type for a withdrawal. */
+	static final byte WITHDRAWAL = 2;
+
+	private String[] accountNumbers;
+	private byte[] types;
+	private long[] amountsCents;
+	private int size;
+
+	/** Constructs an empty batch. */
+	public TransactionBatch() {
+		this(16);
+	}
+
+	/**
+	 * Constructs an empty batch sized for the expected number of rows.
+	 *
+	 * @param expectedSize expected number of rows; must not be negative
+	 */
+	public TransactionBatch(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size cannot be negative.");
+		}
+		int capacity = Math.max(expectedSize, 1);
+		this.accountNumbers = new String[capacity];
+		this.types = new byte[capacity];
+		this.amountsCents = new long[capacity];
+	}
+
+	/**
+	 * Adds a deposit row.
+	 *
+	 * @param accountNumber The account number.
+	 * @param amount The amount to deposit.
+	 * @return this batch, for chaining.
+	 */
+	public TransactionBatch addDeposit(String accountNumber, double amount) {
+		return add(DEPOSIT, accountNumber, amount);
+	}
+
+	/**
+	 * Adds a withdrawal row.
+	 *
+	 * @param accountNumber The account number.
+	 * @param amount The amount to withdraw.
+	 * @return this batch, for chaining.
+	 */
+	public TransactionBatch addWithdrawal(String accountNumber, double amount) {
+		return add(WITHDRAWAL, accountNumber, amount);
+	}
+
+	/** @return the number of rows in the batch. */
+	public int size() {
+		return size;
+	}
+
+	private TransactionBatch add(byte type, String accountNumber, double amount) {
+		if (size == types.length) {
+			int capacity = types.length * 2;
+			accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+			types = Arrays.copyOf(types, capacity);
+			amountsCents = Arrays.copyOf(amountsCents, capacity);
+		}
+		accountNumbers[size] = accountNumber;
+		types[size] = type;
+		amountsCents[size] = amount > 0 ? Account.toCents(amount) : 0; // 0 marks an invalid amount
+		size++;
+		return this;
+	}
+
+	String accountNumberAt(int row) {
+		return accountNumbers[row];
+	}
+
+	byte typeAt(int row) {
+		return types[row];
+	}
+
+	long amountCentsAt(int row) {
+		return amountsCents[row];
+	}
+}